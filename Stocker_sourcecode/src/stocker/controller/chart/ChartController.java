@@ -241,6 +241,8 @@ public class ChartController extends ControllerBaseInternal {
 		ChartView chart = new ChartView(frameProfileChart, alarm, getDatabaseModel());
 		chart.setUpListeners(this);
 		viewList.add(chart);
+		getDatabaseModel().subscribeStock(frameProfileChart.getSymbol(),
+				DatabaseModel.getChartSubscriber(frameProfileChart.getID()), true);
 		addFrameToDesktop(chart);
 		chart.setShow();
 	}
@@ -284,14 +286,18 @@ public class ChartController extends ControllerBaseInternal {
 	}
 
 	/**
-	 * Unsubscribes and removes a {@code StockData} symbol with {@code DisplayType}.ChartOnly, when its chart view is closed.
-	 * @param frameProfileBase {@code FrameProfileBase} closed frame with {@code DisplayType}.ChartOnly
+	 * Removes the subscription of a closed chart view. A {@code StockData} symbol
+	 * with {@code DisplayType}.ChartOnly is removed as well, unless another chart
+	 * view still shows it.
+	 * @param frameProfileBase {@code FrameProfileBase} closed frame
 	 */
 	private void unsubscribeAndRemoveChartOnlyStock(FrameProfileBase frameProfileBase) {
 		try {
 			ChartView view = getChartViewById(frameProfileBase.getID());
-			if (view.getStock().getDisplayType() == DisplayType.ChartOnly) {
-				getDatabaseModel().subscribeStock(view.getStock().getSymbol(), false);
+			viewList.remove(view);
+			String symbol = view.getStock().getSymbol();
+			getDatabaseModel().subscribeStock(symbol, DatabaseModel.getChartSubscriber(view.getID()), false);
+			if (view.getStock().getDisplayType() == DisplayType.ChartOnly && !isShownInChart(symbol)) {
 				getDatabaseModel().deleteStock(view.getStock());
 			}
 		} catch (Exception e) {
@@ -300,4 +306,18 @@ public class ChartController extends ControllerBaseInternal {
 		}
 	}
 
+	/**
+	 * Checks if a symbol is shown in any open chart view.
+	 * 
+	 * @param symbol the symbol
+	 * @return true if a chart view shows the symbol
+	 */
+	private boolean isShownInChart(String symbol) {
+		for (ChartView cv : viewList) {
+			if (cv.getStock().getSymbol().equals(symbol))
+				return true;
+		}
+		return false;
+	}
+
 }
@@ -1,6 +1,7 @@
 package stocker.controller.database;
 
-import javax.swing.SwingWorker;
+import java.util.List;
+import java.util.function.BiConsumer;
 
 import stocker.controller.inputoutput.NetworkClient;
 import stocker.model.database.DatabaseActionListener;
@@ -8,9 +9,9 @@ import stocker.model.database.DatabaseModel;
 import stocker.model.externalclasses.PullData;
 import stocker.model.externalclasses.PullQuoteData;
 import stocker.model.externalclasses.PullSearchData;
-import stocker.model.externalclasses.PushData;
 import stocker.model.general.DataProviderProfile;
 import stocker.model.general.DisplayType;
+import stocker.model.general.RequestPriority;
 import stocker.model.general.TimeInterval;
 import stocker.model.properties.PropertiesListener;
 import stocker.model.properties.PropertiesModel;
@@ -29,11 +30,14 @@ import stocker.model.properties.PropertiesModel;
  * {@link #retrievePullQuoteDataForSymbol(String)} sends a request for the
  * “Quote” data of a stock and
  * {@link #retrievePullDataForSymbol(String, TimeInterval)} sends a request for
- * stock data for a specific stock. These 4 called “retriever” methods use
- * {@code SwingWorker} threading for their respective HTTP requests. If the data
+ * stock data for a specific stock. These 4 called “retriever” methods send
+ * their respective HTTP requests asynchronously and continue on the event
+ * dispatch thread, when the {@code CompletableFuture} completes. If the data
  * is received successfully, they transfer the data to the database model. If
- * the data cannot be accessed, this is also noted in the database model. The
- * method {@link #onPushDataMessage(PushData)} receives the real-time data,
+ * the data cannot be accessed, this is also noted in the database model.
+ * Results of requests sent before a change of the data provider are
+ * discarded. The
+ * method {@link #onPushTrade(String, double, long, double)} receives the real-time data,
  * checks its usability and transfers it to the data model.
  * 
  * In addition to methods for starting / stopping, connect / disconnect,
@@ -111,7 +115,16 @@ public class DatabaseController extends NetworkClient implements DatabaseActionL
 		
 		if (connect) {
 			onStatusChange("# connect database #");
-			connectPushClient();}
+			// the database boots while the connection is established
+			connectPushClient().whenCompleteAsync(new BiConsumer<Void, Throwable>() {
+				@Override
+				public void accept(Void result, Throwable error) {
+					if (error != null) {
+						System.out.println("connectDatabase():" + getErrorMessage(error));
+					}
+				}
+			}, EDT_EXECUTOR);
+		}
 		else {
 			onStatusChange("# disconnect database #");
 			disconnectPushClient();
@@ -119,14 +132,22 @@ public class DatabaseController extends NetworkClient implements DatabaseActionL
 	}
 
 	/**
-	 * Receives real-time data from {@code NetworkClient} when connected.
+	 * Receives a trade of the real-time data from {@code NetworkClient} when
+	 * connected.
 	 */
 	@Override
-	public void onPushDataMessage(PushData pushData) {
-		// System.out.println("pushClientMessage(): " + message);
-		if (!pushData.isPing() && !pushData.isError()) {
-			databaseModel.addPushData(pushData);
-		}
+	public void onPushTrade(String symbol, double price, long time, double volume) {
+		databaseModel.addPushTrade(symbol, price, time, volume);
+	}
+
+	/**
+	 * Receives the reconnect of the real-time data from {@code NetworkClient}.
+	 * The trades of the reconnected symbols missed while disconnected are
+	 * replaced by historic data.
+	 */
+	@Override
+	public void onPushReconnected(List<String> symbols, long downtime) {
+		databaseModel.askHistoricDataAgain(symbols);
 	}
 
 	/**
@@ -139,121 +160,113 @@ public class DatabaseController extends NetworkClient implements DatabaseActionL
 	}
 
 	/**
-	 * Requests a {@code PullSearchData} object by a general "search word". Uses
-	 * {@code SwingWorder} object for threading.
+	 * Requests a {@code PullSearchData} object by a general "search word". The
+	 * result is passed to the database model on the event dispatch thread.
 	 * 
 	 * @param search      the search word
 	 * @param displayType corresponding {@code DisplayType} value, where the data is
 	 *                    shown.
 	 */
 	private void retrieveSearchDataForGeneral(String search, DisplayType displayType) {
-		SwingWorker<PullSearchData, Void> worker = new SwingWorker<PullSearchData, Void>() {
+		long generation = getDataProviderGeneration();
+		doSearchRequest(search, RequestPriority.Chart).whenCompleteAsync(new BiConsumer<PullSearchData, Throwable>() {
 			@Override
-			protected PullSearchData doInBackground() throws Exception {
-				return doSearchRequest(search);
-			}
-
-			@Override
-			protected void done() {
-				try {
-					PullSearchData pullSearchData = get();
+			public void accept(PullSearchData pullSearchData, Throwable error) {
+				if (!isCurrentDataProvider(generation)) {
+					// answer of the previous data provider
+					return;
+				}
+				if (error == null) {
 					databaseModel.addPullSearchData(pullSearchData, displayType);
-				} catch (Exception ex) {
+				} else {
 					databaseModel.noPullSearchDataFound(search);
-					System.out.println("retrieveSearchDataForGeneral():" + ex.getMessage());
+					System.out.println("retrieveSearchDataForGeneral():" + getErrorMessage(error));
 				}
-
 			}
-		};
-		worker.execute();
+		}, EDT_EXECUTOR);
 	}
 
 	/**
-	 * Requests a {@code PullSearchData} object by a specific symbol. Uses
-	 * {@code SwingWorder} object for threading.
+	 * Requests a {@code PullSearchData} object by a specific symbol. The result is
+	 * passed to the database model on the event dispatch thread.
 	 * 
 	 * @param symbol      the specific symbol
 	 * @param displayType corresponding {@code DisplayType} value, where the data is
 	 *                    shown.
 	 */
 	private void retrieveSearchDataForSymbol(String symbol, DisplayType displayType) {
-		SwingWorker<PullSearchData, Void> worker = new SwingWorker<PullSearchData, Void>() {
-			@Override
-			protected PullSearchData doInBackground() throws Exception {
-				return doSearchRequest(symbol);
-			}
-
+		long generation = getDataProviderGeneration();
+		doSearchRequest(symbol, RequestPriority.Background).whenCompleteAsync(new BiConsumer<PullSearchData, Throwable>() {
 			@Override
-			protected void done() {
+			public void accept(PullSearchData pullSearchData, Throwable error) {
+				if (!isCurrentDataProvider(generation)) {
+					// answer of the previous data provider
+					return;
+				}
 				try {
-					PullSearchData pullSearchData = get();
+					if (error != null) {
+						throw new Exception(getErrorMessage(error));
+					}
 					PullSearchData.Entry e = pullSearchData.getEntryBySymbol(symbol);
 					databaseModel.addPullSearchDataEntry(e, displayType);
 				} catch (Exception ex) {
 					databaseModel.noPullSearchDataFound(symbol);
 					System.out.println("retrieveSearchDataForSymbol():" + ex.getMessage());
 				}
-
 			}
-		};
-		worker.execute();
-
+		}, EDT_EXECUTOR);
 	}
 
 	/**
-	 * Requests a {@code PullData} object by symbol. Uses {@code SwingWorder} object
-	 * for threading.
+	 * Requests a {@code PullData} object by symbol. The result is passed to the
+	 * database model on the event dispatch thread.
 	 * 
 	 * @param symbol   the specific symbol
 	 * @param interval corresponding {@code TimeInterval} value
+	 * @param priority the {@code RequestPriority} of the request
 	 */
-	private void retrievePullDataForSymbol(String symbol, TimeInterval interval) {
-		SwingWorker<PullData, Void> worker = new SwingWorker<PullData, Void>() {
+	private void retrievePullDataForSymbol(String symbol, TimeInterval interval, RequestPriority priority) {
+		long generation = getDataProviderGeneration();
+		doDataRequest(symbol, interval, priority).whenCompleteAsync(new BiConsumer<PullData, Throwable>() {
 			@Override
-			protected PullData doInBackground() throws Exception {
-				return doDataRequest(symbol, interval);
-			}
-
-			@Override
-			protected void done() {
-				try {
-					PullData pd = get();
+			public void accept(PullData pd, Throwable error) {
+				if (!isCurrentDataProvider(generation)) {
+					// answer of the previous data provider
+					return;
+				}
+				if (error == null) {
 					databaseModel.addPullData(symbol, pd, interval);
-				} catch (Exception ex) {
+				} else {
 					databaseModel.noPullDataFound(symbol, interval);
-					System.out.println("retrievePullDataForSymbol():" + ex.getMessage());
+					System.out.println("retrievePullDataForSymbol():" + getErrorMessage(error));
 				}
 			}
-		};
-		worker.execute();
+		}, EDT_EXECUTOR);
 	}
 
 	/**
-	 * Requests a {@code PullQuoteData} object by symbol. Uses {@code SwingWorder}
-	 * object for threading.
+	 * Requests a {@code PullQuoteData} object by symbol. The result is passed to
+	 * the database model on the event dispatch thread.
 	 * 
 	 * @param symbol the specific symbol
 	 */
 	private void retrievePullQuoteDataForSymbol(String symbol) {
-		SwingWorker<PullQuoteData, Void> worker = new SwingWorker<PullQuoteData, Void>() {
-			@Override
-			protected PullQuoteData doInBackground() throws Exception {
-				return doQuoteRequest(symbol);
-			}
-
+		long generation = getDataProviderGeneration();
+		doQuoteRequest(symbol).whenCompleteAsync(new BiConsumer<PullQuoteData, Throwable>() {
 			@Override
-			protected void done() {
-				try {
-					PullQuoteData pqd = get();
+			public void accept(PullQuoteData pqd, Throwable error) {
+				if (!isCurrentDataProvider(generation)) {
+					// answer of the previous data provider
+					return;
+				}
+				if (error == null) {
 					databaseModel.addPullQuoteData(symbol, pqd);
-				} catch (Exception ex) {
+				} else {
 					databaseModel.noPullQuoteDataFound(symbol);
-					System.out.println("retrievePullQuoteDataForSymbol():" + ex.getMessage());
+					System.out.println("retrievePullQuoteDataForSymbol():" + getErrorMessage(error));
 				}
 			}
-		};
-		worker.execute();
-
+		}, EDT_EXECUTOR);
 	}
 
 	/**
@@ -276,8 +289,8 @@ public class DatabaseController extends NetworkClient implements DatabaseActionL
 	 * Invoked by {@code DatabaseModel}, when asked for a historic data.
 	 */
 	@Override
-	public void onAskHistoricDataForSymbol(String symbol, TimeInterval interval) {
-		retrievePullDataForSymbol(symbol, interval);
+	public void onAskHistoricDataForSymbol(String symbol, TimeInterval interval, RequestPriority priority) {
+		retrievePullDataForSymbol(symbol, interval, priority);
 	}
 
 	/**
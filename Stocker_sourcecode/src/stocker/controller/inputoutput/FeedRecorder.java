@@ -0,0 +1,208 @@
+package stocker.controller.inputoutput;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Records the raw messages received by the {@code PushClient} objects of all
+ * shards, with the time they were received, into a gzip compressed file. The
+ * file can be fed back into the decoder threads by a {@code FeedReplayer}, to
+ * reproduce the load of a recorded period.
+ *
+ * The websocket reader threads only put the messages into a bounded queue, the
+ * file is written by the recorder thread. If the queue is full, messages are
+ * not recorded and counted as dropped, the reader threads never wait for the
+ * disk.
+ *
+ * File structure: {@link #MAGIC}, {@link #VERSION} and the Unix timestamp of
+ * the start in milliseconds, then for every message the microseconds since the
+ * start, the index of the shard, the length and the UTF-8 bytes of the
+ * message.
+ *
+ * @author Christoph Kaplan
+ *
+ */
+public class FeedRecorder {
+
+	/** first bytes of a recording, "STKF" */
+	public static final int MAGIC = 0x53544b46;
+	/** version of the file structure */
+	public static final int VERSION = 1;
+	/** capacity of the queue between reader threads and recorder thread */
+	public static final int QUEUE_CAPACITY = 1 << 16;
+
+	/**
+	 * A received message.
+	 */
+	private static class Frame {
+		private final long time;
+		private final int shard;
+		private final String message;
+
+		private Frame(long time, int shard, String message) {
+			this.time = time;
+			this.shard = shard;
+			this.message = message;
+		}
+	}
+
+	private final File file;
+	private final DataOutputStream out;
+	private final ArrayBlockingQueue<Frame> queue = new ArrayBlockingQueue<Frame>(QUEUE_CAPACITY);
+	private final Thread recorderThread;
+	private final long startTime;
+	private final long startNanos;
+	private volatile boolean recording = true;
+	private volatile IOException writeError;
+	private volatile long frameCount;
+	/** written by several reader threads */
+	private final AtomicLong droppedCount = new AtomicLong();
+
+	/**
+	 * {@code FeedRecorder} constructor, creates the file and starts recording.
+	 *
+	 * @param file the file, overwritten if it exists
+	 * @throws Exception if the file can not be created
+	 */
+	public FeedRecorder(File file) throws Exception {
+		this.file = file;
+		this.startTime = System.currentTimeMillis();
+		this.startNanos = System.nanoTime();
+		try {
+			this.out = new DataOutputStream(
+					new BufferedOutputStream(new GZIPOutputStream(new FileOutputStream(file), 1 << 16), 1 << 16));
+			this.out.writeInt(MAGIC);
+			this.out.writeInt(VERSION);
+			this.out.writeLong(this.startTime);
+		} catch (IOException e) {
+			throw new Exception("FeedRecorder: can not create " + file + ": " + e.getMessage());
+		}
+
+		this.recorderThread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				runRecorder();
+			}
+		}, "feed-recorder");
+		this.recorderThread.setDaemon(true);
+		this.recorderThread.start();
+	}
+
+	/**
+	 * Records a message, invoked on a websocket reader thread. Never blocks.
+	 *
+	 * @param shard   the index of the {@code PushShard} that received the message
+	 * @param message the message
+	 */
+	public void record(int shard, String message) {
+		if (!this.recording) {
+			return;
+		}
+		long time = (System.nanoTime() - this.startNanos) / 1000L;
+		if (!this.queue.offer(new Frame(time, shard, message))) {
+			this.droppedCount.incrementAndGet();
+		}
+	}
+
+	/**
+	 * Stops recording, writes the queued messages and closes the file.
+	 *
+	 * @throws Exception if the file could not be written
+	 */
+	public void stop() throws Exception {
+		this.recording = false;
+		try {
+			this.recorderThread.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		if (this.writeError != null) {
+			throw new Exception("FeedRecorder: can not write " + this.file + ": " + this.writeError.getMessage());
+		}
+		System.out.println("FeedRecorder: " + this.frameCount + " messages recorded into " + this.file + ", "
+				+ this.droppedCount.get() + " dropped");
+	}
+
+	/**
+	 * Loop of the recorder thread, writes the queued messages until stopped and
+	 * the queue is empty.
+	 */
+	private void runRecorder() {
+		try {
+			while (this.recording || !this.queue.isEmpty()) {
+				Frame frame = this.queue.poll(100, TimeUnit.MILLISECONDS);
+				if (frame == null) {
+					continue;
+				}
+				byte[] bytes = frame.message.getBytes(StandardCharsets.UTF_8);
+				this.out.writeLong(frame.time);
+				this.out.writeByte(frame.shard);
+				this.out.writeInt(bytes.length);
+				this.out.write(bytes);
+				this.frameCount++;
+			}
+		} catch (IOException e) {
+			this.writeError = e;
+			this.recording = false;
+		} catch (InterruptedException e) {
+			// stops recording
+		}
+		try {
+			this.out.close();
+		} catch (IOException e) {
+			if (this.writeError == null) {
+				this.writeError = e;
+			}
+		}
+	}
+
+	////////////////////////////////////////////////////////
+	//
+	// GETTERs
+	//
+	////////////////////////////////////////////////////////
+
+	/**
+	 * Gets the file of the recording.
+	 *
+	 * @return the file
+	 */
+	public File getFile() {
+		return this.file;
+	}
+
+	/**
+	 * Checks if messages are recorded.
+	 *
+	 * @return true while recording
+	 */
+	public boolean isRecording() {
+		return this.recording;
+	}
+
+	/**
+	 * Gets the amount of messages written into the file.
+	 *
+	 * @return the amount of recorded messages
+	 */
+	public long getFrameCount() {
+		return this.frameCount;
+	}
+
+	/**
+	 * Gets the amount of messages not recorded because the queue was full.
+	 *
+	 * @return the amount of dropped messages
+	 */
+	public long getDroppedCount() {
+		return this.droppedCount.get();
+	}
+}
@@ -0,0 +1,312 @@
+package stocker.controller.inputoutput;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.LockSupport;
+import java.util.zip.GZIPInputStream;
+
+import javax.swing.SwingUtilities;
+
+/**
+ * Feeds a recording of a {@code FeedRecorder} back into the decoder threads of
+ * the {@code PushShard} objects, from where the trades take the same way to
+ * the database model and its observers as received ones. The messages are
+ * replayed in the recorded order, at the recorded pace multiplied by a speed
+ * factor, or as fast as possible with {@link #AS_FAST_AS_POSSIBLE}.
+ *
+ * No message is dropped: if the queue of a shard is full, the replay waits, and
+ * the shard only decodes replayed messages while the event dispatch thread
+ * keeps up with their trades, so every replay of a file produces the same
+ * trades. A message recorded by shard i is replayed by shard i modulo the
+ * amount of shards, so the trades of a symbol keep their order. The lag behind the recorded pace and the time until
+ * the last trade is taken by the event dispatch thread are measured, which
+ * makes a replay a throughput and latency benchmark of the whole processing
+ * of the real-time data.
+ *
+ * @author Christoph Kaplan
+ *
+ */
+public class FeedReplayer {
+
+	/** speed factor that replays without pauses */
+	public static final double AS_FAST_AS_POSSIBLE = 0;
+	/** wait while the queue of a shard is full, in nanoseconds */
+	private static final long BACKOFF_NANOS = 50L * 1000L;
+	/** below this wait the replay thread yields instead of sleeping, in nanoseconds */
+	private static final long SPIN_NANOS = 1000L * 1000L;
+
+	private final File file;
+	private final PushShard[] shards;
+	private final double speed;
+	private final CompletableFuture<FeedReplayer> finished = new CompletableFuture<FeedReplayer>();
+	private Thread replayThread;
+	private volatile boolean stopped = false;
+
+	// results, written by the replay thread and the event dispatch thread
+	private volatile long frameCount;
+	private volatile long recordedDuration;
+	private volatile long maxLag;
+	private volatile long startNanos;
+	private volatile long duration;
+	private long tradeCountAtStart;
+	private long droppedTradeCountAtStart;
+	private volatile long tradeCount;
+	private volatile long droppedTradeCount;
+
+	/**
+	 * {@code FeedReplayer} constructor
+	 *
+	 * @param file   the recording
+	 * @param shards the shards that decode the replayed messages
+	 * @param speed  the speed factor, 1 for the recorded pace,
+	 *               {@link #AS_FAST_AS_POSSIBLE} for no pauses
+	 */
+	public FeedReplayer(File file, PushShard[] shards, double speed) {
+		this.file = file;
+		this.shards = shards.clone();
+		this.speed = speed;
+	}
+
+	/**
+	 * Starts the replay on its own thread.
+	 *
+	 * @return completes with this replayer on the event dispatch thread, after
+	 *         the last trade is taken, completes exceptionally if the recording
+	 *         can not be read
+	 */
+	public synchronized CompletableFuture<FeedReplayer> start() {
+		if (this.replayThread != null) {
+			return this.finished;
+		}
+		for (PushShard shard : this.shards) {
+			this.tradeCountAtStart += shard.getTradeCount();
+			this.droppedTradeCountAtStart += shard.getDroppedTradeCount();
+		}
+		this.replayThread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				runReplay();
+			}
+		}, "feed-replayer");
+		this.replayThread.setDaemon(true);
+		this.replayThread.start();
+		return this.finished;
+	}
+
+	/**
+	 * Stops the replay, messages queued already are still processed.
+	 */
+	public void stop() {
+		this.stopped = true;
+	}
+
+	/**
+	 * Loop of the replay thread, reads the messages, waits for their time and
+	 * queues them at their shard. Waits until everything is processed at the
+	 * end.
+	 */
+	private void runReplay() {
+		try (DataInputStream in = new DataInputStream(
+				new BufferedInputStream(new GZIPInputStream(new FileInputStream(this.file), 1 << 16), 1 << 16))) {
+			if (in.readInt() != FeedRecorder.MAGIC || in.readInt() != FeedRecorder.VERSION) {
+				throw new IOException("not a recording of a FeedRecorder");
+			}
+			in.readLong(); // start of the recording
+
+			this.startNanos = System.nanoTime();
+			byte[] bytes = new byte[4096];
+			while (!this.stopped) {
+				long time;
+				try {
+					time = in.readLong();
+				} catch (EOFException e) {
+					break;
+				}
+				int shard = in.readUnsignedByte();
+				int length = in.readInt();
+				if (length > bytes.length) {
+					bytes = new byte[Math.max(length, bytes.length * 2)];
+				}
+				in.readFully(bytes, 0, length);
+				String message = new String(bytes, 0, length, StandardCharsets.UTF_8);
+
+				if (this.speed > 0) {
+					waitUntil(this.startNanos + (long) (time * 1000L / this.speed));
+				}
+				PushShard target = this.shards[shard % this.shards.length];
+				while (!target.offerReplayMessage(message) && !this.stopped) {
+					LockSupport.parkNanos(BACKOFF_NANOS);
+				}
+				this.frameCount++;
+				this.recordedDuration = time / 1000L;
+			}
+		} catch (IOException e) {
+			this.finished.completeExceptionally(
+					new Exception("FeedReplayer: can not read " + this.file + ": " + e.getMessage()));
+			return;
+		}
+
+		waitUntilDrained();
+		SwingUtilities.invokeLater(new Runnable() {
+			@Override
+			public void run() {
+				finish();
+			}
+		});
+	}
+
+	/**
+	 * Waits until the time a message is due and measures the lag if it is late.
+	 *
+	 * @param due the time the message is due, in the time of
+	 *            {@code System.nanoTime()}
+	 */
+	private void waitUntil(long due) {
+		long remaining = due - System.nanoTime();
+		while (remaining > 0 && !this.stopped) {
+			if (remaining > SPIN_NANOS) {
+				LockSupport.parkNanos(remaining - SPIN_NANOS / 2);
+			} else {
+				Thread.yield();
+			}
+			remaining = due - System.nanoTime();
+		}
+		long lag = -remaining / 1000000L;
+		if (lag > this.maxLag) {
+			this.maxLag = lag;
+		}
+	}
+
+	/**
+	 * Waits until all shards decoded the replayed messages and passed on their
+	 * trades, or the replay is stopped.
+	 */
+	private void waitUntilDrained() {
+		boolean drained = false;
+		while (!drained && !this.stopped) {
+			LockSupport.parkNanos(BACKOFF_NANOS);
+			drained = true;
+			for (PushShard shard : this.shards) {
+				drained &= shard.isReplayDrained();
+			}
+		}
+	}
+
+	/**
+	 * Completes the replay on the event dispatch thread, after the trades of all
+	 * earlier deliveries are processed.
+	 */
+	private void finish() {
+		this.duration = (System.nanoTime() - this.startNanos) / 1000000L;
+		long trades = 0;
+		long dropped = 0;
+		for (PushShard shard : this.shards) {
+			trades += shard.getTradeCount();
+			dropped += shard.getDroppedTradeCount();
+		}
+		this.tradeCount = trades - this.tradeCountAtStart;
+		this.droppedTradeCount = dropped - this.droppedTradeCountAtStart;
+		System.out.println("FeedReplayer: " + getSummary());
+		this.finished.complete(this);
+	}
+
+	////////////////////////////////////////////////////////
+	//
+	// GETTERs
+	//
+	////////////////////////////////////////////////////////
+
+	/**
+	 * Checks if the replay is finished.
+	 *
+	 * @return true if finished, stopped or failed
+	 */
+	public boolean isFinished() {
+		return this.finished.isDone();
+	}
+
+	/**
+	 * Gets the amount of replayed messages.
+	 *
+	 * @return the amount of messages
+	 */
+	public long getFrameCount() {
+		return this.frameCount;
+	}
+
+	/**
+	 * Gets the amount of trades decoded during the replay, available when
+	 * finished. Includes trades received meanwhile by connected shards.
+	 *
+	 * @return the amount of trades
+	 */
+	public long getTradeCount() {
+		return this.tradeCount;
+	}
+
+	/**
+	 * Gets the amount of trades dropped during the replay because the event
+	 * dispatch thread did not keep up, available when finished. Replayed trades
+	 * are never dropped, only trades received meanwhile by connected shards.
+	 *
+	 * @return the amount of dropped trades
+	 */
+	public long getDroppedTradeCount() {
+		return this.droppedTradeCount;
+	}
+
+	/**
+	 * Gets the recorded time span of the replayed messages.
+	 *
+	 * @return the time span in milliseconds
+	 */
+	public long getRecordedDuration() {
+		return this.recordedDuration;
+	}
+
+	/**
+	 * Gets the time from the start of the replay until the last trade was taken
+	 * by the event dispatch thread, available when finished.
+	 *
+	 * @return the time in milliseconds
+	 */
+	public long getDuration() {
+		return this.duration;
+	}
+
+	/**
+	 * Gets the largest delay of a message behind its recorded time multiplied
+	 * by the speed factor, 0 when replayed as fast as possible.
+	 *
+	 * @return the delay in milliseconds
+	 */
+	public long getMaxLag() {
+		return this.maxLag;
+	}
+
+	/**
+	 * Gets the processed trades per second, available when finished.
+	 *
+	 * @return the trades per second
+	 */
+	public double getTradesPerSecond() {
+		return this.duration == 0 ? 0 : this.tradeCount * 1000.0 / this.duration;
+	}
+
+	/**
+	 * Gets the results of the replay as text.
+	 *
+	 * @return the results
+	 */
+	public String getSummary() {
+		return this.frameCount + " messages, " + this.tradeCount + " trades (" + this.droppedTradeCount
+				+ " dropped) of " + this.recordedDuration + "ms recorded in " + this.duration + "ms, "
+				+ Math.round(getTradesPerSecond()) + " trades/s, max lag " + this.maxLag + "ms";
+	}
+}
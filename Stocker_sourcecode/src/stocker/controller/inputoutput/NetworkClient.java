@@ -1,13 +1,24 @@
 package stocker.controller.inputoutput;
 
+import java.io.File;
+import java.io.InputStream;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
 import javax.swing.JOptionPane;
+import javax.swing.SwingUtilities;
 
 import stocker.model.externalclasses.PullData;
 import stocker.model.externalclasses.PullQuoteData;
 import stocker.model.externalclasses.PullSearchData;
-import stocker.model.externalclasses.PushData;
-import stocker.model.externalclasses.PushRequest;
 import stocker.model.general.DataProviderProfile;
+import stocker.model.general.RequestPriority;
 import stocker.model.general.TimeInterval;
 
 /**
@@ -17,6 +28,41 @@ import stocker.model.general.TimeInterval;
  * sending and receiving of various requests. It contains the two classes
  * {@code PushClient} and {@code PullClient} and extends the helper class {@code Serializer}.
  * 
+ * The real-time data is received by one or more {@code PushShard} objects, each
+ * with its own {@code PushClient} connection. The {@code ShardRing} assigns
+ * every subscribed symbol to one shard by consistent hashing, so the symbols
+ * are spread over the connections and a provider limit of symbols per
+ * connection can be bypassed. Every shard decodes its messages on its own
+ * decoder thread, the trades are passed on one by one to {@link #onPushTrade}
+ * on the event dispatch thread, which is the thread that writes all other
+ * received data into the database model as well.
+ * 
+ * Pull requests are sent asynchronously by the {@code PullClient}, the
+ * request methods return {@code CompletableFuture} objects that complete with
+ * the translated data. {@link #EDT_EXECUTOR} continues them on the event
+ * dispatch thread. All pull requests pass the {@code PullRequestScheduler},
+ * which keeps them within the quota of the data provider. The
+ * {@code PullRequestRegistry} in front of it makes sure that a resource is
+ * requested only once, while a request is in flight or its answer is fresh. A
+ * queued request is promoted, when a caller with a higher priority asks for
+ * the same resource. A change of the data provider cancels the queued
+ * requests, answers of requests sent before the change can be recognized by
+ * {@link #isCurrentDataProvider(long)}.
+ * 
+ * The connections of the shards are supervised between
+ * {@link #connectPushClient} and {@link #disconnectPushClient}, a lost
+ * connection is reconnected. Connecting never waits for the network. The
+ * {@code SubscriptionManager} of a shard sends its subscriptions whenever its
+ * connection is open, symbols subscribed while no connection is open are sent
+ * as soon as it is. After a reconnect, {@link #onPushReconnected} is invoked,
+ * so that the real-time data missed in the meantime can be replaced by
+ * historic data.
+ * 
+ * The received messages can be recorded into a file with
+ * {@link #startRecording(File)} and fed back later with
+ * {@link #replayFeed(File, double)}, to reproduce the load of a recorded
+ * period.
+ * 
  * 
  * 
  * @author Christoph Kaplan
@@ -24,8 +70,30 @@ import stocker.model.general.TimeInterval;
  */
 public abstract class NetworkClient extends Serializer {
 	private PullClient pullClient;
-	private PushClient pushClient;
+	private PullRequestScheduler pullRequestScheduler;
+	private PullRequestRegistry pullRequestRegistry;
 	private DataProviderProfile dataProviderProfile;
+	/** incremented with every change of the data provider */
+	private long dataProviderGeneration;
+
+	private PushShard[] pushShards = new PushShard[0];
+	private ShardRing shardRing;
+	/** subscribed symbols of all shards */
+	private LinkedHashSet<String> subscribedSymbols = new LinkedHashSet<String>();
+	/** read by the websocket reader threads */
+	private volatile FeedRecorder feedRecorder;
+	private FeedReplayer feedReplayer;
+
+	/** amount of candles requested with historic data */
+	private static final int CANDLE_AMOUNT = 500;
+
+	/** executes tasks on the event dispatch thread */
+	protected static final Executor EDT_EXECUTOR = new Executor() {
+		@Override
+		public void execute(Runnable command) {
+			SwingUtilities.invokeLater(command);
+		}
+	};
 
 	public NetworkClient(DataProviderProfile dataProviderProfile) {
 		this.dataProviderProfile = dataProviderProfile;
@@ -35,15 +103,10 @@ public abstract class NetworkClient extends Serializer {
 		// The log levels are ERROR > WARN > INFO > DEBUG > TRACE
 
 		pullClient = new PullClient();
-	}
-
-	/**
-	 * Gets the push client.
-	 * 
-	 * @return the push client
-	 */
-	public PushClient getPushClient() {
-		return this.pushClient;
+		pullRequestScheduler = new PullRequestScheduler(dataProviderProfile == null
+				? DataProviderProfile.DEFAULT_REQUESTS_PER_MINUTE
+				: dataProviderProfile.getRequestsPerMinute());
+		pullRequestRegistry = new PullRequestRegistry(pullRequestScheduler);
 	}
 
 	/**
@@ -67,134 +130,463 @@ public abstract class NetworkClient extends Serializer {
 			System.out.println("setDataProviderProfile -> " + dataProviderProfile.getName());
 
 		this.dataProviderProfile = dataProviderProfile;
+		this.dataProviderGeneration++;
+		// answers of the previous data provider are not shared, its queued
+		// requests are not sent any more
+		this.pullRequestRegistry.clear();
+		this.pullRequestScheduler.cancelAll(new Exception("data provider changed"));
+		if (dataProviderProfile != null) {
+			this.pullRequestScheduler.setRequestsPerMinute(dataProviderProfile.getRequestsPerMinute());
+		}
+	}
+
+	/**
+	 * Gets the generation of the current data provider, which changes with
+	 * every {@link #setDataProviderProfile}.
+	 * 
+	 * @return the generation of the data provider
+	 */
+	protected long getDataProviderGeneration() {
+		return this.dataProviderGeneration;
+	}
+
+	/**
+	 * Checks if the data provider did not change since a request was sent. The
+	 * answer of a request sent to a previous data provider must be discarded.
+	 * 
+	 * @param generation the generation of the data provider when the request
+	 *                   was sent
+	 * @return true if the data provider is still the same
+	 */
+	protected boolean isCurrentDataProvider(long generation) {
+		return this.dataProviderGeneration == generation;
+	}
+
+	/**
+	 * Gets the scheduler of the pull requests, e.g. to query its queue depth.
+	 * 
+	 * @return the {@code PullRequestScheduler}
+	 */
+	public PullRequestScheduler getPullRequestScheduler() {
+		return this.pullRequestScheduler;
+	}
+
+	/**
+	 * Queues a pull request at the {@code PullRequestScheduler}.
+	 * 
+	 * @param priority the {@code RequestPriority}
+	 * @param key      the key of the request at the {@code PullRequestRegistry}
+	 * @param url      the request url
+	 * @return the answer from the server
+	 */
+	private CompletableFuture<String> schedulePullRequest(RequestPriority priority, String key, String url) {
+		return pullRequestScheduler.submit(priority, key, new Supplier<CompletableFuture<String>>() {
+			@Override
+			public CompletableFuture<String> get() {
+				return pullClient.doPullRequestAsync(url);
+			}
+		});
 	}
 
 	/**
 	 * Requests historic data, translates it to a new {@code PullData} object.
+	 * Concurrent and recent requests for the same symbol and interval share one
+	 * answer.
 	 * 
 	 * @param symbol   of the {@code StockData} object whose historic data is
 	 *                 requested
 	 * @param interval considered {@code TimerInterval} value
-	 * @return {@code PullData} object, the historic data
-	 * @throws Exception throws exception when historic data is inaccessible, or the
-	 *                   data's status is not "ok"
+	 * @param priority the {@code RequestPriority}
+	 * @return {@code PullData} object, the historic data. Completes exceptionally
+	 *         when historic data is inaccessible, or the data's status is not
+	 *         "ok"
+	 */
+	protected CompletableFuture<PullData> doDataRequest(String symbol, TimeInterval interval,
+			RequestPriority priority) {
+		return pullRequestRegistry.request(PullRequestRegistry.Kind.Historic, symbol, interval, priority,
+				new Supplier<CompletableFuture<PullData>>() {
+					@Override
+					public CompletableFuture<PullData> get() {
+						return sendDataRequest(symbol, interval, priority,
+								PullRequestRegistry.createKey(PullRequestRegistry.Kind.Historic, symbol, interval));
+					}
+				});
+	}
+
+	/**
+	 * Requests search data, translates it to a new {@code PullSearchData} object.
+	 * Concurrent and recent requests for the same search word share one answer.
+	 * 
+	 * @param search   the search-word
+	 * @param priority the {@code RequestPriority}
+	 * @return {@code PullSearchData} object, the search data. Completes
+	 *         exceptionally when a request error occurred
 	 */
-	protected PullData doDataRequest(String symbol, TimeInterval interval) throws Exception {
+	protected CompletableFuture<PullSearchData> doSearchRequest(String search, RequestPriority priority) {
+		return pullRequestRegistry.request(PullRequestRegistry.Kind.Search, search, null, priority,
+				new Supplier<CompletableFuture<PullSearchData>>() {
+					@Override
+					public CompletableFuture<PullSearchData> get() {
+						return sendSearchRequest(search, priority,
+								PullRequestRegistry.createKey(PullRequestRegistry.Kind.Search, search, null));
+					}
+				});
+	}
+
+	/**
+	 * Requests quote data, translates it to a new {@code PullQuoteData} object.
+	 * Concurrent and recent requests for the same symbol share one answer.
+	 * 
+	 * @param symbol of the {@code StockData} object whose quote data is requested
+	 * @return {@code PullQuoteData} object, the quote data. Completes
+	 *         exceptionally when a request error occurred
+	 */
+	protected CompletableFuture<PullQuoteData> doQuoteRequest(String symbol) {
+		return pullRequestRegistry.request(PullRequestRegistry.Kind.Quote, symbol, null, RequestPriority.Quote,
+				new Supplier<CompletableFuture<PullQuoteData>>() {
+					@Override
+					public CompletableFuture<PullQuoteData> get() {
+						return sendQuoteRequest(symbol,
+								PullRequestRegistry.createKey(PullRequestRegistry.Kind.Quote, symbol, null));
+					}
+				});
+	}
+
+	/**
+	 * Sends a request for historic data, translates it to a new {@code PullData}
+	 * object.
+	 * 
+	 * @param symbol   of the {@code StockData} object whose historic data is
+	 *                 requested
+	 * @param interval considered {@code TimerInterval} value
+	 * @param priority the {@code RequestPriority}
+	 * @param key      the key of the request at the {@code PullRequestRegistry}
+	 * @return {@code PullData} object, the historic data. Completes exceptionally
+	 *         when historic data is inaccessible, or the data's status is not
+	 *         "ok"
+	 */
+	private CompletableFuture<PullData> sendDataRequest(String symbol, TimeInterval interval,
+			RequestPriority priority, String key) {
 		//System.out.println("doDataRequest -> " + interval.toString()+ " " +interval.getResolutionCode() +" "+ interval.printFromTo());
-				
-		//recalculate the time window based on the amount of data we want
-		interval.prepareTimeWindow(500);
-				
-		String q = dataProviderProfile.pullDataQueryURL(symbol, interval);
+		String context = "doDataRequest(" + symbol + "," + interval.toString() + ")";
+		String q;
 		try {
-			String data = pullClient.doPullRequest(q);
-			PullData pd = jsonToPullData(data);
-			
-			if (!pd.getStatus().equals("ok")) {
-				throw new Exception(""+ pd.getStatus());
-			}
-
-			return pd;
+			//recalculate the time window based on the amount of data we want
+			interval.prepareTimeWindow(CANDLE_AMOUNT);
+			q = dataProviderProfile.pullDataQueryURL(symbol, interval);
 		} catch (Exception ex) {
-			throw new Exception("doDataRequest(" + symbol + ","+ interval.toString()+") -> " + ex.getMessage());
+			return CompletableFuture.failedFuture(requestFailed(context, ex));
 		}
+
+		// the candles are parsed while the body is received
+		CompletableFuture<PullData> answer = pullRequestScheduler.submit(priority, key,
+				new Supplier<CompletableFuture<PullData>>() {
+					@Override
+					public CompletableFuture<PullData> get() {
+						return pullClient.doPullRequestStream(q).thenApply(new Function<InputStream, PullData>() {
+							@Override
+							public PullData apply(InputStream in) {
+								try (InputStream body = in) {
+									return streamToPullData(body, CANDLE_AMOUNT);
+								} catch (Exception ex) {
+									throw new CompletionException(ex);
+								}
+							}
+						});
+					}
+				});
+
+		return answer.handle(new BiFunction<PullData, Throwable, PullData>() {
+			@Override
+			public PullData apply(PullData pd, Throwable error) {
+				if (error != null) {
+					throw requestFailed(context, error);
+				}
+				try {
+					if (!"ok".equals(pd.getStatus())) {
+						throw new Exception("" + pd.getStatus());
+					}
+					return pd;
+				} catch (Exception ex) {
+					throw requestFailed(context, ex);
+				}
+			}
+		});
 	}
 
 	/**
-	 * Requests search data, translates it to a new {@code PullSearchData} object.
+	 * Sends a request for search data, translates it to a new
+	 * {@code PullSearchData} object.
 	 * 
-	 * @param search the search-word
-	 * @return {@code PullSearchData} object, the search data
-	 * @throws Exception thrown when request error occurred
+	 * @param search   the search-word
+	 * @param priority the {@code RequestPriority}
+	 * @param key      the key of the request at the {@code PullRequestRegistry}
+	 * @return {@code PullSearchData} object, the search data. Completes
+	 *         exceptionally when a request error occurred
 	 */
-	protected PullSearchData doSearchRequest(String search) throws Exception {
+	private CompletableFuture<PullSearchData> sendSearchRequest(String search, RequestPriority priority,
+			String key) {
+		String context = "PullSearchData()";
+		String request;
 		try {
-			String request = dataProviderProfile.pullSearchQueryURL(search);
-			String searchResult = pullClient.doPullRequest(request);
-			PullSearchData psd = jsonToPullSearchData(searchResult);
-			return psd;
+			request = dataProviderProfile.pullSearchQueryURL(search);
 		} catch (Exception ex) {
-			throw new Exception("PullSearchData(): " + ex.getMessage());
+			return CompletableFuture.failedFuture(requestFailed(context, ex));
 		}
+
+		return schedulePullRequest(priority, key, request).handle(new BiFunction<String, Throwable, PullSearchData>() {
+			@Override
+			public PullSearchData apply(String searchResult, Throwable error) {
+				if (error != null) {
+					throw requestFailed(context, error);
+				}
+				try {
+					return jsonToPullSearchData(searchResult);
+				} catch (Exception ex) {
+					throw requestFailed(context, ex);
+				}
+			}
+		});
 	}
 
 	/**
-	 * Requests quote data, translates it to a new {@code PullQuoteData} object.
+	 * Sends a request for quote data, translates it to a new
+	 * {@code PullQuoteData} object.
 	 * 
 	 * @param symbol of the {@code StockData} object whose quote data is requested
-	 * @return {@code PullQuoteData} object, the quote data
-	 * @throws Exception thrown when request error occurred
+	 * @param key    the key of the request at the {@code PullRequestRegistry}
+	 * @return {@code PullQuoteData} object, the quote data. Completes
+	 *         exceptionally when a request error occurred
 	 */
-	protected PullQuoteData doQuoteRequest(String symbol) throws Exception {
+	private CompletableFuture<PullQuoteData> sendQuoteRequest(String symbol, String key) {
+		String context = "PullQuoteData(" + symbol + ")";
+		String url;
 		try {
-			String url = dataProviderProfile.pullQuoteURL(symbol);
-			String quoteResult = pullClient.doPullRequest(url);
-			PullQuoteData pqd = jsonToPullQuoteData(quoteResult);
-			return pqd;
+			url = dataProviderProfile.pullQuoteURL(symbol);
 		} catch (Exception ex) {
-			throw new Exception("PullSearchData():" + ex.getMessage());
+			return CompletableFuture.failedFuture(requestFailed(context, ex));
 		}
 
+		return schedulePullRequest(RequestPriority.Quote, key, url).handle(new BiFunction<String, Throwable, PullQuoteData>() {
+			@Override
+			public PullQuoteData apply(String quoteResult, Throwable error) {
+				if (error != null) {
+					throw requestFailed(context, error);
+				}
+				try {
+					return jsonToPullQuoteData(quoteResult);
+				} catch (Exception ex) {
+					throw requestFailed(context, ex);
+				}
+			}
+		});
 	}
 
 	/**
-	 * Connects to a data provider.
+	 * Creates the exception a request completes with, when it failed.
+	 * 
+	 * @param context the request description
+	 * @param error   the cause
+	 * @return the exception
 	 */
-	protected void connectPushClient() {
-		if (pushClient != null) {
-			pushClient.close();
+	protected static CompletionException requestFailed(String context, Throwable error) {
+		return new CompletionException(new Exception(context + " -> " + getErrorMessage(error)));
+	}
+
+	/**
+	 * Gets the message of an exception a request completed with.
+	 * 
+	 * @param error the exception
+	 * @return the message
+	 */
+	protected static String getErrorMessage(Throwable error) {
+		while (error instanceof CompletionException && error.getCause() != null) {
+			error = error.getCause();
 		}
+		return error.getMessage();
+	}
+
+	/**
+	 * Connects to a data provider with the amount of push connections of its
+	 * profile, without waiting for the connections. The shards are created
+	 * again if the amount changed, the subscribed symbols are distributed to
+	 * them.
+	 * 
+	 * @return completes when all connections are open, completes exceptionally
+	 *         when one could not be opened
+	 */
+	protected CompletableFuture<Void> connectPushClient() {
 		if (dataProviderProfile == null) {
+			disconnectPushClient();
 			JOptionPane.showMessageDialog(null,	"no data provider profile set. please go to properties and set a new profile");
 			setStatus("no data provider profile");
-			return;
+			return CompletableFuture.failedFuture(new Exception("connectPushClient(): no data provider profile"));
+		}
+		int shardCount = dataProviderProfile.getPushConnections();
+		if (pushShards.length != shardCount) {
+			createPushShards(shardCount);
 		}
-		pushClient = new PushClient(dataProviderProfile.pushURL(), this);
-		pushClient.doConnect();
+
+		CompletableFuture<?>[] connections = new CompletableFuture<?>[pushShards.length];
+		for (int i = 0; i < pushShards.length; i++) {
+			connections[i] = pushShards[i].connect(dataProviderProfile.pushURL());
+		}
+		return CompletableFuture.allOf(connections);
 	}
 
 	/**
 	 * Disconnects from a data provider
 	 */
 	protected void disconnectPushClient() {
-		if (pushClient != null) {
-			System.out.println("disconnectPushClient()");
-			pushClient.close();
-			pushClient = null;
+		for (PushShard shard : pushShards) {
+			shard.disconnect();
 		}
+	}
 
+	/**
+	 * Replaces the push shards and distributes the subscribed symbols to the
+	 * new shards.
+	 * 
+	 * @param shardCount the amount of shards
+	 */
+	private void createPushShards(int shardCount) {
+		if (feedReplayer != null) {
+			// replays into the old shards
+			feedReplayer.stop();
+		}
+		for (PushShard shard : pushShards) {
+			shard.shutdown();
+		}
+		pushShards = new PushShard[shardCount];
+		for (int i = 0; i < shardCount; i++) {
+			pushShards[i] = new PushShard(i, this);
+		}
+		shardRing = new ShardRing(shardCount);
+		for (String symbol : subscribedSymbols) {
+			getPushShard(symbol).getSubscriptionManager().subscribe(symbol);
+		}
 	}
 
 	/**
-	 * Subscribe a symbol
+	 * Subscribe a symbol. Sent by the {@code PushShard} of the symbol with the
+	 * next batch of its {@code SubscriptionManager} when a connection is open,
+	 * otherwise as soon as it is opened.
 	 * 
 	 * @param symbol the symbol of a {@code StockData} object
 	 */
 	protected void subscribeTo(String symbol) {
 		// System.out.println("subscribeTo" + name);
-		String request = pushRequestToJson(new PushRequest(true, symbol));
-		pushClient.doPushRequest(request);
+		if (subscribedSymbols.add(symbol) && pushShards.length > 0) {
+			getPushShard(symbol).getSubscriptionManager().subscribe(symbol);
+		}
 	}
 
 	/**
-	 * Unsubscribe a symbol
+	 * Unsubscribe a symbol. Sent by the {@code PushShard} of the symbol with the
+	 * next batch of its {@code SubscriptionManager}, if subscribed on the
+	 * current connection.
 	 * 
 	 * @param symbol the symbol of a {@code StockData} object
 	 */
 	protected void unsubscribeFrom(String symbol) {
 		// System.out.println("unsubscribeFrom" + name);
-		String request = pushRequestToJson(new PushRequest(false, symbol));
-		pushClient.doPushRequest(request);
+		if (subscribedSymbols.remove(symbol) && pushShards.length > 0) {
+			getPushShard(symbol).getSubscriptionManager().unsubscribe(symbol);
+		}
 	}
 
 	/**
-	 * Receives a message from the {@code PushClient} when connected.
+	 * Gets the push shards, e.g. to query their health and throughput.
 	 * 
-	 * @param message from the {@code PushClient}
+	 * @return the push shards, empty before the first connect
 	 */
-	public void pushClientMessage(String message) {
-		PushData pd = jsonToPushData(message);
-		onPushDataMessage(pd);
+	public PushShard[] getPushShards() {
+		return this.pushShards.clone();
+	}
+
+	/**
+	 * Gets the push shard that carries the subscription of a symbol.
+	 * 
+	 * @param symbol the symbol
+	 * @return the push shard of the symbol
+	 */
+	public PushShard getPushShard(String symbol) {
+		return this.pushShards[this.shardRing.getShard(symbol)];
+	}
+
+	/**
+	 * Invoked by a {@code PushShard} on the event dispatch thread, when its
+	 * connection is open again after it was lost and all its symbols are
+	 * subscribed again.
+	 * 
+	 * @param shard    the reconnected {@code PushShard}
+	 * @param downtime the time without connection in milliseconds
+	 */
+	void pushShardReconnected(PushShard shard, long downtime) {
+		// answers from before the reconnect do not cover the gap
+		pullRequestRegistry.invalidate(PullRequestRegistry.Kind.Historic);
+		onPushReconnected(shard.getSubscriptionManager().getDesiredSymbols(), downtime);
+	}
+
+	/**
+	 * Starts recording the messages received by all shards into a file.
+	 * 
+	 * @param file the file, overwritten if it exists
+	 * @throws Exception if already recording or the file can not be created
+	 */
+	public void startRecording(File file) throws Exception {
+		if (feedRecorder != null) {
+			throw new Exception("startRecording(): already recording into " + feedRecorder.getFile());
+		}
+		feedRecorder = new FeedRecorder(file);
+	}
+
+	/**
+	 * Stops recording the received messages.
+	 * 
+	 * @return the stopped recorder, null if not recording
+	 * @throws Exception if the file could not be written
+	 */
+	public FeedRecorder stopRecording() throws Exception {
+		FeedRecorder recorder = feedRecorder;
+		feedRecorder = null;
+		if (recorder != null) {
+			recorder.stop();
+		}
+		return recorder;
+	}
+
+	/**
+	 * Gets the recorder of the received messages.
+	 * 
+	 * @return the recorder, null if not recording
+	 */
+	FeedRecorder getFeedRecorder() {
+		return feedRecorder;
+	}
+
+	/**
+	 * Replays a recording of a {@code FeedRecorder} through the shards, the
+	 * trades reach {@link #onPushTrade} like received ones. Shards are created
+	 * if there are none yet, so a recording can be replayed without connection.
+	 * 
+	 * @param file  the recording
+	 * @param speed the speed factor, 1 for the recorded pace,
+	 *              {@link FeedReplayer#AS_FAST_AS_POSSIBLE} for no pauses
+	 * @return the started replayer
+	 * @throws Exception if a replay is running already
+	 */
+	public FeedReplayer replayFeed(File file, double speed) throws Exception {
+		if (feedReplayer != null && !feedReplayer.isFinished()) {
+			throw new Exception("replayFeed(): a replay is running already");
+		}
+		if (pushShards.length == 0) {
+			createPushShards(dataProviderProfile == null ? DataProviderProfile.DEFAULT_PUSH_CONNECTIONS
+					: dataProviderProfile.getPushConnections());
+		}
+		feedReplayer = new FeedReplayer(file, pushShards, speed);
+		feedReplayer.start();
+		return feedReplayer;
 	}
 
 	/**
@@ -205,8 +597,17 @@ public abstract class NetworkClient extends Serializer {
 	public void setStatus(String info) {
 		String status = "";
 
-		if (pushClient != null && pushClient.isConnected()) {
+		int connected = 0;
+		for (PushShard shard : pushShards) {
+			if (shard.isConnected()) {
+				connected++;
+			}
+		}
+		if (connected > 0 && connected == pushShards.length) {
 			status += "# connected to: " + this.getDataProviderProfile().getPullURL() + " #";
+		} else if (connected > 0) {
+			status += "# connected to: " + this.getDataProviderProfile().getPullURL() + " (" + connected + "/"
+					+ pushShards.length + ") #";
 		} else {
 			status += "# no connection. #";
 		}
@@ -218,11 +619,25 @@ public abstract class NetworkClient extends Serializer {
 	}
 
 	/**
-	 * Receives real-time data from {@link #pushClientMessage} when connected.
+	 * Receives a trade of the real-time data from a {@code PushShard} when
+	 * connected, on the event dispatch thread.
+	 * 
+	 * @param symbol the symbol
+	 * @param price  the price
+	 * @param time   the Unix timestamp in milliseconds
+	 * @param volume the volume
+	 */
+	public abstract void onPushTrade(String symbol, double price, long time, double volume);
+
+	/**
+	 * Invoked on the event dispatch thread, when the connection of a
+	 * {@code PushShard} is open again after it was lost and all its symbols are
+	 * subscribed again.
 	 * 
-	 * @param pushData real-time data
+	 * @param symbols  the symbols of the reconnected {@code PushShard}
+	 * @param downtime the time without connection in milliseconds
 	 */
-	public abstract void onPushDataMessage(PushData pushData);
+	public abstract void onPushReconnected(List<String> symbols, long downtime);
 
 	/**
 	 * Receives status from {@link #setStatus} when changed.
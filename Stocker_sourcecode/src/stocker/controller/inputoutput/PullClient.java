@@ -1,41 +1,166 @@
 package stocker.controller.inputoutput;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.net.HttpURLConnection;
-import java.net.URL;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.zip.GZIPInputStream;
 
 
 /**
- * Pull client for http requests
+ * Pull client for http requests. All requests share one {@code HttpClient},
+ * which keeps the connections to the server open and reuses them, with HTTP/2
+ * several requests share a single connection. Requests are sent
+ * asynchronously, the answers are returned as {@code CompletableFuture}
+ * objects. gzip compressed answers are requested and decompressed, the whole
+ * body is read, regardless of line breaks.
+ *
  * @author Christoph Kaplan
  *
  */
 public class PullClient{
+
+	/** standard timeout for establishing a connection */
+	public static final Duration DEFAULT_CONNECT_TIMEOUT = Duration.ofSeconds(10);
+	/** standard timeout for a request, until the answer is received */
+	public static final Duration DEFAULT_REQUEST_TIMEOUT = Duration.ofSeconds(20);
+
+	private HttpClient httpClient;
+	private Duration requestTimeout;
+
+	/**
+	 * {@code PullClient} constructor, uses the standard timeouts.
+	 */
+	public PullClient() {
+		this(DEFAULT_CONNECT_TIMEOUT, DEFAULT_REQUEST_TIMEOUT);
+	}
+
 	/**
-	 * Queries data via http by given request url
+	 * {@code PullClient} constructor
+	 *
+	 * @param connectTimeout timeout for establishing a connection
+	 * @param requestTimeout timeout for a request
+	 */
+	public PullClient(Duration connectTimeout, Duration requestTimeout) {
+		this.requestTimeout = requestTimeout;
+		this.httpClient = HttpClient.newBuilder()
+				.version(HttpClient.Version.HTTP_2)
+				.followRedirects(HttpClient.Redirect.NORMAL)
+				.connectTimeout(connectTimeout)
+				.build();
+	}
+
+	/**
+	 * Queries data via http by given request url and waits for the answer.
+	 *
 	 * @param request the request url
 	 * @return the answer from the server
 	 * @throws Exception when an error occurres
 	 */
 	public String doPullRequest(String request) throws Exception {
 		try {
-			HttpURLConnection conn = (HttpURLConnection) new URL(request).openConnection();
-			conn.setRequestMethod("GET");
-			conn.connect();
-			int code = conn.getResponseCode();
+			return doPullRequestAsync(request).join();
+		} catch (CompletionException ex) {
+			throw new Exception(ex.getCause().getMessage());
+		}
+	}
+
+	/**
+	 * Queries data via http by given request url, without waiting for the
+	 * answer.
+	 *
+	 * @param request the request url
+	 * @return the answer from the server, completes exceptionally when an error
+	 *         occurres
+	 */
+	public CompletableFuture<String> doPullRequestAsync(String request) {
+		return doPullRequestStream(request).thenApply(new Function<InputStream, String>() {
+			@Override
+			public String apply(InputStream in) {
+				try (InputStream body = in) {
+					return new String(body.readAllBytes(), StandardCharsets.UTF_8);
+				} catch (IOException ex) {
+					throw new CompletionException(new Exception("doPullRequest() error:" + ex.getMessage()));
+				}
+			}
+		});
+	}
+
+	/**
+	 * Queries data via http by given request url, without waiting for the
+	 * answer. The answer is returned as soon as the header is received, the body
+	 * is read from the stream while it is transmitted. The stream needs to be
+	 * closed by the caller.
+	 *
+	 * @param request the request url
+	 * @return the decompressed body of the answer, completes exceptionally when
+	 *         an error occurres
+	 */
+	public CompletableFuture<InputStream> doPullRequestStream(String request) {
+		HttpRequest httpRequest;
+		try {
+			httpRequest = HttpRequest.newBuilder(URI.create(request))
+					.timeout(this.requestTimeout)
+					.header("Accept-Encoding", "gzip")
+					.GET()
+					.build();
+		} catch (IllegalArgumentException ex) {
+			return CompletableFuture.failedFuture(new Exception("doPullRequest() error:" + ex.getMessage()));
+		}
+
+		return this.httpClient.sendAsync(httpRequest, HttpResponse.BodyHandlers.ofInputStream())
+				.handle(new BiFunction<HttpResponse<InputStream>, Throwable, InputStream>() {
+					@Override
+					public InputStream apply(HttpResponse<InputStream> response, Throwable error) {
+						if (error != null) {
+							Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+							String message = cause.getMessage() != null ? cause.getMessage() : cause.toString();
+							throw new CompletionException(new Exception("doPullRequest() error:" + message));
+						}
+						return openBody(response);
+					}
+				});
+	}
+
+	/**
+	 * Checks the status code of an answer and opens its body.
+	 *
+	 * @param response the answer
+	 * @return the decompressed body
+	 */
+	private InputStream openBody(HttpResponse<InputStream> response) {
+		try {
+			int code = response.statusCode();
 			if (code >= 400) {
-				throw new Exception("doPullRequest() error:" + "HTTP-Statuscode: " +code);
+				response.body().close();
+				throw new CompletionException(
+						new PullRequestException("doPullRequest() error:" + "HTTP-Statuscode: " + code, code));
 			}
-			try (BufferedReader in = new BufferedReader(new InputStreamReader(conn.getInputStream()))) {
-				String myData = in.readLine();
-				return myData;
+			String encoding = response.headers().firstValue("Content-Encoding").orElse("");
+			if (encoding.equalsIgnoreCase("gzip")) {
+				return new GZIPInputStream(response.body());
 			}
+			return response.body();
 		} catch (IOException ex) {
-			throw new Exception("doPullRequest() error:" + ex.getMessage());
+			throw new CompletionException(new Exception("doPullRequest() error:" + ex.getMessage()));
 		}
 	}
-	
-}
 
+	/**
+	 * Sets the timeout for requests.
+	 *
+	 * @param requestTimeout the timeout for a request
+	 */
+	public void setRequestTimeout(Duration requestTimeout) {
+		this.requestTimeout = requestTimeout;
+	}
+
+}
@@ -0,0 +1,45 @@
+package stocker.controller.inputoutput;
+
+/**
+ * Exception of a pull request that was answered with an HTTP error status
+ * code.
+ * 
+ * @author Christoph Kaplan
+ *
+ */
+public class PullRequestException extends Exception {
+
+	private static final long serialVersionUID = 1L;
+
+	private int statusCode;
+
+	/**
+	 * {@code PullRequestException} constructor
+	 * 
+	 * @param message    the message
+	 * @param statusCode the HTTP status code
+	 */
+	public PullRequestException(String message, int statusCode) {
+		super(message);
+		this.statusCode = statusCode;
+	}
+
+	/**
+	 * Gets the HTTP status code.
+	 * 
+	 * @return the HTTP status code
+	 */
+	public int getStatusCode() {
+		return this.statusCode;
+	}
+
+	/**
+	 * Checks if the request may succeed when it is sent again later, which is
+	 * the case if the rate limit was exceeded (429) or the server failed (5xx).
+	 * 
+	 * @return true if the request may be retried
+	 */
+	public boolean isRetryable() {
+		return this.statusCode == 429 || this.statusCode >= 500;
+	}
+}
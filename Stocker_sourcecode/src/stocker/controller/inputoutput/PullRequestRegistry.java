@@ -0,0 +1,218 @@
+package stocker.controller.inputoutput;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+import stocker.model.general.RequestPriority;
+import stocker.model.general.TimeInterval;
+
+/**
+ * Registry of the pull requests, identified by kind, symbol (or search word)
+ * and {@code TimeInterval}. As long as a request is in flight, all callers
+ * asking for the same resource get the same pending {@code CompletableFuture}.
+ * After a successful answer the future is kept for the freshness window of its
+ * kind, callers within this window get the answer without a new request. A
+ * failed request is removed immediately, so the next caller sends it again.
+ * If a caller with a higher {@code RequestPriority} joins a request in flight,
+ * the request is promoted at the {@code PullRequestScheduler}, which knows it
+ * by the key of its entry.
+ *
+ * @author Christoph Kaplan
+ *
+ */
+public class PullRequestRegistry {
+
+	/**
+	 * The kinds of pull requests, with the time an answer is considered fresh.
+	 */
+	public enum Kind {
+		Search(5L * 60L * 1000L), Historic(60L * 1000L), Quote(15L * 1000L);
+
+		private final long freshness;
+
+		private Kind(long freshness) {
+			this.freshness = freshness;
+		}
+
+		/**
+		 * Gets the freshness window.
+		 *
+		 * @return the freshness window in milliseconds
+		 */
+		public long getFreshness() {
+			return this.freshness;
+		}
+	}
+
+	/** amount of entries, above which outdated entries are removed */
+	private static final int PRUNE_THRESHOLD = 256;
+
+	/**
+	 * A registered request.
+	 */
+	private static class Entry {
+		private final Kind kind;
+		private final CompletableFuture<?> future;
+		/** highest priority of the callers */
+		private RequestPriority priority;
+		/** time of the successful answer, 0 while in flight */
+		private long completedAt;
+
+		private Entry(Kind kind, CompletableFuture<?> future, RequestPriority priority) {
+			this.kind = kind;
+			this.future = future;
+			this.priority = priority;
+		}
+
+		private boolean isPending() {
+			return !this.future.isDone();
+		}
+
+		private boolean isFresh(long now) {
+			return this.completedAt != 0 && now - this.completedAt <= this.kind.getFreshness();
+		}
+	}
+
+	private final PullRequestScheduler scheduler;
+	private HashMap<String, Entry> entries = new HashMap<String, Entry>();
+	private long hitCount;
+
+	/**
+	 * {@code PullRequestRegistry} constructor
+	 *
+	 * @param scheduler the {@code PullRequestScheduler} the requests are
+	 *                  submitted to with the key of their entry
+	 */
+	public PullRequestRegistry(PullRequestScheduler scheduler) {
+		this.scheduler = scheduler;
+	}
+
+	/**
+	 * Gets the pending or fresh answer of a request, or sends the request if
+	 * there is none. A pending request is promoted if the caller has a higher
+	 * priority than the callers before.
+	 *
+	 * @param <T>      the type of the answer
+	 * @param kind     the kind of the request
+	 * @param name     the symbol or search word
+	 * @param interval the {@code TimeInterval}, null if not relevant for the kind
+	 * @param priority the {@code RequestPriority} of the caller
+	 * @param request  sends the request, submits it to the scheduler with the key
+	 *                 of {@link #createKey}
+	 * @return the answer
+	 */
+	@SuppressWarnings("unchecked")
+	public synchronized <T> CompletableFuture<T> request(Kind kind, String name, TimeInterval interval,
+			RequestPriority priority, Supplier<CompletableFuture<T>> request) {
+		String key = createKey(kind, name, interval);
+		long now = System.currentTimeMillis();
+		Entry entry = this.entries.get(key);
+		if (entry != null && (entry.isPending() || entry.isFresh(now))) {
+			this.hitCount++;
+			if (entry.isPending() && priority.compareTo(entry.priority) < 0) {
+				entry.priority = priority;
+				this.scheduler.promote(key, priority);
+			}
+			return (CompletableFuture<T>) entry.future;
+		}
+
+		if (this.entries.size() >= PRUNE_THRESHOLD) {
+			prune(now);
+		}
+		CompletableFuture<T> future = request.get();
+		Entry newEntry = new Entry(kind, future, priority);
+		this.entries.put(key, newEntry);
+		future.whenComplete(new BiConsumer<T, Throwable>() {
+			@Override
+			public void accept(T value, Throwable error) {
+				onRequestDone(key, newEntry, error);
+			}
+		});
+		return future;
+	}
+
+	/**
+	 * Checks if a request is in flight.
+	 *
+	 * @param kind     the kind of the request
+	 * @param name     the symbol or search word
+	 * @param interval the {@code TimeInterval}, null if not relevant for the kind
+	 * @return true if the request is in flight
+	 */
+	public synchronized boolean isPending(Kind kind, String name, TimeInterval interval) {
+		Entry entry = this.entries.get(createKey(kind, name, interval));
+		return entry != null && entry.isPending();
+	}
+
+	/**
+	 * Removes all entries, the answers of requests in flight are not shared any
+	 * more.
+	 */
+	public synchronized void clear() {
+		this.entries.clear();
+	}
+
+	/**
+	 * Removes the answered entries of a kind, so that the next caller sends the
+	 * request again. Requests in flight are still shared.
+	 *
+	 * @param kind the kind of the requests
+	 */
+	public synchronized void invalidate(Kind kind) {
+		Iterator<Entry> it = this.entries.values().iterator();
+		while (it.hasNext()) {
+			Entry entry = it.next();
+			if (entry.kind == kind && !entry.isPending()) {
+				it.remove();
+			}
+		}
+	}
+
+	/**
+	 * Gets the amount of requests that were answered by an existing entry.
+	 *
+	 * @return the amount of requests answered by an existing entry
+	 */
+	public synchronized long getHitCount() {
+		return this.hitCount;
+	}
+
+	private synchronized void onRequestDone(String key, Entry entry, Throwable error) {
+		if (this.entries.get(key) != entry) {
+			return;
+		}
+		if (error != null) {
+			this.entries.remove(key);
+		} else {
+			entry.completedAt = System.currentTimeMillis();
+		}
+	}
+
+	/**
+	 * Removes the entries that are neither in flight nor fresh.
+	 */
+	private void prune(long now) {
+		Iterator<Entry> it = this.entries.values().iterator();
+		while (it.hasNext()) {
+			Entry entry = it.next();
+			if (!entry.isPending() && !entry.isFresh(now)) {
+				it.remove();
+			}
+		}
+	}
+
+	/**
+	 * Creates the key of a request.
+	 *
+	 * @param kind     the kind of the request
+	 * @param name     the symbol or search word
+	 * @param interval the {@code TimeInterval}, null if not relevant for the kind
+	 * @return the key
+	 */
+	static String createKey(Kind kind, String name, TimeInterval interval) {
+		return kind.name() + "|" + name + "|" + (interval == null ? "" : interval.name());
+	}
+}
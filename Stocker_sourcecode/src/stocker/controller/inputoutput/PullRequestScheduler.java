@@ -0,0 +1,445 @@
+package stocker.controller.inputoutput;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+import stocker.model.general.RequestPriority;
+
+/**
+ * Central scheduler for pull requests. Requests are queued by
+ * {@code RequestPriority} (and in order of submission within a priority) and
+ * sent as long as the token bucket allows it. The bucket is refilled with the
+ * amount of requests per minute the data provider permits, so a large
+ * watchlist does not exceed the quota of the provider at boot. The amount of
+ * requests in flight is bounded as well. A request that is answered with 429
+ * or 5xx is sent again after an exponential backoff with random jitter, a 429
+ * additionally empties the bucket. A request can be submitted with a key, so
+ * that a queued request can be promoted to a higher priority when a more urgent
+ * caller waits for the same answer. All unfinished requests can be cancelled,
+ * e.g. when the data provider changes. The queue depth, the requests in flight
+ * and the amount of retries can be queried.
+ *
+ * @author Christoph Kaplan
+ *
+ */
+public class PullRequestScheduler {
+
+	/** standard maximum amount of requests in flight */
+	public static final int DEFAULT_MAX_IN_FLIGHT = 8;
+	/** maximum amount of retries per request */
+	public static final int MAX_RETRIES = 4;
+	/** backoff before the first retry in milliseconds, doubles with every retry */
+	public static final long BASE_BACKOFF = 1000L;
+	/** maximum backoff in milliseconds */
+	public static final long MAX_BACKOFF = 30000L;
+
+	/**
+	 * A queued request.
+	 */
+	private class Task<T> implements Comparable<Task<?>> {
+		private RequestPriority priority;
+		private final long sequence;
+		private final Object key;
+		private final Supplier<CompletableFuture<T>> request;
+		private final CompletableFuture<T> result = new CompletableFuture<T>();
+		private int attempts;
+		/** set by {@link PullRequestScheduler#cancelAll}, guarded by the scheduler */
+		private boolean cancelled;
+
+		private Task(RequestPriority priority, long sequence, Object key, Supplier<CompletableFuture<T>> request) {
+			this.priority = priority;
+			this.sequence = sequence;
+			this.key = key;
+			this.request = request;
+		}
+
+		@Override
+		public int compareTo(Task<?> o) {
+			if (this.priority != o.priority) {
+				return this.priority.compareTo(o.priority);
+			}
+			return Long.compare(this.sequence, o.sequence);
+		}
+
+		/**
+		 * Sends the request, the answer is passed to {@code onTaskDone}.
+		 */
+		private void send() {
+			this.attempts++;
+			CompletableFuture<T> future;
+			try {
+				future = this.request.get();
+			} catch (Exception ex) {
+				future = CompletableFuture.failedFuture(ex);
+			}
+			future.whenComplete(new BiConsumer<T, Throwable>() {
+				@Override
+				public void accept(T value, Throwable error) {
+					onTaskDone(Task.this, value, error);
+				}
+			});
+		}
+	}
+
+	private final PriorityQueue<Task<?>> queue = new PriorityQueue<Task<?>>();
+	private final int[] queueDepth = new int[RequestPriority.values().length];
+	/** requests that are queued, in flight or waiting for a retry */
+	private final HashSet<Task<?>> unfinishedTasks = new HashSet<Task<?>>();
+	/** unfinished requests submitted with a key */
+	private final HashMap<Object, Task<?>> keyedTasks = new HashMap<Object, Task<?>>();
+	private final ScheduledExecutorService executor;
+	/** current time in milliseconds */
+	private final LongSupplier clock;
+
+	private long sequence;
+	private int maxInFlight;
+	private int inFlight;
+	private long retryCount;
+
+	// token bucket
+	private double tokens;
+	private double capacity;
+	/** tokens per millisecond */
+	private double refillRate;
+	private long lastRefill;
+	private boolean dispatchScheduled;
+
+	/**
+	 * {@code PullRequestScheduler} constructor
+	 *
+	 * @param requestsPerMinute the amount of requests per minute the data
+	 *                          provider permits
+	 */
+	public PullRequestScheduler(int requestsPerMinute) {
+		this(requestsPerMinute, createExecutor(), new LongSupplier() {
+			@Override
+			public long getAsLong() {
+				return System.currentTimeMillis();
+			}
+		});
+	}
+
+	/**
+	 * {@code PullRequestScheduler} constructor with a given executor and clock,
+	 * allows tests to control the time.
+	 *
+	 * @param requestsPerMinute the amount of requests per minute the data
+	 *                          provider permits
+	 * @param executor          sends the requests and runs the delayed
+	 *                          dispatches and retries
+	 * @param clock             the current time in milliseconds
+	 */
+	PullRequestScheduler(int requestsPerMinute, ScheduledExecutorService executor, LongSupplier clock) {
+		this.maxInFlight = DEFAULT_MAX_IN_FLIGHT;
+		this.executor = executor;
+		this.clock = clock;
+		this.lastRefill = clock.getAsLong();
+		setRequestsPerMinute(requestsPerMinute);
+		this.tokens = this.capacity;
+	}
+
+	/**
+	 * Creates the executor with the single daemon thread of the scheduler.
+	 *
+	 * @return the executor
+	 */
+	private static ScheduledExecutorService createExecutor() {
+		ScheduledThreadPoolExecutor stpe = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "pull-request-scheduler");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		stpe.setRemoveOnCancelPolicy(true);
+		return stpe;
+	}
+
+	/**
+	 * Queues a request.
+	 *
+	 * @param <T>      the type of the answer
+	 * @param priority the {@code RequestPriority}
+	 * @param request  sends the request, may be invoked again for retries
+	 * @return the answer, completes exceptionally when the request failed
+	 */
+	public <T> CompletableFuture<T> submit(RequestPriority priority, Supplier<CompletableFuture<T>> request) {
+		return submit(priority, null, request);
+	}
+
+	/**
+	 * Queues a request with a key, which allows to {@link #promote} it until it
+	 * is answered.
+	 *
+	 * @param <T>      the type of the answer
+	 * @param priority the {@code RequestPriority}
+	 * @param key      identifies the request, null if it is not promoted
+	 * @param request  sends the request, may be invoked again for retries
+	 * @return the answer, completes exceptionally when the request failed
+	 */
+	public synchronized <T> CompletableFuture<T> submit(RequestPriority priority, Object key,
+			Supplier<CompletableFuture<T>> request) {
+		Task<T> task = new Task<T>(priority, this.sequence++, key, request);
+		this.unfinishedTasks.add(task);
+		if (key != null) {
+			this.keyedTasks.put(key, task);
+		}
+		enqueue(task);
+		dispatch();
+		return task.result;
+	}
+
+	/**
+	 * Raises the priority of an unfinished request. A queued request is moved
+	 * to the queue of the new priority, behind the requests submitted before it.
+	 * A request in flight or waiting for a retry keeps the new priority for its
+	 * retries.
+	 *
+	 * @param key      identifies the request
+	 * @param priority the new {@code RequestPriority}
+	 * @return true if the priority was raised, false if there is no unfinished
+	 *         request with the key or its priority is not lower
+	 */
+	public synchronized boolean promote(Object key, RequestPriority priority) {
+		Task<?> task = this.keyedTasks.get(key);
+		if (task == null || priority.compareTo(task.priority) >= 0) {
+			return false;
+		}
+		if (this.queue.remove(task)) {
+			this.queueDepth[task.priority.ordinal()]--;
+			task.priority = priority;
+			enqueue(task);
+			dispatch();
+		} else {
+			task.priority = priority;
+		}
+		return true;
+	}
+
+	/**
+	 * Cancels all unfinished requests, their results complete exceptionally. The
+	 * answers of requests in flight are ignored and they are not retried.
+	 *
+	 * @param cause the exception the results complete with
+	 */
+	public void cancelAll(Throwable cause) {
+		ArrayList<Task<?>> cancelled;
+		synchronized (this) {
+			cancelled = new ArrayList<Task<?>>(this.unfinishedTasks);
+			for (Task<?> task : cancelled) {
+				task.cancelled = true;
+			}
+			this.unfinishedTasks.clear();
+			this.keyedTasks.clear();
+			this.queue.clear();
+			for (int i = 0; i < this.queueDepth.length; i++) {
+				this.queueDepth[i] = 0;
+			}
+		}
+		// outside of the lock, the results may be continued synchronously
+		for (Task<?> task : cancelled) {
+			task.result.completeExceptionally(cause);
+		}
+	}
+
+	/**
+	 * Sets the amount of requests per minute the data provider permits.
+	 *
+	 * @param requestsPerMinute the amount of requests per minute
+	 */
+	public synchronized void setRequestsPerMinute(int requestsPerMinute) {
+		refill();
+		int rpm = Math.max(1, requestsPerMinute);
+		// allows a burst of a sixth of the quota, the rest is spread evenly
+		this.capacity = Math.max(1, rpm / 6);
+		this.refillRate = rpm / 60000.0;
+		this.tokens = Math.min(this.tokens, this.capacity);
+		dispatch();
+	}
+
+	/**
+	 * Sets the maximum amount of requests in flight.
+	 *
+	 * @param maxInFlight the maximum amount of requests in flight
+	 */
+	public synchronized void setMaxInFlight(int maxInFlight) {
+		this.maxInFlight = Math.max(1, maxInFlight);
+		dispatch();
+	}
+
+	////////////////////////////////////////////////////////
+	//
+	// METRICs
+	//
+	////////////////////////////////////////////////////////
+
+	/**
+	 * Gets the amount of queued requests.
+	 *
+	 * @return the amount of queued requests
+	 */
+	public synchronized int getQueueDepth() {
+		return this.queue.size();
+	}
+
+	/**
+	 * Gets the amount of queued requests of a priority.
+	 *
+	 * @param priority the {@code RequestPriority}
+	 * @return the amount of queued requests
+	 */
+	public synchronized int getQueueDepth(RequestPriority priority) {
+		return this.queueDepth[priority.ordinal()];
+	}
+
+	/**
+	 * Gets the amount of requests in flight.
+	 *
+	 * @return the amount of requests in flight
+	 */
+	public synchronized int getInFlight() {
+		return this.inFlight;
+	}
+
+	/**
+	 * Gets the amount of retries since the scheduler was created.
+	 *
+	 * @return the amount of retries
+	 */
+	public synchronized long getRetryCount() {
+		return this.retryCount;
+	}
+
+	////////////////////////////////////////////////////////
+	//
+	// SCHEDULING
+	//
+	////////////////////////////////////////////////////////
+
+	private void enqueue(Task<?> task) {
+		this.queue.add(task);
+		this.queueDepth[task.priority.ordinal()]++;
+	}
+
+	/**
+	 * Sends queued requests as long as tokens and free slots are available, if
+	 * tokens are missing, dispatching is scheduled for when the next token is
+	 * available.
+	 */
+	private synchronized void dispatch() {
+		refill();
+		while (!this.queue.isEmpty() && this.inFlight < this.maxInFlight && this.tokens >= 1) {
+			Task<?> task = this.queue.poll();
+			this.queueDepth[task.priority.ordinal()]--;
+			this.tokens -= 1;
+			this.inFlight++;
+			sendLater(task);
+		}
+		if (!this.queue.isEmpty() && this.inFlight < this.maxInFlight && !this.dispatchScheduled) {
+			long wait = (long) Math.ceil((1 - this.tokens) / this.refillRate);
+			this.dispatchScheduled = true;
+			this.executor.schedule(new Runnable() {
+				@Override
+				public void run() {
+					synchronized (PullRequestScheduler.this) {
+						dispatchScheduled = false;
+						dispatch();
+					}
+				}
+			}, Math.max(1, wait), TimeUnit.MILLISECONDS);
+		}
+	}
+
+	/**
+	 * Sends a request on the scheduler thread, never on the thread of the
+	 * caller.
+	 */
+	private void sendLater(Task<?> task) {
+		this.executor.execute(new Runnable() {
+			@Override
+			public void run() {
+				task.send();
+			}
+		});
+	}
+
+	/**
+	 * Invoked when a request is answered. Retries the request if the error is
+	 * retryable, otherwise completes the result.
+	 */
+	private <T> void onTaskDone(Task<T> task, T value, Throwable error) {
+		Throwable cause = error;
+		while (cause instanceof CompletionException && cause.getCause() != null) {
+			cause = cause.getCause();
+		}
+		boolean retryable = cause instanceof PullRequestException && ((PullRequestException) cause).isRetryable()
+				&& task.attempts <= MAX_RETRIES;
+
+		boolean retry;
+		synchronized (this) {
+			// a cancelled request is not retried
+			retry = retryable && !task.cancelled;
+			this.inFlight--;
+			if (retry) {
+				if (((PullRequestException) cause).getStatusCode() == 429) {
+					// quota exceeded, stop all requests until the bucket refills
+					this.tokens = 0;
+				}
+				this.retryCount++;
+				long backoff = Math.min(MAX_BACKOFF, BASE_BACKOFF << (task.attempts - 1));
+				// jitter spreads the retries of requests that failed together
+				long delay = ThreadLocalRandom.current().nextLong(backoff / 2, backoff + 1);
+				System.err.println("pull request retry " + task.attempts + " in " + delay + "ms: " + cause.getMessage());
+				this.executor.schedule(new Runnable() {
+					@Override
+					public void run() {
+						synchronized (PullRequestScheduler.this) {
+							if (task.cancelled) {
+								return;
+							}
+							enqueue(task);
+							dispatch();
+						}
+					}
+				}, delay, TimeUnit.MILLISECONDS);
+			} else {
+				this.unfinishedTasks.remove(task);
+				if (task.key != null) {
+					this.keyedTasks.remove(task.key, task);
+				}
+			}
+			dispatch();
+		}
+
+		if (retry) {
+			return;
+		}
+		if (error != null) {
+			task.result.completeExceptionally(cause);
+		} else {
+			task.result.complete(value);
+		}
+	}
+
+	/**
+	 * Adds the tokens for the time passed since the last refill.
+	 */
+	private void refill() {
+		long now = this.clock.getAsLong();
+		this.tokens = Math.min(this.capacity, this.tokens + (now - this.lastRefill) * this.refillRate);
+		this.lastRefill = now;
+	}
+}
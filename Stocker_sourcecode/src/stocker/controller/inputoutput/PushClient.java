@@ -1,53 +1,70 @@
 package stocker.controller.inputoutput;
 
 import java.net.URI;
+import java.util.concurrent.CompletableFuture;
 
 import org.java_websocket.client.*;
 import org.java_websocket.handshake.*;
 
 /**
  * Websocket "push" client, handles the subscription requests for the real-time data.
+ * Received messages are not processed on the websocket reader thread, they are
+ * put into a bounded {@code SpscRingBuffer}, the reader thread is its only
+ * producer and the decoder thread its only consumer. If the buffer is full, messages are dropped instead of blocking
+ * the reader, the amount of dropped messages and of overflow phases is
+ * counted.
+ * 
+ * The connection is established without blocking the caller,
+ * {@link #doConnect} returns a {@code CompletableFuture} that completes when
+ * the connection is open. Opening and closing of the connection is reported to the
+ * {@code PushShard}, which supervises the connection: it resubscribes the
+ * symbols when the connection is open and reconnects when it is lost. Queued
+ * messages are decoded on the decoder thread of the {@code PushShard}. A
+ * connection that stops answering pings is closed after
+ * {@link #CONNECTION_LOST_TIMEOUT} seconds. While a {@code FeedRecorder} is
+ * set at the {@code NetworkClient}, every received message is recorded as well.
  * 
  * @author Christoph Kaplan
  */
 
 public class PushClient extends WebSocketClient implements Comparable<PushClient>{
-	private boolean isConnected = false;
-	private NetworkClient networkClient;
+	private volatile boolean isConnected = false;
+	private PushShard pushShard;
 	private String serverUri;
-	private int connectionTries;
+	private CompletableFuture<PushClient> openFuture = new CompletableFuture<PushClient>();
+
+	/** standard capacity of the message queue */
+	public static final int MESSAGE_QUEUE_CAPACITY = 1 << 14;
+	/** seconds without answer to a ping until the connection is considered lost */
+	public static final int CONNECTION_LOST_TIMEOUT = 30;
+
+	private SpscRingBuffer<String> messageQueue = new SpscRingBuffer<String>(MESSAGE_QUEUE_CAPACITY);
+	private volatile long dropCount;
+	private volatile long overflowCount;
+	private boolean overflowing = false;
 
 	/**
 	 * {@code PushClient} constructor
 	 * 
-	 * @param serverUri     the pushUrl
-	 * @param networkClient the {@code NetworkClient} object
+	 * @param serverUri the pushUrl
+	 * @param pushShard the {@code PushShard} of this connection
 	 */
-	public PushClient(String serverUri, NetworkClient networkClient) {
+	public PushClient(String serverUri, PushShard pushShard) {
 		super(URI.create(serverUri));
-		this.networkClient = networkClient;
+		this.pushShard = pushShard;
 		this.serverUri = serverUri;
+		setConnectionLostTimeout(CONNECTION_LOST_TIMEOUT);
 	}
 
 	/**
-	 * connect client to server
+	 * Connects the client to the server, without waiting for the connection.
+	 * 
+	 * @return completes with this client when the connection is open, completes
+	 *         exceptionally when the connection is closed before
 	 */
-	public void doConnect() {
-		connectionTries = 0;
+	public CompletableFuture<PushClient> doConnect() {
 		connect();
-		while (!isConnected) {
-			try {
-				//System.out.println("no connection? ");
-
-				if (connectionTries >= 20)
-					return;
-				connectionTries++;
-
-				Thread.sleep(100L);
-			} catch (InterruptedException iex) {
-				System.out.println("connection error:" + iex.getMessage());
-			}
-		}
+		return openFuture;
 	}
 
 	/**
@@ -66,10 +83,8 @@ public class PushClient extends WebSocketClient implements Comparable<PushClient
 	public void onOpen(ServerHandshake handshake) {
 		// System.out.println("connection established");
 		isConnected = true;
-		if (isCurrentConnection()) {
-			networkClient.setStatus("");
-		}
-
+		openFuture.complete(this);
+		pushShard.clientOpened(this);
 	}
 
 	/**
@@ -78,7 +93,21 @@ public class PushClient extends WebSocketClient implements Comparable<PushClient
 	@Override
 	public void onMessage(String message) {
 		// System.out.println("received: " + message);
-		this.networkClient.pushClientMessage(message);
+		FeedRecorder recorder = pushShard.getNetworkClient().getFeedRecorder();
+		if (recorder != null) {
+			recorder.record(pushShard.getIndex(), message);
+		}
+		if (messageQueue.offer(message)) {
+			overflowing = false;
+		} else {
+			dropCount++;
+			if (!overflowing) {
+				overflowing = true;
+				overflowCount++;
+				System.err.println("PushClient: message queue full, dropping messages (dropped: " + dropCount + ")");
+			}
+		}
+		this.pushShard.clientMessage(this);
 	}
 
 	/**
@@ -88,10 +117,8 @@ public class PushClient extends WebSocketClient implements Comparable<PushClient
 	public void onClose(int code, String reason, boolean remote) {
 		System.out.println("PushClient: connection closed " + this.serverUri);
 		isConnected = false;
-		if (isCurrentConnection()) {
-			networkClient.setStatus("");
-		}
-
+		openFuture.completeExceptionally(new Exception("PushClient: connection closed " + this.serverUri));
+		pushShard.clientClosed(this);
 	}
 
 	/**
@@ -106,18 +133,16 @@ public class PushClient extends WebSocketClient implements Comparable<PushClient
 		}
 
 		System.out.println(error);
-		if (isCurrentConnection())	networkClient.setStatus("connection error: "+error);
+		if (isCurrentConnection())	pushShard.clientError(error);
 	}
 
 	/**
-	 * Checks if network client still has the correct push url
+	 * Checks if this is still the current connection of the push shard
 	 * 
 	 * @return true if still the current connection
 	 */
 	boolean isCurrentConnection() {
-		if (this.networkClient.getPushClient() != null && this.networkClient.getPushClient() == this)
-			return true;
-		return false;
+		return this.pushShard.getPushClient() == this;
 	}
 	
 	/**
@@ -128,6 +153,33 @@ public class PushClient extends WebSocketClient implements Comparable<PushClient
 		return this.isConnected;
 	}
 
+
+	/**
+	 * Gets the queue of received messages.
+	 * 
+	 * @return the message queue
+	 */
+	public SpscRingBuffer<String> getMessageQueue() {
+		return this.messageQueue;
+	}
+
+	/**
+	 * Gets the amount of messages dropped because the queue was full.
+	 * 
+	 * @return the amount of dropped messages
+	 */
+	public long getDropCount() {
+		return this.dropCount;
+	}
+
+	/**
+	 * Gets how often the queue ran full.
+	 * 
+	 * @return the amount of overflow phases
+	 */
+	public long getOverflowCount() {
+		return this.overflowCount;
+	}
 	
 	@Override
 	public int compareTo(PushClient o) {
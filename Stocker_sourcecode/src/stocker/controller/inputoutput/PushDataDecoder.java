@@ -0,0 +1,582 @@
+package stocker.controller.inputoutput;
+
+import java.util.Arrays;
+
+/**
+ * Streaming decoder for the real-time messages of the data provider, of the
+ * shape {@code {"type":"trade","data":[{"s":..,"p":..,"t":..,"v":..,"c":[..]}]}}.
+ * Instead of one {@code PushData} object and one {@code PushData.Entry} object
+ * per trade, the trades of a message are parsed straight into reusable
+ * primitive buffers, which are valid until the next call of
+ * {@link #decode(CharSequence)}. Symbols are kept in a symbol table and
+ * identified by an id, a known symbol does not create a new {@code String}.
+ * The trade conditions are stored as bitmask, numeric condition codes between
+ * 0 and 63 set the corresponding bit. Messages of type "ping" and "error" are
+ * recognized without creating any object, unknown fields are skipped. The
+ * decoder is not thread safe, it is used by the thread that processes the
+ * messages.
+ *
+ * @author Christoph Kaplan
+ *
+ */
+public class PushDataDecoder {
+
+	/**
+	 * The types of real-time messages.
+	 */
+	public enum MessageType {
+		Trade, Ping, Error, Unknown
+	}
+
+	private static final double[] POW10 = { 1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12,
+			1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22 };
+
+	// message
+	private CharSequence in;
+	private int pos;
+	private MessageType type;
+
+	// trade buffers
+	private int count;
+	private int[] symbolId = new int[16];
+	private double[] price = new double[16];
+	private long[] time = new long[16];
+	private double[] volume = new double[16];
+	private long[] conditions = new long[16];
+
+	// symbol table, open addressing
+	private String[] symbols = new String[64];
+	private int[] symbolHashes = new int[64];
+	private int[] symbolTable = new int[128];
+	private int symbolCount;
+
+	/** scratch buffer for unescaped strings */
+	private char[] scratch = new char[32];
+	private int scratchLength;
+
+	/**
+	 * {@code PushDataDecoder} constructor
+	 */
+	public PushDataDecoder() {
+		Arrays.fill(this.symbolTable, -1);
+	}
+
+	/**
+	 * Decodes a message. The trades are available through the getters until the
+	 * next call.
+	 *
+	 * @param message the JSON message
+	 * @return the type of the message
+	 * @throws Exception when the message is malformed
+	 */
+	public MessageType decode(CharSequence message) throws Exception {
+		this.in = message;
+		this.pos = 0;
+		this.count = 0;
+		this.type = MessageType.Unknown;
+		try {
+			parseMessage();
+		} catch (IndexOutOfBoundsException ex) {
+			throw new Exception("decode(): unexpected end of message");
+		} finally {
+			this.in = null;
+		}
+		if (this.type != MessageType.Trade) {
+			this.count = 0;
+		}
+		return this.type;
+	}
+
+	////////////////////////////////////////////////////////
+	//
+	// GETTERs
+	//
+	////////////////////////////////////////////////////////
+
+	/**
+	 * Gets the type of the latest message.
+	 *
+	 * @return the type
+	 */
+	public MessageType getType() {
+		return this.type;
+	}
+
+	/**
+	 * Gets the amount of trades of the latest message.
+	 *
+	 * @return the amount of trades
+	 */
+	public int getCount() {
+		return this.count;
+	}
+
+	/**
+	 * Gets the symbol id of a trade.
+	 *
+	 * @param i the index of the trade
+	 * @return the symbol id
+	 */
+	public int getSymbolId(int i) {
+		return this.symbolId[i];
+	}
+
+	/**
+	 * Gets the symbol of a trade.
+	 *
+	 * @param i the index of the trade
+	 * @return the symbol
+	 */
+	public String getSymbol(int i) {
+		return this.symbols[this.symbolId[i]];
+	}
+
+	/**
+	 * Gets the symbol of a symbol id.
+	 *
+	 * @param id the symbol id
+	 * @return the symbol
+	 */
+	public String getSymbolById(int id) {
+		return this.symbols[id];
+	}
+
+	/**
+	 * Gets the price of a trade.
+	 *
+	 * @param i the index of the trade
+	 * @return the price
+	 */
+	public double getPrice(int i) {
+		return this.price[i];
+	}
+
+	/**
+	 * Gets the timestamp of a trade.
+	 *
+	 * @param i the index of the trade
+	 * @return the Unix timestamp in milliseconds
+	 */
+	public long getTime(int i) {
+		return this.time[i];
+	}
+
+	/**
+	 * Gets the volume of a trade.
+	 *
+	 * @param i the index of the trade
+	 * @return the volume
+	 */
+	public double getVolume(int i) {
+		return this.volume[i];
+	}
+
+	/**
+	 * Gets the trade conditions of a trade as bitmask.
+	 *
+	 * @param i the index of the trade
+	 * @return the bitmask, bit n is set for condition code n
+	 */
+	public long getConditions(int i) {
+		return this.conditions[i];
+	}
+
+	////////////////////////////////////////////////////////
+	//
+	// PARSING
+	//
+	////////////////////////////////////////////////////////
+
+	private void parseMessage() throws Exception {
+		skipWhitespace();
+		expect('{');
+		if (peekValue() == '}') {
+			this.pos++;
+			return;
+		}
+		do {
+			readString();
+			skipWhitespace();
+			expect(':');
+			if (scratchEquals("type")) {
+				readString();
+				if (scratchEquals("trade")) {
+					this.type = MessageType.Trade;
+				} else if (scratchEquals("ping")) {
+					this.type = MessageType.Ping;
+				} else if (scratchEquals("error")) {
+					this.type = MessageType.Error;
+				}
+			} else if (scratchEquals("data") && peekValue() == '[') {
+				parseTrades();
+			} else {
+				skipValue();
+			}
+		} while (nextMember('}'));
+	}
+
+	private void parseTrades() throws Exception {
+		expect('[');
+		if (peekValue() == ']') {
+			this.pos++;
+			return;
+		}
+		do {
+			parseTrade();
+		} while (nextMember(']'));
+	}
+
+	private void parseTrade() throws Exception {
+		ensureTradeCapacity();
+		int i = this.count;
+		this.symbolId[i] = -1;
+		this.price[i] = 0;
+		this.time[i] = 0;
+		this.volume[i] = 0;
+		this.conditions[i] = 0;
+
+		skipWhitespace();
+		expect('{');
+		if (peekValue() != '}') {
+			do {
+				readString();
+				skipWhitespace();
+				expect(':');
+				if (this.scratchLength == 1) {
+					switch (this.scratch[0]) {
+					case 's':
+						readString();
+						this.symbolId[i] = internScratch();
+						break;
+					case 'p':
+						this.price[i] = readDouble();
+						break;
+					case 't':
+						this.time[i] = (long) readDouble();
+						break;
+					case 'v':
+						this.volume[i] = readDouble();
+						break;
+					case 'c':
+						this.conditions[i] = readConditions();
+						break;
+					default:
+						skipValue();
+					}
+				} else {
+					skipValue();
+				}
+			} while (nextMember('}'));
+		} else {
+			this.pos++;
+		}
+		// a trade without symbol cannot be assigned
+		if (this.symbolId[i] >= 0) {
+			this.count++;
+		}
+	}
+
+	private long readConditions() throws Exception {
+		if (peekValue() == 'n') {
+			skipValue();
+			return 0;
+		}
+		expect('[');
+		long mask = 0;
+		if (peekValue() == ']') {
+			this.pos++;
+			return mask;
+		}
+		do {
+			skipWhitespace();
+			int code = -1;
+			if (this.in.charAt(this.pos) == '"') {
+				readString();
+				code = scratchToInt();
+			} else {
+				double d = readDouble();
+				if (d == Math.rint(d)) {
+					code = (int) d;
+				}
+			}
+			if (code >= 0 && code < 64) {
+				mask |= 1L << code;
+			}
+		} while (nextMember(']'));
+		return mask;
+	}
+
+	/**
+	 * Reads the separator after a member, returns false at the closing bracket.
+	 */
+	private boolean nextMember(char close) throws Exception {
+		skipWhitespace();
+		char c = this.in.charAt(this.pos++);
+		if (c == ',') {
+			return true;
+		}
+		if (c == close) {
+			return false;
+		}
+		throw new Exception("decode(): unexpected '" + c + "' at " + (this.pos - 1));
+	}
+
+	/**
+	 * Reads a string into the scratch buffer.
+	 */
+	private void readString() throws Exception {
+		skipWhitespace();
+		expect('"');
+		this.scratchLength = 0;
+		while (true) {
+			char c = this.in.charAt(this.pos++);
+			if (c == '"') {
+				return;
+			}
+			if (c == '\\') {
+				c = this.in.charAt(this.pos++);
+				switch (c) {
+				case 'b':
+					c = '\b';
+					break;
+				case 'f':
+					c = '\f';
+					break;
+				case 'n':
+					c = '\n';
+					break;
+				case 'r':
+					c = '\r';
+					break;
+				case 't':
+					c = '\t';
+					break;
+				case 'u':
+					c = (char) Integer.parseInt(this.in.subSequence(this.pos, this.pos + 4).toString(), 16);
+					this.pos += 4;
+					break;
+				default:
+					// '"', '\\' and '/' stand for themselves
+				}
+			}
+			if (this.scratchLength == this.scratch.length) {
+				this.scratch = Arrays.copyOf(this.scratch, this.scratch.length * 2);
+			}
+			this.scratch[this.scratchLength++] = c;
+		}
+	}
+
+	/**
+	 * Reads a number. Numbers with up to 18 digits and up to 22 decimals are
+	 * calculated exactly without allocation, others are passed to
+	 * {@code Double.parseDouble}.
+	 */
+	private double readDouble() throws Exception {
+		skipWhitespace();
+		int start = this.pos;
+		boolean negative = false;
+		if (this.in.charAt(this.pos) == '-') {
+			negative = true;
+			this.pos++;
+		}
+		long mantissa = 0;
+		int digits = 0;
+		int decimals = 0;
+		boolean fraction = false;
+		boolean simple = true;
+		int length = this.in.length();
+		while (this.pos < length) {
+			char c = this.in.charAt(this.pos);
+			if (c >= '0' && c <= '9') {
+				if (digits < 18) {
+					mantissa = mantissa * 10 + (c - '0');
+					if (mantissa != 0) {
+						digits++;
+					}
+					if (fraction) {
+						decimals++;
+					}
+				} else {
+					simple = false;
+				}
+			} else if (c == '.' && !fraction) {
+				fraction = true;
+			} else if (c == 'e' || c == 'E' || c == '+' || c == '-') {
+				simple = false;
+			} else {
+				break;
+			}
+			this.pos++;
+		}
+		if (this.pos == start || (negative && this.pos == start + 1)) {
+			throw new Exception("decode(): number expected at " + start);
+		}
+		if (!simple || decimals >= POW10.length) {
+			return Double.parseDouble(this.in.subSequence(start, this.pos).toString());
+		}
+		double value = mantissa / POW10[decimals];
+		if (mantissa >= (1L << 53)) {
+			// not exactly representable, needs correct rounding
+			return Double.parseDouble(this.in.subSequence(start, this.pos).toString());
+		}
+		return negative ? -value : value;
+	}
+
+	/**
+	 * Skips any JSON value.
+	 */
+	private void skipValue() throws Exception {
+		char c = peekValue();
+		switch (c) {
+		case '"':
+			readString();
+			break;
+		case '{':
+		case '[':
+			skipContainer();
+			break;
+		case 't':
+		case 'f':
+		case 'n':
+			while (this.pos < this.in.length() && Character.isLetter(this.in.charAt(this.pos))) {
+				this.pos++;
+			}
+			break;
+		default:
+			readDouble();
+		}
+	}
+
+	private void skipContainer() throws Exception {
+		int depth = 0;
+		do {
+			char c = this.in.charAt(this.pos);
+			if (c == '"') {
+				readString();
+				continue;
+			}
+			if (c == '{' || c == '[') {
+				depth++;
+			} else if (c == '}' || c == ']') {
+				depth--;
+			}
+			this.pos++;
+		} while (depth > 0);
+	}
+
+	private char peekValue() {
+		skipWhitespace();
+		return this.in.charAt(this.pos);
+	}
+
+	private void skipWhitespace() {
+		int length = this.in.length();
+		while (this.pos < length) {
+			char c = this.in.charAt(this.pos);
+			if (c != ' ' && c != '\n' && c != '\r' && c != '\t') {
+				return;
+			}
+			this.pos++;
+		}
+	}
+
+	private void expect(char expected) throws Exception {
+		char c = this.in.charAt(this.pos);
+		if (c != expected) {
+			throw new Exception("decode(): '" + expected + "' expected at " + this.pos + " but was '" + c + "'");
+		}
+		this.pos++;
+	}
+
+	////////////////////////////////////////////////////////
+	//
+	// HELPERs
+	//
+	////////////////////////////////////////////////////////
+
+	private boolean scratchEquals(String s) {
+		if (s.length() != this.scratchLength) {
+			return false;
+		}
+		for (int i = 0; i < this.scratchLength; i++) {
+			if (this.scratch[i] != s.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private int scratchToInt() {
+		if (this.scratchLength == 0 || this.scratchLength > 9) {
+			return -1;
+		}
+		int value = 0;
+		for (int i = 0; i < this.scratchLength; i++) {
+			char c = this.scratch[i];
+			if (c < '0' || c > '9') {
+				return -1;
+			}
+			value = value * 10 + (c - '0');
+		}
+		return value;
+	}
+
+	/**
+	 * Gets the id of the symbol in the scratch buffer, adds the symbol to the
+	 * symbol table if it is unknown.
+	 */
+	private int internScratch() {
+		int hash = 0;
+		for (int i = 0; i < this.scratchLength; i++) {
+			hash = 31 * hash + this.scratch[i];
+		}
+		int mask = this.symbolTable.length - 1;
+		int slot = (hash ^ (hash >>> 16)) & mask;
+		while (this.symbolTable[slot] >= 0) {
+			int id = this.symbolTable[slot];
+			if (this.symbolHashes[id] == hash && scratchEquals(this.symbols[id])) {
+				return id;
+			}
+			slot = (slot + 1) & mask;
+		}
+
+		int id = this.symbolCount++;
+		if (id == this.symbols.length) {
+			this.symbols = Arrays.copyOf(this.symbols, id * 2);
+			this.symbolHashes = Arrays.copyOf(this.symbolHashes, id * 2);
+		}
+		this.symbols[id] = new String(this.scratch, 0, this.scratchLength);
+		this.symbolHashes[id] = hash;
+		this.symbolTable[slot] = id;
+		if (this.symbolCount * 2 > this.symbolTable.length) {
+			rehash();
+		}
+		return id;
+	}
+
+	private void rehash() {
+		this.symbolTable = new int[this.symbolTable.length * 2];
+		Arrays.fill(this.symbolTable, -1);
+		int mask = this.symbolTable.length - 1;
+		for (int id = 0; id < this.symbolCount; id++) {
+			int hash = this.symbolHashes[id];
+			int slot = (hash ^ (hash >>> 16)) & mask;
+			while (this.symbolTable[slot] >= 0) {
+				slot = (slot + 1) & mask;
+			}
+			this.symbolTable[slot] = id;
+		}
+	}
+
+	private void ensureTradeCapacity() {
+		if (this.count < this.price.length) {
+			return;
+		}
+		int capacity = this.price.length * 2;
+		this.symbolId = Arrays.copyOf(this.symbolId, capacity);
+		this.price = Arrays.copyOf(this.price, capacity);
+		this.time = Arrays.copyOf(this.time, capacity);
+		this.volume = Arrays.copyOf(this.volume, capacity);
+		this.conditions = Arrays.copyOf(this.conditions, capacity);
+	}
+}
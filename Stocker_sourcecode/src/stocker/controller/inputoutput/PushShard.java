@@ -0,0 +1,642 @@
+package stocker.controller.inputoutput;
+
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+
+/**
+ * One of the parallel push connections of a {@code NetworkClient}. A shard
+ * carries the subscriptions of the symbols the {@code ShardRing} assigns to it.
+ * Its connection is supervised between {@link #connect} and
+ * {@link #disconnect}: when it is lost, a new {@code PushClient} is connected
+ * after an exponential backoff with random jitter, and the
+ * {@code SubscriptionManager} of the shard subscribes its symbols again.
+ *
+ * The messages of a shard are decoded on its own decoder thread with its own
+ * {@code PushDataDecoder}, so that several shards use several cores. The
+ * decoded trades are collected in batches of primitive values and passed to
+ * the event dispatch thread, which stays the only thread that writes into the
+ * database model. Delivered batches are returned to the decoder thread and
+ * reused.
+ *
+ * Besides the messages of its {@code PushClient}, the decoder thread decodes
+ * the messages a {@code FeedReplayer} feeds in with
+ * {@link #offerReplayMessage(String)}, they take the same way to the database
+ * model as received ones. Received trades are dropped if the event dispatch
+ * thread does not keep up, replayed messages instead wait in their queue until
+ * there is room for their trades, so a replay never drops trades.
+ *
+ * The shard counts its messages, trades, decode errors, dropped trades and
+ * reconnects, which together with the connection state and the trades per
+ * second describe its health and throughput.
+ *
+ * @author Christoph Kaplan
+ *
+ */
+public class PushShard {
+
+	/** backoff before the first reconnect in milliseconds, doubles with every try */
+	public static final int RECONNECT_BASE_DELAY = 1000;
+	/** maximum backoff between two reconnects in milliseconds */
+	public static final int RECONNECT_MAX_DELAY = 60000;
+	/** capacity of the queues of trade batches */
+	private static final int BATCH_QUEUE_CAPACITY = 256;
+	/** capacity of the queue of replayed messages */
+	private static final int REPLAY_QUEUE_CAPACITY = 1 << 12;
+	/** maximum amount of messages decoded into one batch */
+	private static final int MESSAGES_PER_BATCH = 512;
+	/** maximum amount of batches delivered at once on the event dispatch thread */
+	private static final int BATCHES_PER_DELIVERY = 16;
+	/** maximum time the idle decoder thread sleeps, in nanoseconds */
+	private static final long IDLE_PARK_NANOS = 50L * 1000L * 1000L;
+	/** sleep of the decoder thread while replayed messages wait for room, in nanoseconds */
+	private static final long REPLAY_BACKOFF_NANOS = 100L * 1000L;
+
+	/**
+	 * Decoded trades of several messages.
+	 */
+	private static class TradeBatch {
+		private int count;
+		private String[] symbols = new String[64];
+		private double[] prices = new double[64];
+		private long[] times = new long[64];
+		private double[] volumes = new double[64];
+
+		private void add(String symbol, double price, long time, double volume) {
+			if (this.count == this.symbols.length) {
+				int size = this.count * 2;
+				this.symbols = Arrays.copyOf(this.symbols, size);
+				this.prices = Arrays.copyOf(this.prices, size);
+				this.times = Arrays.copyOf(this.times, size);
+				this.volumes = Arrays.copyOf(this.volumes, size);
+			}
+			this.symbols[this.count] = symbol;
+			this.prices[this.count] = price;
+			this.times[this.count] = time;
+			this.volumes[this.count] = volume;
+			this.count++;
+		}
+	}
+
+	private final int index;
+	private final NetworkClient networkClient;
+	private final SubscriptionManager subscriptionManager;
+	private volatile PushClient pushClient;
+	private String pushURL;
+
+	// supervision, used on the event dispatch thread only
+	private boolean supervised = false;
+	private int reconnectTries;
+	private Timer reconnectTimer;
+	/** time the connection was lost, 0 while connected */
+	private long connectionLostAt;
+
+	// decoding
+	private final Thread decoderThread;
+	private volatile boolean running = true;
+	private volatile boolean decoderIdle = false;
+	/** used on the decoder thread only */
+	private final PushDataDecoder decoder = new PushDataDecoder();
+	/** decoder thread -> event dispatch thread */
+	private final SpscRingBuffer<TradeBatch> decodedBatches = new SpscRingBuffer<TradeBatch>(BATCH_QUEUE_CAPACITY);
+	/** event dispatch thread -> decoder thread */
+	private final SpscRingBuffer<TradeBatch> freeBatches = new SpscRingBuffer<TradeBatch>(BATCH_QUEUE_CAPACITY);
+	private final AtomicBoolean deliveryScheduled = new AtomicBoolean(false);
+	/** replay thread -> decoder thread */
+	private final SpscRingBuffer<String> replayQueue = new SpscRingBuffer<String>(REPLAY_QUEUE_CAPACITY);
+	/** batch filled by the decoder thread */
+	private TradeBatch currentBatch;
+	private final SpscRingBuffer.Consumer<String> messageDecoder = new SpscRingBuffer.Consumer<String>() {
+		@Override
+		public void accept(String message) {
+			decodeMessage(message);
+		}
+	};
+
+	// statistics, each written by one thread only
+	private volatile long messageCount;
+	private volatile long tradeCount;
+	private volatile long decodeErrorCount;
+	private volatile long droppedTradeCount;
+	private volatile long reconnectCount;
+	private volatile long lastMessageTime;
+	private volatile double tradesPerSecond;
+	private long windowStart;
+	private long windowTradeCount;
+
+	/**
+	 * {@code PushShard} constructor, starts the decoder thread.
+	 *
+	 * @param index         the index of the shard
+	 * @param networkClient the {@code NetworkClient} that receives the trades
+	 */
+	public PushShard(int index, NetworkClient networkClient) {
+		this.index = index;
+		this.networkClient = networkClient;
+		this.subscriptionManager = new SubscriptionManager(this);
+		this.windowStart = System.currentTimeMillis();
+
+		this.decoderThread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				runDecoder();
+			}
+		}, "push-decoder-" + index);
+		this.decoderThread.setDaemon(true);
+		this.decoderThread.start();
+	}
+
+	////////////////////////////////////////////////////////
+	//
+	// CONNECTION
+	//
+	////////////////////////////////////////////////////////
+
+	/**
+	 * Connects the shard, without waiting for the connection. A previous
+	 * connection is closed.
+	 *
+	 * @param pushURL the push url
+	 * @return completes with the {@code PushClient} when the connection is open,
+	 *         completes exceptionally when it could not be opened
+	 */
+	public CompletableFuture<PushClient> connect(String pushURL) {
+		stopReconnect();
+		if (this.pushClient != null) {
+			this.pushClient.close();
+		}
+		this.pushURL = pushURL;
+		this.supervised = true;
+		this.reconnectTries = 0;
+		this.connectionLostAt = 0;
+		this.subscriptionManager.connectionClosed();
+		this.pushClient = new PushClient(pushURL, this);
+		return this.pushClient.doConnect();
+	}
+
+	/**
+	 * Disconnects the shard, the connection is not supervised any more.
+	 */
+	public void disconnect() {
+		this.supervised = false;
+		stopReconnect();
+		this.subscriptionManager.connectionClosed();
+		if (this.pushClient != null) {
+			System.out.println("PushShard " + this.index + ": disconnect");
+			this.pushClient.close();
+			this.pushClient = null;
+		}
+	}
+
+	/**
+	 * Disconnects the shard and stops its decoder thread, the shard can not be
+	 * used afterwards.
+	 */
+	public void shutdown() {
+		disconnect();
+		this.running = false;
+		LockSupport.unpark(this.decoderThread);
+	}
+
+	/**
+	 * Invoked by the {@code PushClient} when its connection is open. On the
+	 * event dispatch thread, all symbols of the shard are subscribed again and,
+	 * if the connection was lost before, the {@code NetworkClient} is informed.
+	 *
+	 * @param client the {@code PushClient} that opened the connection
+	 */
+	void clientOpened(PushClient client) {
+		SwingUtilities.invokeLater(new Runnable() {
+			@Override
+			public void run() {
+				if (client != pushClient) {
+					return;
+				}
+				stopReconnect();
+				reconnectTries = 0;
+				subscriptionManager.connectionOpened();
+				networkClient.setStatus("");
+
+				long lostAt = connectionLostAt;
+				connectionLostAt = 0;
+				if (lostAt != 0) {
+					long downtime = System.currentTimeMillis() - lostAt;
+					System.out.println("PushShard " + index + ": reconnected after " + downtime + "ms");
+					networkClient.pushShardReconnected(PushShard.this, downtime);
+				}
+			}
+		});
+	}
+
+	/**
+	 * Invoked by the {@code PushClient} when its connection is closed. On the
+	 * event dispatch thread, a reconnect is scheduled if the connection is
+	 * supervised and the client is still the current one.
+	 *
+	 * @param client the {@code PushClient} whose connection is closed
+	 */
+	void clientClosed(PushClient client) {
+		SwingUtilities.invokeLater(new Runnable() {
+			@Override
+			public void run() {
+				if (client != pushClient) {
+					return;
+				}
+				subscriptionManager.connectionClosed();
+				if (!supervised) {
+					networkClient.setStatus("");
+					return;
+				}
+				if (connectionLostAt == 0) {
+					connectionLostAt = System.currentTimeMillis();
+				}
+				scheduleReconnect();
+			}
+		});
+	}
+
+	/**
+	 * Invoked by the {@code PushClient} when an error occurred.
+	 *
+	 * @param error the error message
+	 */
+	void clientError(String error) {
+		this.networkClient.setStatus("connection error: " + error);
+	}
+
+	/**
+	 * Schedules a reconnect after an exponential backoff with random jitter,
+	 * unless one is scheduled already.
+	 */
+	private void scheduleReconnect() {
+		if (this.reconnectTimer != null && this.reconnectTimer.isRunning()) {
+			return;
+		}
+		long backoff = Math.min(RECONNECT_MAX_DELAY, (long) RECONNECT_BASE_DELAY << Math.min(this.reconnectTries, 16));
+		// jitter spreads the reconnects of many clients after a server outage
+		int delay = (int) ThreadLocalRandom.current().nextLong(backoff / 2, backoff + 1);
+		this.reconnectTries++;
+		this.networkClient.setStatus("connection lost, reconnect in " + (delay / 1000) + "s");
+
+		this.reconnectTimer = new Timer(delay, new ActionListener() {
+			@Override
+			public void actionPerformed(ActionEvent e) {
+				reconnect();
+			}
+		});
+		this.reconnectTimer.setRepeats(false);
+		this.reconnectTimer.start();
+	}
+
+	/**
+	 * Replaces the lost {@code PushClient} by a new one and connects it, a
+	 * websocket client can not be connected twice.
+	 */
+	private void reconnect() {
+		if (!this.supervised) {
+			return;
+		}
+		System.out.println("PushShard " + this.index + ": reconnect, try " + this.reconnectTries);
+		this.reconnectCount++;
+		this.pushClient = new PushClient(this.pushURL, this);
+		this.pushClient.doConnect();
+	}
+
+	/**
+	 * Stops a scheduled reconnect.
+	 */
+	private void stopReconnect() {
+		if (this.reconnectTimer != null) {
+			this.reconnectTimer.stop();
+			this.reconnectTimer = null;
+		}
+	}
+
+	////////////////////////////////////////////////////////
+	//
+	// DECODING
+	//
+	////////////////////////////////////////////////////////
+
+	/**
+	 * Invoked by the {@code PushClient} when it has queued a message, wakes the
+	 * decoder thread up if it is idle. Never blocks the websocket reader thread.
+	 *
+	 * @param client the {@code PushClient} that queued the message
+	 */
+	void clientMessage(PushClient client) {
+		if (this.decoderIdle) {
+			LockSupport.unpark(this.decoderThread);
+		}
+	}
+
+	/**
+	 * Queues a replayed message for the decoder thread, invoked by the replay
+	 * thread of a {@code FeedReplayer}. Never blocks.
+	 *
+	 * @param message the message
+	 * @return true if queued, false if the queue is full
+	 */
+	boolean offerReplayMessage(String message) {
+		if (!this.replayQueue.offer(message)) {
+			return false;
+		}
+		if (this.decoderIdle) {
+			LockSupport.unpark(this.decoderThread);
+		}
+		return true;
+	}
+
+	/**
+	 * Checks if all replayed messages are decoded and their trades are taken by
+	 * the event dispatch thread.
+	 *
+	 * @return true if nothing replayed is pending
+	 */
+	boolean isReplayDrained() {
+		return this.replayQueue.isEmpty() && this.decoderIdle && this.decodedBatches.isEmpty();
+	}
+
+	/**
+	 * Loop of the decoder thread. Decodes the queued messages of the current
+	 * {@code PushClient} and the replayed messages and sleeps while there are
+	 * none. The sleep is limited, so a missed wake up only delays the messages.
+	 * Replayed messages are only decoded while the queue of decoded batches has
+	 * room, otherwise they wait in their queue, which makes the
+	 * {@code FeedReplayer} wait as well.
+	 */
+	private void runDecoder() {
+		while (this.running) {
+			PushClient client = this.pushClient;
+			int amount = client == null ? 0 : decodeMessages(client.getMessageQueue());
+			// only the decoder thread adds batches, so the room can not vanish until the offer
+			boolean replayBlocked = this.decodedBatches.size() >= this.decodedBatches.capacity();
+			if (!replayBlocked) {
+				amount += decodeMessages(this.replayQueue);
+			}
+			updateThroughput(System.currentTimeMillis());
+			if (amount == 0) {
+				this.decoderIdle = true;
+				if (client == null || client.getMessageQueue().isEmpty()) {
+					if (this.replayQueue.isEmpty()) {
+						LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+					} else if (replayBlocked) {
+						LockSupport.parkNanos(this, REPLAY_BACKOFF_NANOS);
+					}
+				}
+				this.decoderIdle = false;
+			}
+		}
+	}
+
+	/**
+	 * Decodes a batch of queued messages and passes the trades to the event
+	 * dispatch thread.
+	 *
+	 * @param queue the queue of messages
+	 * @return the amount of decoded messages
+	 */
+	private int decodeMessages(SpscRingBuffer<String> queue) {
+		if (this.currentBatch == null) {
+			this.currentBatch = this.freeBatches.poll();
+			if (this.currentBatch == null) {
+				this.currentBatch = new TradeBatch();
+			}
+			this.currentBatch.count = 0;
+		}
+
+		int amount = queue.drain(this.messageDecoder, MESSAGES_PER_BATCH);
+		if (amount > 0) {
+			this.messageCount += amount;
+			this.lastMessageTime = System.currentTimeMillis();
+		}
+
+		TradeBatch batch = this.currentBatch;
+		if (batch.count == 0) {
+			return amount;
+		}
+		if (this.decodedBatches.offer(batch)) {
+			this.currentBatch = null;
+			scheduleDelivery();
+		} else {
+			// the event dispatch thread does not keep up with the received messages
+			this.droppedTradeCount += batch.count;
+			batch.count = 0;
+		}
+		return amount;
+	}
+
+	/**
+	 * Decodes a message into the current batch.
+	 *
+	 * @param message the message
+	 */
+	private void decodeMessage(String message) {
+		try {
+			PushDataDecoder.MessageType type = this.decoder.decode(message);
+			if (type == PushDataDecoder.MessageType.Trade) {
+				int count = this.decoder.getCount();
+				for (int i = 0; i < count; i++) {
+					this.currentBatch.add(this.decoder.getSymbol(i), this.decoder.getPrice(i),
+							this.decoder.getTime(i), this.decoder.getVolume(i));
+				}
+				this.tradeCount += count;
+			} else if (type == PushDataDecoder.MessageType.Error) {
+				System.err.println("PushShard " + this.index + ": error message " + message);
+			}
+		} catch (Exception ex) {
+			this.decodeErrorCount++;
+			System.err.println("PushShard " + this.index + ": " + ex.getMessage());
+		}
+	}
+
+	/**
+	 * Schedules the delivery of the decoded batches on the event dispatch
+	 * thread, if not already scheduled.
+	 */
+	private void scheduleDelivery() {
+		if (this.deliveryScheduled.compareAndSet(false, true)) {
+			SwingUtilities.invokeLater(new Runnable() {
+				@Override
+				public void run() {
+					deliverTrades();
+				}
+			});
+		}
+	}
+
+	/**
+	 * Passes the decoded trades to the {@code NetworkClient} on the event
+	 * dispatch thread and returns the batches to the decoder thread. Schedules
+	 * itself again if more batches are queued, so that the event dispatch
+	 * thread stays responsive.
+	 */
+	private void deliverTrades() {
+		this.deliveryScheduled.set(false);
+		this.decodedBatches.drain(new SpscRingBuffer.Consumer<TradeBatch>() {
+			@Override
+			public void accept(TradeBatch batch) {
+				for (int i = 0; i < batch.count; i++) {
+					networkClient.onPushTrade(batch.symbols[i], batch.prices[i], batch.times[i], batch.volumes[i]);
+				}
+				batch.count = 0;
+				// if the pool is full, the batch is left to the garbage collector
+				freeBatches.offer(batch);
+			}
+		}, BATCHES_PER_DELIVERY);
+
+		if (!this.decodedBatches.isEmpty()) {
+			scheduleDelivery();
+		}
+	}
+
+	/**
+	 * Computes the trades per second about once a second, on the decoder
+	 * thread.
+	 *
+	 * @param now the current time in milliseconds
+	 */
+	private void updateThroughput(long now) {
+		long elapsed = now - this.windowStart;
+		if (elapsed >= 1000) {
+			long trades = this.tradeCount;
+			this.tradesPerSecond = (trades - this.windowTradeCount) * 1000.0 / elapsed;
+			this.windowStart = now;
+			this.windowTradeCount = trades;
+		}
+	}
+
+	////////////////////////////////////////////////////////
+	//
+	// GETTERs
+	//
+	////////////////////////////////////////////////////////
+
+	/**
+	 * Gets the index of the shard.
+	 *
+	 * @return the index
+	 */
+	public int getIndex() {
+		return this.index;
+	}
+
+	/**
+	 * Gets the current push client.
+	 *
+	 * @return the push client, null if disconnected
+	 */
+	public PushClient getPushClient() {
+		return this.pushClient;
+	}
+
+	/**
+	 * Gets the {@code NetworkClient} of the shard.
+	 *
+	 * @return the {@code NetworkClient}
+	 */
+	NetworkClient getNetworkClient() {
+		return this.networkClient;
+	}
+
+	/**
+	 * Gets the manager of the subscriptions of the shard.
+	 *
+	 * @return the {@code SubscriptionManager}
+	 */
+	public SubscriptionManager getSubscriptionManager() {
+		return this.subscriptionManager;
+	}
+
+	/**
+	 * Checks if the connection of the shard is open.
+	 *
+	 * @return true if connected
+	 */
+	public boolean isConnected() {
+		PushClient client = this.pushClient;
+		return client != null && client.isConnected();
+	}
+
+	/**
+	 * Gets the amount of messages received since the shard was created.
+	 *
+	 * @return the amount of messages
+	 */
+	public long getMessageCount() {
+		return this.messageCount;
+	}
+
+	/**
+	 * Gets the amount of trades received since the shard was created.
+	 *
+	 * @return the amount of trades
+	 */
+	public long getTradeCount() {
+		return this.tradeCount;
+	}
+
+	/**
+	 * Gets the amount of messages that could not be decoded.
+	 *
+	 * @return the amount of decode errors
+	 */
+	public long getDecodeErrorCount() {
+		return this.decodeErrorCount;
+	}
+
+	/**
+	 * Gets the amount of decoded trades dropped because the event dispatch
+	 * thread did not keep up.
+	 *
+	 * @return the amount of dropped trades
+	 */
+	public long getDroppedTradeCount() {
+		return this.droppedTradeCount;
+	}
+
+	/**
+	 * Gets the amount of messages the current {@code PushClient} dropped because
+	 * its queue was full.
+	 *
+	 * @return the amount of dropped messages
+	 */
+	public long getDroppedMessageCount() {
+		PushClient client = this.pushClient;
+		return client == null ? 0 : client.getDropCount();
+	}
+
+	/**
+	 * Gets the amount of reconnects since the shard was created.
+	 *
+	 * @return the amount of reconnects
+	 */
+	public long getReconnectCount() {
+		return this.reconnectCount;
+	}
+
+	/**
+	 * Gets the time the last message was received.
+	 *
+	 * @return the Unix timestamp in milliseconds, 0 if none was received
+	 */
+	public long getLastMessageTime() {
+		return this.lastMessageTime;
+	}
+
+	/**
+	 * Gets the trades per second, measured over about the last second.
+	 *
+	 * @return the trades per second
+	 */
+	public double getTradesPerSecond() {
+		return this.tradesPerSecond;
+	}
+}
@@ -1,6 +1,14 @@
 package stocker.controller.inputoutput;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
 import com.google.gson.*;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
 
 import stocker.model.externalclasses.PullData;
 import stocker.model.externalclasses.PullQuoteData;
@@ -35,6 +43,119 @@ public class Serializer {
 		return d;
 	}
 
+	/**
+	 * Deserializes a JSON stream to a {@code PullData} object. The candle columns
+	 * are read straight into primitive arrays, sized by the expected amount of
+	 * candles at first and by the length of the first column for the other
+	 * columns, the timestamps are converted to milliseconds in place. Columns are
+	 * not trimmed, the amount of candles is passed on to the {@code PullData}
+	 * object instead.
+	 * 
+	 * @param in           the JSON stream
+	 * @param expectedSize the expected amount of candles
+	 * @return the {@code PullData} object
+	 * @throws IOException when the stream cannot be read or is malformed
+	 */
+	public PullData streamToPullData(InputStream in, int expectedSize) throws IOException {
+		String status = null;
+		double[] c = null, h = null, l = null, o = null, v = null;
+		long[] t = null;
+		int size = -1;
+		int[] filled = new int[6];
+
+		JsonReader reader = new JsonReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+		reader.beginObject();
+		while (reader.hasNext()) {
+			String name = reader.nextName();
+			if (name.equals("s")) {
+				status = reader.nextString();
+				continue;
+			}
+			if (reader.peek() != JsonToken.BEGIN_ARRAY) {
+				reader.skipValue();
+				continue;
+			}
+			int capacity = size >= 0 ? size : Math.max(16, expectedSize);
+			switch (name) {
+			case "c":
+				c = readDoubleColumn(reader, capacity, filled, 0);
+				size = filled[0];
+				break;
+			case "h":
+				h = readDoubleColumn(reader, capacity, filled, 1);
+				size = filled[1];
+				break;
+			case "l":
+				l = readDoubleColumn(reader, capacity, filled, 2);
+				size = filled[2];
+				break;
+			case "o":
+				o = readDoubleColumn(reader, capacity, filled, 3);
+				size = filled[3];
+				break;
+			case "v":
+				v = readDoubleColumn(reader, capacity, filled, 4);
+				size = filled[4];
+				break;
+			case "t":
+				t = readTimeColumn(reader, capacity, filled, 5);
+				size = filled[5];
+				break;
+			default:
+				reader.skipValue();
+			}
+		}
+		reader.endObject();
+
+		if ("ok".equals(status) && (c == null || h == null || l == null || o == null || t == null || v == null
+				|| filled[0] != size || filled[1] != size || filled[2] != size || filled[3] != size
+				|| filled[4] != size || filled[5] != size)) {
+			throw new IOException("streamToPullData(): incomplete candle columns");
+		}
+		return new PullData(status, c, h, l, o, t, v, Math.max(size, 0));
+	}
+
+	/**
+	 * Reads a JSON array of numbers into a primitive array, only copies if the
+	 * capacity is exceeded. The array may be longer than the amount of numbers,
+	 * which is stored in filled[index].
+	 */
+	private double[] readDoubleColumn(JsonReader reader, int capacity, int[] filled, int index)
+			throws IOException {
+		double[] column = new double[capacity];
+		int n = 0;
+		reader.beginArray();
+		while (reader.hasNext()) {
+			if (n == column.length) {
+				column = Arrays.copyOf(column, Math.max(16, column.length * 2));
+			}
+			column[n++] = reader.nextDouble();
+		}
+		reader.endArray();
+		filled[index] = n;
+		return column;
+	}
+
+	/**
+	 * Reads a JSON array of Unix timestamps in seconds into a primitive array of
+	 * milliseconds, only copies if the capacity is exceeded. The array may be
+	 * longer than the amount of timestamps, which is stored in filled[index].
+	 */
+	private long[] readTimeColumn(JsonReader reader, int capacity, int[] filled, int index) throws IOException {
+		long[] column = new long[capacity];
+		int n = 0;
+		reader.beginArray();
+		while (reader.hasNext()) {
+			if (n == column.length) {
+				column = Arrays.copyOf(column, Math.max(16, column.length * 2));
+			}
+			column[n++] = reader.nextLong() * 1000L;
+		}
+		reader.endArray();
+		filled[index] = n;
+		return column;
+	}
+
 	/**
 	 * Deserializes a JSON {@code String} to a {@code PullSearchData} object
 	 * 
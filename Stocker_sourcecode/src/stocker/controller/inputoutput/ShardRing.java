@@ -0,0 +1,87 @@
+package stocker.controller.inputoutput;
+
+import java.util.Arrays;
+
+/**
+ * Consistent hash ring that assigns symbols to shards. Every shard is placed on
+ * the ring with {@link #VIRTUAL_NODES} points, a symbol belongs to the shard of
+ * the next point on the ring. The virtual nodes spread the symbols evenly, and
+ * when the amount of shards changes, only the symbols next to the added or
+ * removed points move to another shard.
+ *
+ * @author Christoph Kaplan
+ *
+ */
+public class ShardRing {
+
+	/** amount of points per shard on the ring */
+	public static final int VIRTUAL_NODES = 64;
+
+	/** hashes of the points, sorted */
+	private final int[] points;
+	/** shard of each point */
+	private final int[] shards;
+
+	/**
+	 * {@code ShardRing} constructor
+	 *
+	 * @param shardCount the amount of shards
+	 */
+	public ShardRing(int shardCount) {
+		int count = Math.max(1, shardCount);
+		long[] ring = new long[count * VIRTUAL_NODES];
+		for (int shard = 0; shard < count; shard++) {
+			for (int v = 0; v < VIRTUAL_NODES; v++) {
+				int hash = hash("shard#" + shard + "#" + v);
+				// sorts by hash, keeps the shard in the lower bits
+				ring[shard * VIRTUAL_NODES + v] = ((long) hash << 32) | shard;
+			}
+		}
+		Arrays.sort(ring);
+		this.points = new int[ring.length];
+		this.shards = new int[ring.length];
+		for (int i = 0; i < ring.length; i++) {
+			this.points[i] = (int) (ring[i] >> 32);
+			this.shards[i] = (int) ring[i];
+		}
+	}
+
+	/**
+	 * Gets the shard of a symbol.
+	 *
+	 * @param symbol the symbol
+	 * @return the index of the shard
+	 */
+	public int getShard(String symbol) {
+		int i = Arrays.binarySearch(this.points, hash(symbol));
+		if (i < 0) {
+			i = -i - 1;
+		}
+		if (i == this.points.length) {
+			// wraps around
+			i = 0;
+		}
+		return this.shards[i];
+	}
+
+	/**
+	 * Hashes a {@code String}, FNV-1a with a final avalanche step so that
+	 * similar symbols are spread over the whole ring.
+	 *
+	 * @param s the {@code String}
+	 * @return the hash
+	 */
+	private static int hash(String s) {
+		int h = 0x811c9dc5;
+		for (int i = 0; i < s.length(); i++) {
+			h ^= s.charAt(i);
+			h *= 0x01000193;
+		}
+		h ^= h >>> 16;
+		h *= 0x85ebca6b;
+		h ^= h >>> 13;
+		h *= 0xc2b2ae35;
+		h ^= h >>> 16;
+		return h;
+	}
+}
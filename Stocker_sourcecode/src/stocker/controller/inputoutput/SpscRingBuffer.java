@@ -0,0 +1,143 @@
+package stocker.controller.inputoutput;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded lock-free ring buffer for exactly one producer thread and exactly one
+ * consumer thread. The producer never blocks, {@link #offer(Object)} returns
+ * false if the buffer is full. The consumer takes the elements in batches with
+ * {@link #drain(Consumer, int)}. The capacity is rounded up to a power of two.
+ *
+ * @author Christoph Kaplan
+ *
+ * @param <E> the type of the elements
+ */
+public class SpscRingBuffer<E> {
+
+	/**
+	 * Receives the elements taken by {@link SpscRingBuffer#drain}.
+	 *
+	 * @param <E> the type of the elements
+	 */
+	public interface Consumer<E> {
+		/**
+		 * Invoked for every taken element
+		 *
+		 * @param element the element
+		 */
+		void accept(E element);
+	}
+
+	private final Object[] buffer;
+	private final int mask;
+
+	/** index of the next element to take, written by the consumer only */
+	private final AtomicLong head = new AtomicLong();
+	/** index of the next free slot, written by the producer only */
+	private final AtomicLong tail = new AtomicLong();
+	/** last head seen by the producer, avoids reading head with every offer */
+	private long headCache;
+
+	/**
+	 * {@code SpscRingBuffer} constructor
+	 *
+	 * @param capacity the minimum capacity
+	 */
+	public SpscRingBuffer(int capacity) {
+		int size = 1;
+		while (size < capacity) {
+			size <<= 1;
+		}
+		this.buffer = new Object[size];
+		this.mask = size - 1;
+	}
+
+	/**
+	 * Adds an element, may only be called by the producer thread.
+	 *
+	 * @param element the element
+	 * @return true if added, false if the buffer is full
+	 */
+	public boolean offer(E element) {
+		long t = tail.get();
+		if (t - headCache >= buffer.length) {
+			headCache = head.get();
+			if (t - headCache >= buffer.length) {
+				return false;
+			}
+		}
+		buffer[(int) (t & mask)] = element;
+		// publishes the element to the consumer
+		tail.lazySet(t + 1);
+		return true;
+	}
+
+	/**
+	 * Takes up to a limit of elements, may only be called by the consumer
+	 * thread.
+	 *
+	 * @param consumer receives the taken elements
+	 * @param limit    the maximum amount of elements to take
+	 * @return the amount of taken elements
+	 */
+	@SuppressWarnings("unchecked")
+	public int drain(Consumer<E> consumer, int limit) {
+		long h = head.get();
+		long available = tail.get() - h;
+		int amount = (int) Math.min(available, limit);
+		for (int i = 0; i < amount; i++) {
+			int index = (int) ((h + i) & mask);
+			E element = (E) buffer[index];
+			buffer[index] = null;
+			// frees the slot before the element is processed
+			head.lazySet(h + i + 1);
+			consumer.accept(element);
+		}
+		return amount;
+	}
+
+	/**
+	 * Takes a single element, may only be called by the consumer thread.
+	 *
+	 * @return the element, null if the buffer is empty
+	 */
+	@SuppressWarnings("unchecked")
+	public E poll() {
+		long h = head.get();
+		if (tail.get() == h) {
+			return null;
+		}
+		int index = (int) (h & mask);
+		E element = (E) buffer[index];
+		buffer[index] = null;
+		head.lazySet(h + 1);
+		return element;
+	}
+
+	/**
+	 * Checks if the buffer is empty.
+	 *
+	 * @return true if empty
+	 */
+	public boolean isEmpty() {
+		return tail.get() == head.get();
+	}
+
+	/**
+	 * Gets the amount of elements in the buffer.
+	 *
+	 * @return the amount of elements
+	 */
+	public int size() {
+		return (int) (tail.get() - head.get());
+	}
+
+	/**
+	 * Gets the capacity.
+	 *
+	 * @return the capacity
+	 */
+	public int capacity() {
+		return buffer.length;
+	}
+}
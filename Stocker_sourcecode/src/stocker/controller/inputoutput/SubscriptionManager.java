@@ -0,0 +1,204 @@
+package stocker.controller.inputoutput;
+
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+
+import javax.swing.Timer;
+
+import stocker.model.externalclasses.PushRequest;
+
+/**
+ * Keeps the subscriptions of the {@code PushClient} of a {@code PushShard} in
+ * line with the symbols of the shard the database needs. The desired symbols
+ * are compared with the symbols subscribed on the current connection, only the
+ * differences are sent. Changes
+ * are collected and sent in batches of at most {@link #MAX_MESSAGES_PER_BATCH}
+ * control messages every {@link #BATCH_DELAY} milliseconds, so that a large
+ * watchlist does not flood the server. A symbol that is subscribed and
+ * unsubscribed again before the next batch causes no message at all.
+ *
+ * Used on the event dispatch thread only.
+ *
+ * @author Christoph Kaplan
+ *
+ */
+public class SubscriptionManager {
+
+	/** delay between two batches in milliseconds */
+	public static final int BATCH_DELAY = 200;
+	/** maximum amount of control messages per batch */
+	public static final int MAX_MESSAGES_PER_BATCH = 10;
+
+	private PushShard pushShard;
+	/** symbols the database needs */
+	private LinkedHashSet<String> desired = new LinkedHashSet<String>();
+	/** symbols subscribed on the current connection */
+	private LinkedHashSet<String> active = new LinkedHashSet<String>();
+	private Timer batchTimer;
+	private long messageCount;
+
+	/**
+	 * {@code SubscriptionManager} constructor
+	 *
+	 * @param pushShard the {@code PushShard} whose {@code PushClient} sends the
+	 *                  messages
+	 */
+	public SubscriptionManager(PushShard pushShard) {
+		this.pushShard = pushShard;
+		this.batchTimer = new Timer(BATCH_DELAY, new ActionListener() {
+			@Override
+			public void actionPerformed(ActionEvent e) {
+				sendBatch();
+			}
+		});
+	}
+
+	/**
+	 * Adds a symbol to the desired symbols.
+	 *
+	 * @param symbol the symbol
+	 */
+	public void subscribe(String symbol) {
+		if (this.desired.add(symbol)) {
+			scheduleBatch();
+		}
+	}
+
+	/**
+	 * Removes a symbol from the desired symbols.
+	 *
+	 * @param symbol the symbol
+	 */
+	public void unsubscribe(String symbol) {
+		if (this.desired.remove(symbol)) {
+			scheduleBatch();
+		}
+	}
+
+	/**
+	 * Invoked when a new connection is open, nothing is subscribed on it yet.
+	 */
+	public void connectionOpened() {
+		this.active.clear();
+		scheduleBatch();
+	}
+
+	/**
+	 * Invoked when the connection is closed, its subscriptions are lost.
+	 */
+	public void connectionClosed() {
+		this.active.clear();
+		this.batchTimer.stop();
+	}
+
+	////////////////////////////////////////////////////////
+	//
+	// GETTERs
+	//
+	////////////////////////////////////////////////////////
+
+	/**
+	 * Checks if a symbol is desired.
+	 *
+	 * @param symbol the symbol
+	 * @return true if the symbol is desired
+	 */
+	public boolean isDesired(String symbol) {
+		return this.desired.contains(symbol);
+	}
+
+	/**
+	 * Gets the desired symbols.
+	 *
+	 * @return a list of the desired symbols
+	 */
+	public ArrayList<String> getDesiredSymbols() {
+		return new ArrayList<String>(this.desired);
+	}
+
+	/**
+	 * Gets the amount of desired symbols.
+	 *
+	 * @return the amount of desired symbols
+	 */
+	public int getDesiredCount() {
+		return this.desired.size();
+	}
+
+	/**
+	 * Gets the amount of symbols subscribed on the current connection.
+	 *
+	 * @return the amount of subscribed symbols
+	 */
+	public int getActiveCount() {
+		return this.active.size();
+	}
+
+	/**
+	 * Gets the amount of control messages sent since the manager was created.
+	 *
+	 * @return the amount of sent control messages
+	 */
+	public long getMessageCount() {
+		return this.messageCount;
+	}
+
+	////////////////////////////////////////////////////////
+	//
+	// BATCHING
+	//
+	////////////////////////////////////////////////////////
+
+	/**
+	 * Starts the batch timer, unless running already. The first batch is sent
+	 * after {@link #BATCH_DELAY}, changes made in the meantime are collected.
+	 */
+	private void scheduleBatch() {
+		if (!this.batchTimer.isRunning()) {
+			this.batchTimer.start();
+		}
+	}
+
+	/**
+	 * Sends the next batch of differences between the desired and the active
+	 * symbols, unsubscriptions first. Stops the timer when nothing is left or
+	 * no connection is open.
+	 */
+	private void sendBatch() {
+		PushClient client = this.pushShard.getPushClient();
+		NetworkClient networkClient = this.pushShard.getNetworkClient();
+		if (client == null || !client.isConnected()) {
+			this.batchTimer.stop();
+			return;
+		}
+
+		int sent = 0;
+		Iterator<String> it = this.active.iterator();
+		while (it.hasNext() && sent < MAX_MESSAGES_PER_BATCH) {
+			String symbol = it.next();
+			if (!this.desired.contains(symbol)) {
+				client.doPushRequest(networkClient.pushRequestToJson(new PushRequest(false, symbol)));
+				it.remove();
+				sent++;
+			}
+		}
+		for (String symbol : this.desired) {
+			if (sent >= MAX_MESSAGES_PER_BATCH) {
+				break;
+			}
+			if (this.active.add(symbol)) {
+				client.doPushRequest(networkClient.pushRequestToJson(new PushRequest(true, symbol)));
+				sent++;
+			}
+		}
+		this.messageCount += sent;
+
+		if (sent < MAX_MESSAGES_PER_BATCH) {
+			// all differences sent
+			this.batchTimer.stop();
+		}
+	}
+}
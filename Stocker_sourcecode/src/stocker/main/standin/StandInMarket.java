@@ -0,0 +1,297 @@
+package stocker.main.standin;
+
+import java.util.HashMap;
+import java.util.Locale;
+
+/**
+ * Deterministic market of the {@code StandInServer}. It consists of a
+ * configurable amount of symbols, {@code S0000}, {@code S0001} and so on. The
+ * price of a symbol is a function of the symbol and the time only, so candles,
+ * quotes and trades of the same symbol and time always agree, and every run
+ * produces the same data. The answers are written in the JSON structure of the
+ * finnhub.io data provider, as expected by {@code PullData},
+ * {@code PullQuoteData}, {@code PullSearchData} and {@code PushData}.
+ *
+ * @author Christoph Kaplan
+ */
+public class StandInMarket {
+
+	/** maximum amount of candles in one answer */
+	public static final int MAX_CANDLES = 5000;
+	/** maximum amount of entries in a search answer */
+	public static final int MAX_SEARCH_RESULTS = 20;
+
+	private static final long DAY = 24L * 60L * 60L;
+
+	private final String[] symbols;
+	private final HashMap<String, Integer> symbolIndex = new HashMap<String, Integer>();
+
+	/**
+	 * {@code StandInMarket} constructor
+	 *
+	 * @param symbolCount the amount of symbols
+	 */
+	public StandInMarket(int symbolCount) {
+		this.symbols = new String[Math.max(1, symbolCount)];
+		for (int i = 0; i < this.symbols.length; i++) {
+			this.symbols[i] = String.format(Locale.ROOT, "S%04d", i);
+			this.symbolIndex.put(this.symbols[i], i);
+		}
+	}
+
+	////////////////////////////////////////////////////////
+	//
+	// GETTERs
+	//
+	////////////////////////////////////////////////////////
+
+	/**
+	 * Gets the amount of symbols.
+	 *
+	 * @return the amount of symbols
+	 */
+	public int getSymbolCount() {
+		return this.symbols.length;
+	}
+
+	/**
+	 * Gets a symbol.
+	 *
+	 * @param index the index of the symbol
+	 * @return the symbol
+	 */
+	public String getSymbol(int index) {
+		return this.symbols[index];
+	}
+
+	/**
+	 * Checks if a symbol is part of the market.
+	 *
+	 * @param symbol the symbol
+	 * @return true if the symbol is known
+	 */
+	public boolean contains(String symbol) {
+		return this.symbolIndex.containsKey(symbol);
+	}
+
+	/**
+	 * Gets the price of a symbol at a certain time.
+	 *
+	 * @param symbol the symbol, must be known
+	 * @param time   the Unix timestamp in milliseconds
+	 * @return the price, rounded to cents
+	 */
+	public double getPrice(String symbol, long time) {
+		return getPrice(this.symbolIndex.get(symbol), time);
+	}
+
+	/**
+	 * Gets the volume of a trade of a symbol at a certain time.
+	 *
+	 * @param symbol the symbol, must be known
+	 * @param time   the Unix timestamp in milliseconds
+	 * @return the volume
+	 */
+	public double getVolume(String symbol, long time) {
+		return 1 + (mix(this.symbolIndex.get(symbol) * 31L + time) & 0x3ff);
+	}
+
+	////////////////////////////////////////////////////////
+	//
+	// JSON ANSWERs
+	//
+	////////////////////////////////////////////////////////
+
+	/**
+	 * Writes the candles of a symbol, like the "/stock/candle" end point.
+	 *
+	 * @param symbol     the symbol
+	 * @param resolution the resolution code of a {@code TimeInterval}
+	 * @param from       the Unix timestamp of the first candle in seconds
+	 * @param to         the Unix timestamp of the last candle in seconds
+	 * @return the JSON answer
+	 */
+	public String candleJson(String symbol, String resolution, long from, long to) {
+		Integer index = this.symbolIndex.get(symbol);
+		long step = getResolutionSeconds(resolution);
+		if (index == null || step <= 0 || to < from) {
+			return "{\"s\":\"no_data\"}";
+		}
+		long first = ((from + step - 1) / step) * step;
+		int count = (int) Math.min(MAX_CANDLES, (to - first) / step + 1);
+		if (count <= 0) {
+			return "{\"s\":\"no_data\"}";
+		}
+		// the latest candles are kept if the window is too large
+		first = first + ((to - first) / step + 1 - count) * step;
+
+		StringBuilder c = new StringBuilder(count * 8);
+		StringBuilder h = new StringBuilder(count * 8);
+		StringBuilder l = new StringBuilder(count * 8);
+		StringBuilder o = new StringBuilder(count * 8);
+		StringBuilder t = new StringBuilder(count * 11);
+		StringBuilder v = new StringBuilder(count * 6);
+		for (int i = 0; i < count; i++) {
+			long start = first + i * step;
+			double open = getPrice(index, start * 1000L);
+			double close = getPrice(index, (start + step) * 1000L - 1);
+			double high = Math.max(open, close);
+			double low = Math.min(open, close);
+			// a few samples within the candle
+			for (int k = 1; k < 4; k++) {
+				double p = getPrice(index, (start * 1000L) + (step * 1000L * k) / 4);
+				high = Math.max(high, p);
+				low = Math.min(low, p);
+			}
+			if (i > 0) {
+				c.append(',');
+				h.append(',');
+				l.append(',');
+				o.append(',');
+				t.append(',');
+				v.append(',');
+			}
+			c.append(close);
+			h.append(high);
+			l.append(low);
+			o.append(open);
+			t.append(start);
+			v.append(100 + (mix(index * 7919L + start) & 0xffff));
+		}
+		return "{\"c\":[" + c + "],\"h\":[" + h + "],\"l\":[" + l + "],\"o\":[" + o + "],\"s\":\"ok\",\"t\":[" + t
+				+ "],\"v\":[" + v + "]}";
+	}
+
+	/**
+	 * Writes the quote of a symbol, like the "/quote" end point. Unknown symbols
+	 * are answered with zeros, as the data provider does.
+	 *
+	 * @param symbol the symbol
+	 * @param now    the current Unix timestamp in milliseconds
+	 * @return the JSON answer
+	 */
+	public String quoteJson(String symbol, long now) {
+		Integer index = this.symbolIndex.get(symbol);
+		if (index == null) {
+			return "{\"c\":0,\"d\":null,\"dp\":null,\"h\":0,\"l\":0,\"o\":0,\"pc\":0,\"t\":0}";
+		}
+		long dayStart = (now / 1000L / DAY) * DAY * 1000L;
+		double current = getPrice(index, now);
+		double open = getPrice(index, dayStart);
+		double previousClose = getPrice(index, dayStart - 1);
+		double high = Math.max(open, current);
+		double low = Math.min(open, current);
+		for (long time = dayStart; time < now; time += 15L * 60L * 1000L) {
+			double p = getPrice(index, time);
+			high = Math.max(high, p);
+			low = Math.min(low, p);
+		}
+		double change = round(current - previousClose);
+		double changePercent = round(change * 100.0 / previousClose);
+		return "{\"c\":" + current + ",\"d\":" + change + ",\"dp\":" + changePercent + ",\"h\":" + high + ",\"l\":"
+				+ low + ",\"o\":" + open + ",\"pc\":" + previousClose + ",\"t\":" + (now / 1000L) + "}";
+	}
+
+	/**
+	 * Writes the symbols matching a search word, like the "/search" end point.
+	 *
+	 * @param query the search word
+	 * @return the JSON answer
+	 */
+	public String searchJson(String query) {
+		String q = query == null ? "" : query.trim().toUpperCase(Locale.ROOT);
+		StringBuilder result = new StringBuilder();
+		int count = 0;
+		for (int i = 0; i < this.symbols.length && count < MAX_SEARCH_RESULTS; i++) {
+			String description = getDescription(i);
+			if (!q.isEmpty() && !this.symbols[i].contains(q) && !description.toUpperCase(Locale.ROOT).contains(q)) {
+				continue;
+			}
+			if (count > 0) {
+				result.append(',');
+			}
+			result.append("{\"description\":\"").append(description).append("\",\"displaySymbol\":\"")
+					.append(this.symbols[i]).append("\",\"symbol\":\"").append(this.symbols[i])
+					.append("\",\"type\":\"Common Stock\"}");
+			count++;
+		}
+		return "{\"count\":" + count + ",\"result\":[" + result + "]}";
+	}
+
+	/**
+	 * Appends a trade of a symbol, an entry of the "data" array of a trade
+	 * message.
+	 *
+	 * @param out    the message
+	 * @param symbol the symbol, must be known
+	 * @param time   the Unix timestamp in milliseconds
+	 */
+	public void appendTrade(StringBuilder out, String symbol, long time) {
+		out.append("{\"c\":null,\"p\":").append(getPrice(symbol, time)).append(",\"s\":\"").append(symbol)
+				.append("\",\"t\":").append(time).append(",\"v\":").append(getVolume(symbol, time)).append('}');
+	}
+
+	////////////////////////////////////////////////////////
+	//
+	// HELPERs
+	//
+	////////////////////////////////////////////////////////
+
+	/**
+	 * Gets the description of a symbol.
+	 */
+	private String getDescription(int index) {
+		return "STAND-IN COMPANY " + index;
+	}
+
+	/**
+	 * Computes the price from a slow wave, a faster wave and noise, around a
+	 * base price that depends on the symbol.
+	 */
+	private double getPrice(int index, long time) {
+		long seed = mix(index + 1L);
+		double base = 20 + (seed & 0x1ff);
+		double phase = (seed >>> 20 & 0xffff) / 65536.0 * 2 * Math.PI;
+		double days = time / (DAY * 1000.0);
+		double slow = 0.08 * Math.sin(days / (3 + index % 7) * 2 * Math.PI + phase);
+		double fast = 0.01 * Math.sin(days * 24 * 2 * Math.PI + phase);
+		double noise = 0.002 * ((mix(seed + time / 100L) & 0xffff) / 32768.0 - 1);
+		return round(base * (1 + slow + fast + noise));
+	}
+
+	/**
+	 * Gets the length of a resolution code in seconds.
+	 */
+	private static long getResolutionSeconds(String resolution) {
+		if (resolution == null) {
+			return -1;
+		}
+		switch (resolution) {
+		case "D":
+			return DAY;
+		case "W":
+			return 7 * DAY;
+		case "M":
+			return 30 * DAY;
+		default:
+			try {
+				return Long.parseLong(resolution) * 60L;
+			} catch (NumberFormatException e) {
+				return -1;
+			}
+		}
+	}
+
+	private static double round(double value) {
+		return Math.round(value * 100.0) / 100.0;
+	}
+
+	/**
+	 * Mixes the bits of a value (SplitMix64 finalizer).
+	 */
+	private static long mix(long z) {
+		z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+		z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+		return z ^ (z >>> 31);
+	}
+}
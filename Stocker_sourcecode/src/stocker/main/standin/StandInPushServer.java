@@ -0,0 +1,201 @@
+package stocker.main.standin;
+
+import java.net.InetSocketAddress;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.java_websocket.WebSocket;
+import org.java_websocket.handshake.ClientHandshake;
+import org.java_websocket.server.WebSocketServer;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+/**
+ * Websocket part of the {@code StandInServer}. Accepts the subscribe and
+ * unsubscribe messages of a {@code PushClient} and sends trade messages of the
+ * subscribed symbols of every connection, in the structure of the finnhub.io
+ * data provider. The trades are produced by {@link #tick(long)}, which the
+ * {@code StandInServer} invokes periodically.
+ *
+ * @author Christoph Kaplan
+ *
+ */
+class StandInPushServer extends WebSocketServer {
+
+	/** maximum amount of trades in one trade message */
+	public static final int TRADES_PER_MESSAGE = 16;
+	/** time without trades after which a ping message is sent, in milliseconds */
+	public static final long PING_INTERVAL = 5000;
+
+	private final StandInServer server;
+	private final ConcurrentHashMap<WebSocket, Connection> connections = new ConcurrentHashMap<WebSocket, Connection>();
+	private final Random random = new Random();
+	private final Gson gson = new Gson();
+
+	/**
+	 * Subscriptions and trade state of one connection.
+	 */
+	private static class Connection {
+		private final CopyOnWriteArrayList<String> symbols = new CopyOnWriteArrayList<String>();
+		/** trades due but not sent yet */
+		private double due;
+		/** next symbol to trade, round robin */
+		private int cursor;
+		private long lastSendTime = System.currentTimeMillis();
+	}
+
+	/**
+	 * {@code StandInPushServer} constructor
+	 *
+	 * @param server the {@code StandInServer} providing market and settings
+	 * @param port   the port to listen on
+	 */
+	StandInPushServer(StandInServer server, int port) {
+		super(new InetSocketAddress(port));
+		this.server = server;
+		setReuseAddr(true);
+	}
+
+	@Override
+	public void onStart() {
+		System.out.println("stand-in push server listening on port " + getPort());
+	}
+
+	@Override
+	public void onOpen(WebSocket conn, ClientHandshake handshake) {
+		this.connections.put(conn, new Connection());
+	}
+
+	@Override
+	public void onClose(WebSocket conn, int code, String reason, boolean remote) {
+		this.connections.remove(conn);
+	}
+
+	@Override
+	public void onError(WebSocket conn, Exception ex) {
+		System.err.println("stand-in push server: " + ex.getMessage());
+	}
+
+	/**
+	 * Handles a subscribe or unsubscribe message. Unknown symbols are ignored,
+	 * as the data provider does, malformed messages are answered with an error
+	 * message.
+	 */
+	@Override
+	public void onMessage(WebSocket conn, String message) {
+		Connection connection = this.connections.get(conn);
+		if (connection == null) {
+			return;
+		}
+		String type = null;
+		String symbol = null;
+		try {
+			JsonObject request = this.gson.fromJson(message, JsonObject.class);
+			JsonElement typeElement = request.get("type");
+			JsonElement symbolElement = request.get("symbol");
+			type = typeElement == null ? null : typeElement.getAsString();
+			symbol = symbolElement == null ? null : symbolElement.getAsString();
+		} catch (RuntimeException e) {
+			// handled below
+		}
+		if ("subscribe".equals(type) && symbol != null) {
+			if (this.server.getMarket().contains(symbol)) {
+				connection.symbols.addIfAbsent(symbol);
+			}
+		} else if ("unsubscribe".equals(type) && symbol != null) {
+			connection.symbols.remove(symbol);
+		} else {
+			conn.send("{\"msg\":\"Invalid message\",\"type\":\"error\"}");
+		}
+	}
+
+	/**
+	 * Sends the trades due since the last tick on every connection, and drops
+	 * connections if disconnects are injected.
+	 *
+	 * @param elapsed the time since the last tick in milliseconds
+	 */
+	void tick(long elapsed) {
+		StandInMarket market = this.server.getMarket();
+		double tradesPerTick = this.server.getTickRate() * elapsed / 1000.0;
+		double disconnectChance = this.server.getDisconnectRate() * elapsed / 1000.0;
+		long now = System.currentTimeMillis();
+
+		for (WebSocket conn : this.connections.keySet()) {
+			Connection connection = this.connections.get(conn);
+			if (connection == null || !conn.isOpen()) {
+				continue;
+			}
+			if (disconnectChance > 0 && this.random.nextDouble() < disconnectChance) {
+				conn.close(1011, "stand-in: injected disconnect");
+				continue;
+			}
+
+			// snapshot, the subscriptions may change on the server thread
+			Object[] symbols = connection.symbols.toArray();
+			if (symbols.length == 0) {
+				connection.due = 0;
+			} else {
+				connection.due += tradesPerTick;
+			}
+			int trades = (int) connection.due;
+			connection.due -= trades;
+
+			StringBuilder message = null;
+			int inMessage = 0;
+			for (int i = 0; i < trades; i++) {
+				if (message == null) {
+					message = new StringBuilder(64 + TRADES_PER_MESSAGE * 64);
+					message.append("{\"data\":[");
+				} else {
+					message.append(',');
+				}
+				if (connection.cursor >= symbols.length) {
+					connection.cursor = 0;
+				}
+				// spread over the elapsed time
+				long time = now - elapsed + ((i + 1) * elapsed) / trades;
+				market.appendTrade(message, (String) symbols[connection.cursor++], time);
+				inMessage++;
+				if (inMessage == TRADES_PER_MESSAGE) {
+					send(conn, connection, message, now);
+					message = null;
+					inMessage = 0;
+				}
+			}
+			if (message != null) {
+				send(conn, connection, message, now);
+			}
+
+			if (now - connection.lastSendTime >= PING_INTERVAL) {
+				conn.send("{\"type\":\"ping\"}");
+				connection.lastSendTime = now;
+			}
+		}
+	}
+
+	/**
+	 * Closes a trade message and sends it.
+	 */
+	private void send(WebSocket conn, Connection connection, StringBuilder message, long now) {
+		message.append("],\"type\":\"trade\"}");
+		try {
+			conn.send(message.toString());
+			connection.lastSendTime = now;
+		} catch (RuntimeException e) {
+			// closed in the meantime
+		}
+	}
+
+	/**
+	 * Gets the amount of open connections.
+	 *
+	 * @return the amount of open connections
+	 */
+	int getConnectionCount() {
+		return this.connections.size();
+	}
+}
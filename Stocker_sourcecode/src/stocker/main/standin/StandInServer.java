@@ -0,0 +1,467 @@
+package stocker.main.standin;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import stocker.model.general.DataProviderProfile;
+
+/**
+ * Local stand-in for the finnhub.io data provider, used to test the
+ * application offline and under load. Serves the "/stock/candle", "/quote" and
+ * "/search" end points via http and the trade feed via websocket, with the
+ * same JSON structure as the data provider, built from a deterministic
+ * {@code StandInMarket}. The amount of symbols, the trades per second, the
+ * latency of the answers and the rate of failing requests and dropped
+ * connections are configurable.
+ *
+ * The end points are served at the root as well as below {@link #API_PATH},
+ * so the "Kursdatengenerator" profile ({@code http://localhost:8080},
+ * {@code ws://localhost:8090}) works with the default ports. A fitting profile
+ * is created by {@link #createDataProviderProfile()}.
+ *
+ * Can be embedded in a test, or started on its own with {@link #main(String[])}.
+ *
+ * @author Christoph Kaplan
+ *
+ */
+public class StandInServer {
+
+	/** standard port of the http end points */
+	public static final int DEFAULT_PULL_PORT = 8080;
+	/** standard port of the websocket */
+	public static final int DEFAULT_PUSH_PORT = 8090;
+	/** standard amount of symbols */
+	public static final int DEFAULT_SYMBOL_COUNT = 1000;
+	/** standard amount of trades per second and connection */
+	public static final int DEFAULT_TICK_RATE = 100;
+	/** optional prefix of the end points, as used by the data provider */
+	public static final String API_PATH = "/api/v1";
+	/** period of the trade generation in milliseconds */
+	public static final int TICK_PERIOD = 10;
+
+	private final int pullPort;
+	private final int pushPort;
+	private int symbolCount = DEFAULT_SYMBOL_COUNT;
+	private volatile int tickRate = DEFAULT_TICK_RATE;
+	private volatile int latency;
+	private volatile double errorRate;
+	private volatile double disconnectRate;
+
+	private StandInMarket market;
+	private HttpServer httpServer;
+	private ExecutorService httpExecutor;
+	private StandInPushServer pushServer;
+	private ScheduledExecutorService ticker;
+	private final Random random = new Random();
+	private final AtomicLong requestCount = new AtomicLong();
+	private final AtomicLong errorCount = new AtomicLong();
+
+	/**
+	 * {@code StandInServer} constructor, uses the standard ports.
+	 */
+	public StandInServer() {
+		this(DEFAULT_PULL_PORT, DEFAULT_PUSH_PORT);
+	}
+
+	/**
+	 * {@code StandInServer} constructor
+	 *
+	 * @param pullPort the port of the http end points
+	 * @param pushPort the port of the websocket
+	 */
+	public StandInServer(int pullPort, int pushPort) {
+		this.pullPort = pullPort;
+		this.pushPort = pushPort;
+	}
+
+	/**
+	 * Starts the http end points, the websocket and the trade generation.
+	 *
+	 * @throws Exception if a port cannot be bound
+	 */
+	public synchronized void start() throws Exception {
+		if (this.httpServer != null) {
+			throw new Exception("StandInServer.start() error: already started");
+		}
+		this.market = new StandInMarket(this.symbolCount);
+
+		this.httpExecutor = Executors.newCachedThreadPool(createThreadFactory("stand-in-http"));
+		try {
+			this.httpServer = HttpServer.create(new InetSocketAddress(this.pullPort), 0);
+		} catch (IOException e) {
+			throw new Exception("StandInServer.start() error: " + e.getMessage());
+		}
+		this.httpServer.createContext("/", new HttpHandler() {
+			@Override
+			public void handle(HttpExchange exchange) throws IOException {
+				handlePullRequest(exchange);
+			}
+		});
+		this.httpServer.setExecutor(this.httpExecutor);
+		this.httpServer.start();
+
+		this.pushServer = new StandInPushServer(this, this.pushPort);
+		this.pushServer.start();
+
+		this.ticker = Executors.newSingleThreadScheduledExecutor(createThreadFactory("stand-in-ticker"));
+		this.ticker.scheduleAtFixedRate(new Runnable() {
+			private long last = System.nanoTime();
+
+			@Override
+			public void run() {
+				long now = System.nanoTime();
+				try {
+					StandInServer.this.pushServer.tick((now - this.last) / 1000000L);
+				} catch (RuntimeException e) {
+					System.err.println("stand-in ticker: " + e.getMessage());
+				}
+				this.last = now;
+			}
+		}, TICK_PERIOD, TICK_PERIOD, TimeUnit.MILLISECONDS);
+
+		System.out.println("stand-in server: " + this.market.getSymbolCount() + " symbols, pull port "
+				+ this.pullPort + ", push port " + this.pushPort);
+	}
+
+	/**
+	 * Stops the trade generation, the websocket and the http end points.
+	 */
+	public synchronized void stop() {
+		if (this.httpServer == null) {
+			return;
+		}
+		this.ticker.shutdownNow();
+		try {
+			this.pushServer.stop(1000);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		this.httpServer.stop(0);
+		this.httpExecutor.shutdownNow();
+		this.httpServer = null;
+	}
+
+	/**
+	 * Creates a {@code DataProviderProfile} pointing at this server.
+	 *
+	 * @return the profile
+	 */
+	public DataProviderProfile createDataProviderProfile() {
+		return new DataProviderProfile("Stand-In", "stand-in", "http://localhost:" + this.pullPort + API_PATH,
+				"ws://localhost:" + this.pushPort, 6000);
+	}
+
+	////////////////////////////////////////////////////////
+	//
+	// SETTERs
+	//
+	////////////////////////////////////////////////////////
+
+	/**
+	 * Sets the amount of symbols, takes effect on the next start.
+	 *
+	 * @param symbolCount the amount of symbols
+	 */
+	public void setSymbolCount(int symbolCount) {
+		this.symbolCount = symbolCount;
+	}
+
+	/**
+	 * Sets the amount of trades per second and connection, spread over the
+	 * subscribed symbols of the connection.
+	 *
+	 * @param tickRate the trades per second
+	 */
+	public void setTickRate(int tickRate) {
+		this.tickRate = Math.max(0, tickRate);
+	}
+
+	/**
+	 * Sets the delay of every http answer.
+	 *
+	 * @param latency the delay in milliseconds
+	 */
+	public void setLatency(int latency) {
+		this.latency = Math.max(0, latency);
+	}
+
+	/**
+	 * Sets the share of http requests that are answered with an error status
+	 * code (429, 500 or 503).
+	 *
+	 * @param errorRate the share between 0 and 1
+	 */
+	public void setErrorRate(double errorRate) {
+		this.errorRate = errorRate;
+	}
+
+	/**
+	 * Sets how often a websocket connection is dropped by the server.
+	 *
+	 * @param disconnectRate the disconnects per second and connection
+	 */
+	public void setDisconnectRate(double disconnectRate) {
+		this.disconnectRate = disconnectRate;
+	}
+
+	////////////////////////////////////////////////////////
+	//
+	// GETTERs
+	//
+	////////////////////////////////////////////////////////
+
+	/**
+	 * Gets the market, available after the start.
+	 *
+	 * @return the market
+	 */
+	public StandInMarket getMarket() {
+		return this.market;
+	}
+
+	/**
+	 * Gets the amount of trades per second and connection.
+	 *
+	 * @return the trades per second
+	 */
+	public int getTickRate() {
+		return this.tickRate;
+	}
+
+	/**
+	 * Gets how often a websocket connection is dropped by the server.
+	 *
+	 * @return the disconnects per second and connection
+	 */
+	public double getDisconnectRate() {
+		return this.disconnectRate;
+	}
+
+	/**
+	 * Gets the amount of http requests received.
+	 *
+	 * @return the amount of requests
+	 */
+	public long getRequestCount() {
+		return this.requestCount.get();
+	}
+
+	/**
+	 * Gets the amount of http requests answered with an injected error.
+	 *
+	 * @return the amount of injected errors
+	 */
+	public long getErrorCount() {
+		return this.errorCount.get();
+	}
+
+	/**
+	 * Gets the amount of open websocket connections.
+	 *
+	 * @return the amount of connections
+	 */
+	public int getPushConnectionCount() {
+		return this.pushServer == null ? 0 : this.pushServer.getConnectionCount();
+	}
+
+	////////////////////////////////////////////////////////
+	//
+	// HTTP
+	//
+	////////////////////////////////////////////////////////
+
+	/**
+	 * Answers a http request, after the configured latency, with an injected
+	 * error or the data of the end point.
+	 */
+	private void handlePullRequest(HttpExchange exchange) throws IOException {
+		try {
+			this.requestCount.incrementAndGet();
+			if (this.latency > 0) {
+				try {
+					Thread.sleep(this.latency);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					return;
+				}
+			}
+
+			if (this.errorRate > 0 && nextDouble() < this.errorRate) {
+				this.errorCount.incrementAndGet();
+				double kind = nextDouble();
+				if (kind < 0.5) {
+					respond(exchange, 429, "{\"error\":\"API limit reached. Please try again later.\"}");
+				} else if (kind < 0.75) {
+					respond(exchange, 500, "{\"error\":\"Internal server error\"}");
+				} else {
+					respond(exchange, 503, "{\"error\":\"Service unavailable\"}");
+				}
+				return;
+			}
+
+			String path = exchange.getRequestURI().getPath();
+			if (path.startsWith(API_PATH)) {
+				path = path.substring(API_PATH.length());
+			}
+			if (path.length() > 1 && path.endsWith("/")) {
+				path = path.substring(0, path.length() - 1);
+			}
+			HashMap<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+
+			switch (path) {
+			case "/stock/candle":
+				respond(exchange, 200, this.market.candleJson(query.get("symbol"), query.get("resolution"),
+						parseLong(query.get("from")), parseLong(query.get("to"))));
+				break;
+			case "/quote":
+				respond(exchange, 200, this.market.quoteJson(query.get("symbol"), System.currentTimeMillis()));
+				break;
+			case "/search":
+				respond(exchange, 200, this.market.searchJson(query.get("q")));
+				break;
+			default:
+				respond(exchange, 404, "{\"error\":\"Not found\"}");
+			}
+		} finally {
+			exchange.close();
+		}
+	}
+
+	/**
+	 * Sends an answer, gzip compressed if the client accepts it.
+	 */
+	private void respond(HttpExchange exchange, int code, String body) throws IOException {
+		byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+		String accept = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+		if (accept != null && accept.toLowerCase().contains("gzip")) {
+			ByteArrayOutputStream compressed = new ByteArrayOutputStream(bytes.length / 4 + 64);
+			GZIPOutputStream gzip = new GZIPOutputStream(compressed);
+			gzip.write(bytes);
+			gzip.close();
+			bytes = compressed.toByteArray();
+			exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+		}
+		exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+		exchange.sendResponseHeaders(code, bytes.length);
+		OutputStream out = exchange.getResponseBody();
+		out.write(bytes);
+		out.close();
+	}
+
+	private double nextDouble() {
+		synchronized (this.random) {
+			return this.random.nextDouble();
+		}
+	}
+
+	private static HashMap<String, String> parseQuery(String rawQuery) {
+		HashMap<String, String> query = new HashMap<String, String>();
+		if (rawQuery == null) {
+			return query;
+		}
+		for (String pair : rawQuery.split("&")) {
+			int i = pair.indexOf('=');
+			String key = i < 0 ? pair : pair.substring(0, i);
+			String value = i < 0 ? "" : pair.substring(i + 1);
+			try {
+				query.put(URLDecoder.decode(key, "UTF-8"), URLDecoder.decode(value, "UTF-8"));
+			} catch (UnsupportedEncodingException | IllegalArgumentException e) {
+				// malformed pairs are ignored
+			}
+		}
+		return query;
+	}
+
+	private static long parseLong(String value) {
+		try {
+			return Long.parseLong(value);
+		} catch (NumberFormatException e) {
+			return 0;
+		}
+	}
+
+	private static ThreadFactory createThreadFactory(final String name) {
+		return new ThreadFactory() {
+			private final AtomicInteger count = new AtomicInteger();
+
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, name + "-" + this.count.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		};
+	}
+
+	////////////////////////////////////////////////////////
+	//
+	// MAIN
+	//
+	////////////////////////////////////////////////////////
+
+	/**
+	 * Starts a stand-in server until the process is terminated. Options:
+	 * {@code --pull-port=}, {@code --push-port=}, {@code --symbols=},
+	 * {@code --tick-rate=}, {@code --latency=}, {@code --error-rate=} and
+	 * {@code --disconnect-rate=}.
+	 *
+	 * @param args the options
+	 */
+	public static void main(String[] args) {
+		HashMap<String, String> options = new HashMap<String, String>();
+		for (String arg : args) {
+			int i = arg.indexOf('=');
+			if (!arg.startsWith("--") || i < 0) {
+				System.err.println("ignored option: " + arg);
+				continue;
+			}
+			options.put(arg.substring(2, i), arg.substring(i + 1));
+		}
+
+		try {
+			final StandInServer server = new StandInServer(
+					Integer.parseInt(getOption(options, "pull-port", "" + DEFAULT_PULL_PORT)),
+					Integer.parseInt(getOption(options, "push-port", "" + DEFAULT_PUSH_PORT)));
+			server.setSymbolCount(Integer.parseInt(getOption(options, "symbols", "" + DEFAULT_SYMBOL_COUNT)));
+			server.setTickRate(Integer.parseInt(getOption(options, "tick-rate", "" + DEFAULT_TICK_RATE)));
+			server.setLatency(Integer.parseInt(getOption(options, "latency", "0")));
+			server.setErrorRate(Double.parseDouble(getOption(options, "error-rate", "0")));
+			server.setDisconnectRate(Double.parseDouble(getOption(options, "disconnect-rate", "0")));
+			server.start();
+			Runtime.getRuntime().addShutdownHook(new Thread() {
+				@Override
+				public void run() {
+					server.stop();
+				}
+			});
+			Thread.currentThread().join();
+		} catch (Exception e) {
+			System.err.println("stand-in server: " + e.getMessage());
+			System.exit(1);
+		}
+	}
+
+	private static String getOption(HashMap<String, String> options, String key, String defaultValue) {
+		String value = options.get(key);
+		return value == null ? defaultValue : value;
+	}
+}
@@ -1,6 +1,7 @@
 package stocker.model.database;
 
 import stocker.model.general.DisplayType;
+import stocker.model.general.RequestPriority;
 import stocker.model.general.TimeInterval;
 
 /**
@@ -31,8 +32,9 @@ public interface DatabaseActionListener {
 	 * 
 	 * @param symbol   to be searched for
 	 * @param interval associated {@code TimeInterval}
+	 * @param priority the {@code RequestPriority} of the request
 	 */
-	public void onAskHistoricDataForSymbol(String symbol, TimeInterval interval);
+	public void onAskHistoricDataForSymbol(String symbol, TimeInterval interval, RequestPriority priority);
 
 	/**
 	 * Asks listeners for quote data input.
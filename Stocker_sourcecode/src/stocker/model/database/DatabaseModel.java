@@ -1,17 +1,27 @@
 package stocker.model.database;
 
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 
 import javax.swing.JOptionPane;
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
 
 import stocker.model.externalclasses.PullData;
 import stocker.model.externalclasses.PullQuoteData;
 import stocker.model.externalclasses.PullSearchData;
 import stocker.model.externalclasses.PushData;
 import stocker.model.general.DisplayType;
+import stocker.model.general.IndicatorBase;
+import stocker.model.general.RequestPriority;
 import stocker.model.general.TimeInterval;
-import stocker.model.stockdata.StockDataRealtime;
+import stocker.model.stockdata.CandleSeries;
 import stocker.model.stockdata.StockDataState.StockDataStateType;
 import stocker.model.stockdata.StockData;
 import stocker.model.stockdata.StockDataCalculator;
@@ -34,7 +44,21 @@ import stocker.model.stockdata.StockDataCalculator;
  * Getter to access stocks and alarms under certain aspects. Setters and "Adder"
  * to change the status of certain stocks or to add new data from the provider.
  * Remover to delete stocks or alarms and other methods of notifying the
- * observer.
+ * observer. Real-time data is stored with every trade, the listeners however
+ * are notified at most once per update interval and stock, with the latest
+ * state of the stock.
+ * 
+ * The database model is owned by the event dispatch thread, it is the only
+ * thread that modifies the model and notifies the listeners. Calls from other
+ * threads, like status changes of the network client, are passed on to the
+ * event dispatch thread. Readers on other threads use the immutable
+ * {@code StockDataSnapshot} of a stock.
+ * 
+ * The real-time data of a symbol is subscribed as long as anyone needs it: the
+ * list of stocks ({@link #SUBSCRIBER_LIST}), every chart showing the symbol
+ * ({@link #getChartSubscriber(int)}) and its alarms ({@link #SUBSCRIBER_ALARM}).
+ * The listeners are asked to subscribe when the first subscriber is added and
+ * to unsubscribe when the last one is removed.
  * 
  * @author Christoph Kaplan
  *
@@ -44,8 +68,39 @@ public class DatabaseModel extends DatabaseObserverPattern {
 	private ArrayList<StockData> databaseList = new ArrayList<StockData>();
 	private HashMap<String, AlarmWrapper> alarmWrapperMap = new HashMap<String, AlarmWrapper>();
 
+	/** index symbol -> {@code StockData}, kept consistent with the database list */
+	private HashMap<String, StockData> symbolIndex = new HashMap<String, StockData>();
+	/** index {@code DisplayType} -> {@code StockData}, keeps the insertion order */
+	private EnumMap<DisplayType, LinkedHashSet<StockData>> displayTypeIndex = new EnumMap<DisplayType, LinkedHashSet<StockData>>(
+			DisplayType.class);
+	/** indicator results per symbol, {@code TimeInterval} and indicator parameters */
+	private IndicatorCache indicatorCache = new IndicatorCache();
+
+	/** standard interval of push update notifications in milliseconds (~30 Hz) */
+	public static final int DEFAULT_PUSH_UPDATE_INTERVAL = 33;
+	/** stocks with push updates the listeners are not notified about yet */
+	private LinkedHashSet<StockData> pushUpdatedStocks = new LinkedHashSet<StockData>();
+	private Timer pushUpdateTimer;
+
+	/** subscriber of the stocks in the list of stocks, e.g. the watchlist */
+	public static final String SUBSCRIBER_LIST = "list";
+	/** subscriber of the stocks with alarms */
+	public static final String SUBSCRIBER_ALARM = "alarm";
+	/** subscribers of the real-time data by symbol */
+	private HashMap<String, HashSet<String>> subscribers = new HashMap<String, HashSet<String>>();
+
 	public DatabaseModel() {
+		for (DisplayType displayType : DisplayType.values()) {
+			displayTypeIndex.put(displayType, new LinkedHashSet<StockData>());
+		}
 
+		pushUpdateTimer = new Timer(DEFAULT_PUSH_UPDATE_INTERVAL, new ActionListener() {
+			@Override
+			public void actionPerformed(ActionEvent e) {
+				flushPushUpdates();
+			}
+		});
+		pushUpdateTimer.setRepeats(false);
 	}
 
 	////////////////////////////////////////////////////////
@@ -70,12 +125,7 @@ public class DatabaseModel extends DatabaseObserverPattern {
 	 * @return filtered list of {@code StockData}
 	 */
 	public ArrayList<StockData> getAllByDisplayType(DisplayType displayType) {
-		ArrayList<StockData> filtered = new ArrayList<StockData>();
-		for (StockData s : databaseList) {
-			if (s.getDisplayType() == displayType)
-				filtered.add(s);
-		}
-		return filtered;
+		return new ArrayList<StockData>(displayTypeIndex.get(displayType));
 	}
 
 	/**
@@ -86,9 +136,8 @@ public class DatabaseModel extends DatabaseObserverPattern {
 	 */
 	public ArrayList<String> getSymbolListByDisplayType(DisplayType displayType) {
 		ArrayList<String> lst = new ArrayList<String>();
-		for (StockData s : databaseList) {
-			if (s.getDisplayType() == displayType)
-				lst.add(s.getSymbol());
+		for (StockData s : displayTypeIndex.get(displayType)) {
+			lst.add(s.getSymbol());
 		}
 		return lst;
 	}
@@ -100,11 +149,7 @@ public class DatabaseModel extends DatabaseObserverPattern {
 	 * @return true if present, false if not.
 	 */
 	public boolean hasStock(String symbol) {
-		for (StockData s : databaseList) {
-			if (s.getSymbol().equals(symbol))
-				return true;
-		}
-		return false;
+		return symbolIndex.containsKey(symbol);
 	}
 
 	/**
@@ -115,10 +160,9 @@ public class DatabaseModel extends DatabaseObserverPattern {
 	 * @throws Exception when no {@code StockData} object can be found
 	 */
 	public StockData getStockBySymbol(String symbol) throws Exception {
-		for (StockData s : databaseList) {
-			if (s.getSymbol().equals(symbol))
-				return s;
-		}
+		StockData s = symbolIndex.get(symbol);
+		if (s != null)
+			return s;
 		throw new Exception("getStockBySymbol(" + symbol + "): cant find symbol");
 	}
 
@@ -190,6 +234,16 @@ public class DatabaseModel extends DatabaseObserverPattern {
 	//
 	////////////////////////////////////////////////////////
 
+	/**
+	 * Sets the interval in which listeners are notified about push updates.
+	 * 
+	 * @param millis the interval in milliseconds
+	 */
+	public void setPushUpdateInterval(int millis) {
+		pushUpdateTimer.setInitialDelay(millis);
+		pushUpdateTimer.setDelay(millis);
+	}
+
 	/**
 	 * Sets the {@code DisplayType} of a specific {@code StockData} .
 	 * 
@@ -199,7 +253,9 @@ public class DatabaseModel extends DatabaseObserverPattern {
 	public void setDisplayType(StockData stock, DisplayType displayType) {
 		if (stock.getDisplayType() == displayType)
 			return; // no change
+		displayTypeIndex.get(stock.getDisplayType()).remove(stock);
 		stock.setDisplayType(displayType);
+		displayTypeIndex.get(displayType).add(stock);
 		onStockDisplayTypeChange(stock);
 	}
 
@@ -234,6 +290,8 @@ public class DatabaseModel extends DatabaseObserverPattern {
 	private StockData createNewStock(String symbol, DisplayType displayType) {
 		StockData newStock = new StockData(symbol, displayType);
 		databaseList.add(newStock);
+		symbolIndex.put(symbol, newStock);
+		displayTypeIndex.get(displayType).add(newStock);
 		stockCreated(newStock);
 		return newStock;
 	}
@@ -398,21 +456,41 @@ public class DatabaseModel extends DatabaseObserverPattern {
 	 */
 	public void addPushData(PushData pushData) {
 		// System.out.println("addPushData()");
+		if (!SwingUtilities.isEventDispatchThread()) {
+			SwingUtilities.invokeLater(new Runnable() {
+				@Override
+				public void run() {
+					addPushData(pushData);
+				}
+			});
+			return;
+		}
 		for (PushData.Entry e : pushData.getData()) {
-			try {
-				StockData stock = getStockBySymbol(e.getSymbol());
-				StockDataRealtime rcd = new StockDataRealtime(e.getSymbol(), e.getPrice(), e.getTime(),
-						e.getVolume());
-				stock.addPushData(rcd);
-				stockPushUpdate(stock);
-
-			} catch (Exception ex) {
-				System.err.println("addPushData():" + ex.getMessage());
-			}
+			addPushTrade(e.getSymbol(), e.getPrice(), e.getTime(), e.getVolume());
 		}
 
 	}
 
+	/**
+	 * Adds a single trade of real-time data to the corresponding
+	 * {@code StockData} object, without creating any object. Must be called on
+	 * the event dispatch thread.
+	 * 
+	 * @param symbol the symbol
+	 * @param price  the price
+	 * @param time   the Unix timestamp in milliseconds
+	 * @param volume the volume
+	 */
+	public void addPushTrade(String symbol, double price, long time, double volume) {
+		StockData stock = symbolIndex.get(symbol);
+		if (stock == null) {
+			// trades may arrive shortly after the stock was removed
+			return;
+		}
+		stock.addPushData(time, price, volume);
+		stockPushUpdate(stock, time, price, volume);
+	}
+
 	/**
 	 * Adds an alarm to the {@code AlarmWrapper} hash-map. If there is no
 	 * {@code AlarmWrapper} object present, it creates new one, otherwise adds to
@@ -427,6 +505,7 @@ public class DatabaseModel extends DatabaseObserverPattern {
 
 		AlarmWrapper alarm = this.getAlarm(symbol);
 		alarm.addAlarm(value);
+		subscribeAlarm(symbol);
 		this.onAlarmAdded(alarm, value);
 	}
 
@@ -437,6 +516,7 @@ public class DatabaseModel extends DatabaseObserverPattern {
 	 */
 	public void addAlarm(AlarmWrapper alarmWrapper) {
 		this.alarmWrapperMap.put(alarmWrapper.getSymbol(), alarmWrapper);
+		subscribeAlarm(alarmWrapper.getSymbol());
 		// this.onAlarmAdded(alarm, value);
 	}
 
@@ -475,11 +555,8 @@ public class DatabaseModel extends DatabaseObserverPattern {
 	 *                    {@code StockData} objects are cleared.
 	 */
 	public void clearDatabaseByDisplayType(DisplayType displayType) {
-		for (int i = databaseList.size()-1; i >= 0; i--) {
-			StockData stock = databaseList.get(i);
-			if (stock.getDisplayType().equals(displayType)) {
-				this.deleteStock(stock);
-			}
+		for (StockData stock : getAllByDisplayType(displayType)) {
+			this.deleteStock(stock);
 		}
 	}
 
@@ -496,6 +573,7 @@ public class DatabaseModel extends DatabaseObserverPattern {
 			
 			stock.clearRealtimeData();
 			stock.clearStockDataCalculatorMap();
+			indicatorCache.invalidate(stock.getSymbol());
 		}
 	}
 
@@ -521,6 +599,10 @@ public class DatabaseModel extends DatabaseObserverPattern {
 	public void deleteStock(StockData stockData) {
 		stockRemoved(stockData);
 		databaseList.remove(stockData);
+		symbolIndex.remove(stockData.getSymbol());
+		pushUpdatedStocks.remove(stockData);
+		indicatorCache.invalidate(stockData.getSymbol());
+		displayTypeIndex.get(stockData.getDisplayType()).remove(stockData);
 	}
 
 	/**
@@ -533,6 +615,7 @@ public class DatabaseModel extends DatabaseObserverPattern {
 	public void removeAlarm(String symbol, double value) {
 		AlarmWrapper alarm = this.getAlarm(symbol);
 		alarm.removeAlarm(value);
+		subscribeAlarm(symbol);
 		onAlarmRemove(alarm, value);
 	}
 
@@ -544,13 +627,18 @@ public class DatabaseModel extends DatabaseObserverPattern {
 	public void clearAlarms(String symbol) {
 		this.alarmWrapperMap.get(symbol).clearAlarms();
 		this.alarmWrapperMap.remove(symbol);
+		subscribeAlarm(symbol);
 	}
 
 	/**
 	 * Removes all alarms from the alarm wrapper hash-map.
 	 */
 	public void clearAllAlarms() {
+		ArrayList<String> symbols = new ArrayList<String>(this.alarmWrapperMap.keySet());
 		this.alarmWrapperMap.clear();
+		for (String symbol : symbols) {
+			subscribeAlarm(symbol);
+		}
 	}
 
 	/**
@@ -571,6 +659,7 @@ public class DatabaseModel extends DatabaseObserverPattern {
 			double triggered = alarmWrapper.isTriggered(currentPrice, previousPrice);
 			this.onAlarmTriggered(alarmWrapper, triggered);
 			alarmWrapper.removeAlarm(triggered);
+			subscribeAlarm(symbol);
 		} catch (Exception e) {
 			//
 		}
@@ -608,6 +697,23 @@ public class DatabaseModel extends DatabaseObserverPattern {
 		return stockData.getStockDataCalculator(interval);
 	}
 
+	/**
+	 * Gets the results of an indicator for a stock and {@code TimeInterval}. The
+	 * results are kept in the {@code IndicatorCache} and are only updated when
+	 * the series has changed.
+	 * 
+	 * @param symbol    the symbol of the stock
+	 * @param interval  considered {@code TimeInterval}
+	 * @param indicator the indicator, defines type and parameters
+	 * @param series    the {@code CandleSeries} of the stock's
+	 *                  {@code StockDataCalculator}
+	 * @return the indicator object that holds the results
+	 */
+	public IndicatorBase getIndicatorResult(String symbol, TimeInterval interval, IndicatorBase indicator,
+			CandleSeries series) {
+		return indicatorCache.get(symbol, interval, indicator, series);
+	}
+
 	/**
 	 * This method first checks whether historical data is available for the desired
 	 * time interval, since the historical data represent a minimum requirement for
@@ -636,7 +742,8 @@ public class DatabaseModel extends DatabaseObserverPattern {
 		}
 
 		if (stockData.getStockDataHistoric(interval).getStockDataState() == StockDataStateType.unclear) {
-			askHistoricDataForSymbol(stockData.getSymbol(), interval);
+			// a chart waits for the calculation
+			askHistoricDataForSymbol(stockData.getSymbol(), interval, RequestPriority.Chart);
 			return;
 		}
 
@@ -657,6 +764,36 @@ public class DatabaseModel extends DatabaseObserverPattern {
 		stockCalculated(stockData);
 	}
 
+	/**
+	 * Updates the {@code StockDataCalculator} objects for every present
+	 * {@code TimeInterval} in the case of newly arriving real-time data. Already
+	 * calculated {@code StockDataCalculator} objects fold the new real-time data
+	 * into their open candle
+	 * {@link StockDataCalculator#addRealtimeData(long, double, double)}, only
+	 * {@code StockDataCalculator} objects in state {@code unclear} are calculated
+	 * using method {@link #calculateStockData}.
+	 * 
+	 * @param stockData {@code StockData} object whose calculator data is updated
+	 * @param time      the Unix timestamp of the new trade in milliseconds
+	 * @param price     the price of the new trade
+	 * @param volume    the volume of the new trade
+	 */
+	private void updateStockDataCalculator(StockData stockData, long time, double price, double volume) {
+		for (TimeInterval t : stockData.getStockDataCalculatorMap().keySet()) {
+			StockDataCalculator calculator = stockData.getStockDataCalculatorMap().get(t);
+			StockDataStateType state = calculator.getStockDataState();
+			if (state == StockDataStateType.access) {
+				calculator.addRealtimeData(time, price, volume);
+			} else if (state == StockDataStateType.unclear) {
+				try {
+					calculateStockData(stockData, t);
+				} catch (Exception e) {
+					continue;
+				}
+			}
+		}
+	}
+
 	/**
 	 * Updates the {@code StockDataCalculator} objects for every present
 	 * {@code TimeInterval} in the case of newly arriving data.
@@ -713,9 +850,29 @@ public class DatabaseModel extends DatabaseObserverPattern {
 	 * 
 	 * @param symbol   to be searched for
 	 * @param interval associated {@code TimeInterval}
+	 * @param priority the {@code RequestPriority} of the request
 	 */
-	public void askHistoricDataForSymbol(String symbol, TimeInterval interval) {
-		onAskHistoricDataForSymbol(symbol, interval);
+	public void askHistoricDataForSymbol(String symbol, TimeInterval interval, RequestPriority priority) {
+		onAskHistoricDataForSymbol(symbol, interval, priority);
+	}
+
+	/**
+	 * Asks listeners for the historic data of every calculated
+	 * {@code TimeInterval} of the given stocks again, e.g. to fill the gap of
+	 * real-time data missed while the connection was lost.
+	 * 
+	 * @param symbols the symbols of the stocks, unknown symbols are ignored
+	 */
+	public void askHistoricDataAgain(Collection<String> symbols) {
+		for (String symbol : symbols) {
+			StockData stock = symbolIndex.get(symbol);
+			if (stock == null) {
+				continue;
+			}
+			for (TimeInterval t : stock.getStockDataCalculatorMap().keySet()) {
+				askHistoricDataForSymbol(stock.getSymbol(), t, RequestPriority.Chart);
+			}
+		}
 	}
 
 	/**
@@ -728,16 +885,78 @@ public class DatabaseModel extends DatabaseObserverPattern {
 	}
 
 	/**
-	 * Notify listeners to subscribe a symbol for real-time data.
+	 * Adds or removes a subscriber of the real-time data of a symbol. Notifies
+	 * listeners to subscribe the symbol when the first subscriber is added, and
+	 * to unsubscribe it when the last subscriber is removed. Adding a subscriber
+	 * twice has no effect.
 	 * 
-	 * @param symbol    to subscribe
-	 * @param subscribe true for subscribe, false for unsubscribe
+	 * @param symbol     to subscribe
+	 * @param subscriber identifies the subscriber, e.g. {@link #SUBSCRIBER_LIST}
+	 * @param subscribe  true for subscribe, false for unsubscribe
 	 */
-	public void subscribeStock(String symbol, boolean subscribe) {
-		if (subscribe)
-			this.onSubscribe(symbol);
-		else
+	public void subscribeStock(String symbol, String subscriber, boolean subscribe) {
+		HashSet<String> holders = this.subscribers.get(symbol);
+		if (subscribe) {
+			if (holders == null) {
+				holders = new HashSet<String>();
+				this.subscribers.put(symbol, holders);
+			}
+			if (holders.add(subscriber) && holders.size() == 1) {
+				this.onSubscribe(symbol);
+			}
+		} else {
+			if (holders == null || !holders.remove(subscriber)) {
+				return;
+			}
+			if (holders.isEmpty()) {
+				this.subscribers.remove(symbol);
+				this.onUnsubscribe(symbol);
+			}
+		}
+	}
+
+	/**
+	 * Removes all subscribers of the real-time data of a symbol. Notifies
+	 * listeners to unsubscribe the symbol, if subscribed.
+	 * 
+	 * @param symbol to unsubscribe
+	 */
+	private void unsubscribeStockAll(String symbol) {
+		if (this.subscribers.remove(symbol) != null) {
 			this.onUnsubscribe(symbol);
+		}
+	}
+
+	/**
+	 * Adds or removes {@link #SUBSCRIBER_ALARM}, depending on whether a stock in
+	 * the database has alarms.
+	 * 
+	 * @param symbol the symbol of the alarms
+	 */
+	private void subscribeAlarm(String symbol) {
+		boolean alarms = hasAlarm(symbol) && !getAlarm(symbol).getAlarms().isEmpty();
+		subscribeStock(symbol, SUBSCRIBER_ALARM, alarms && symbolIndex.containsKey(symbol));
+	}
+
+	/**
+	 * Gets the subscriber of a chart.
+	 * 
+	 * @param id the id of the chart frame
+	 * @return the subscriber of the chart
+	 */
+	public static String getChartSubscriber(int id) {
+		return "chart#" + id;
+	}
+
+	/**
+	 * Gets the amount of subscribers of the real-time data of a symbol.
+	 * 
+	 * @param symbol the symbol
+	 * @return the amount of subscribers
+	 */
+	public int getSubscriberCount(String symbol) {
+		HashSet<String> holders = this.subscribers.get(symbol);
+		return holders == null ? 0 : holders.size();
 	}
 
 	/**
@@ -764,12 +983,12 @@ public class DatabaseModel extends DatabaseObserverPattern {
 			askSearchDataForSymbol(stockData.getSymbol(), stockData.getDisplayType());
 		}
 		if (stockData.getStockDataHistoric(interval).getStockDataState() == StockDataStateType.unclear) {
-			askHistoricDataForSymbol(stockData.getSymbol(), interval);
+			askHistoricDataForSymbol(stockData.getSymbol(), interval, RequestPriority.Background);
 		}
 		if (stockData.getStockDataQuote().getStockDataState() == StockDataStateType.unclear) {
 			askQuoteDataForSymbol(stockData.getSymbol());
 		}
-		subscribeStock(stockData.getSymbol(), true);
+		subscribeStock(stockData.getSymbol(), SUBSCRIBER_LIST, true);
 	}
 
 	////////////////////////////////////////////////////////
@@ -794,7 +1013,8 @@ public class DatabaseModel extends DatabaseObserverPattern {
 	 */
 	private void stockRemoved(StockData stock) {
 		onStockRemoved(stock);
-		subscribeStock(stock.getSymbol(), false);
+		// the stock is gone, nobody needs its real-time data any more
+		unsubscribeStockAll(stock.getSymbol());
 	}
 
 	/**
@@ -827,16 +1047,35 @@ public class DatabaseModel extends DatabaseObserverPattern {
 	}
 
 	/**
-	 * Routes push update to {@code #finalStockUpdate} and checks if alarm is
-	 * triggered
+	 * Updates the calculators, checks if alarm is triggered and marks the stock
+	 * for the next {@link #flushPushUpdates()}, instead of notifying the
+	 * listeners about every trade.
 	 * 
-	 * @param stock considered {@code StockData} object
+	 * @param stock  considered {@code StockData} object
+	 * @param time   the Unix timestamp of the new trade in milliseconds
+	 * @param price  the price of the new trade
+	 * @param volume the volume of the new trade
 	 */
-	private void stockPushUpdate(StockData stock) {
+	private void stockPushUpdate(StockData stock, long time, double price, double volume) {
 		//System.out.println("stockPushUpdate():" + stock.getSymbol());
-		updateStockDataCalculator(stock);
+		updateStockDataCalculator(stock, time, price, volume);
 		isAlarmTriggered(stock);
-		finalStockUpdate(stock);
+		pushUpdatedStocks.add(stock);
+		if (!pushUpdateTimer.isRunning()) {
+			pushUpdateTimer.start();
+		}
+	}
+
+	/**
+	 * Routes the push updates gathered since the last call to
+	 * {@code #finalStockUpdate}, once per stock.
+	 */
+	private void flushPushUpdates() {
+		StockData[] stocks = pushUpdatedStocks.toArray(new StockData[pushUpdatedStocks.size()]);
+		pushUpdatedStocks.clear();
+		for (StockData stock : stocks) {
+			finalStockUpdate(stock);
+		}
 	}
 
 	/**
@@ -845,6 +1084,8 @@ public class DatabaseModel extends DatabaseObserverPattern {
 	 * @param stock considered {@code StockData} object
 	 */
 	private void finalStockUpdate(StockData stock) {
+		// listeners get the latest state now, a pending push update is obsolete
+		pushUpdatedStocks.remove(stock);
 		onStockUpdate(stock);
 	}
 
@@ -869,6 +1110,15 @@ public class DatabaseModel extends DatabaseObserverPattern {
 	 * @param status database status
 	 */
 	public void statusChange(String status) {
+		if (!SwingUtilities.isEventDispatchThread()) {
+			SwingUtilities.invokeLater(new Runnable() {
+				@Override
+				public void run() {
+					statusChange(status);
+				}
+			});
+			return;
+		}
 		this.onStatusChange(status);
 	}
 
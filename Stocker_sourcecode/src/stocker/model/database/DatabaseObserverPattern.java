@@ -1,15 +1,23 @@
 package stocker.model.database;
 
 import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Iterator;
 
 import stocker.model.general.DisplayType;
+import stocker.model.general.RequestPriority;
 import stocker.model.general.TimeInterval;
 import stocker.model.stockdata.StockData;
 
 /**
  * Observer pattern for the database (with 3 listener types
  * {@code DatabaseStockListener}, {@code DatabaseActionListener} and
- * {@code DatabaseStatusListener})
+ * {@code DatabaseStatusListener}). A {@code DatabaseStockListener} is either
+ * notified about all stocks, or subscribed to a symbol and selected
+ * {@code DatabaseStockEvent} kinds through a routing table, then it only
+ * receives the events of that symbol. Before the listeners are notified about
+ * a stock, its {@code StockDataSnapshot} is published.
  * 
  * @author Christoph Kaplan
  *
@@ -20,6 +28,11 @@ public class DatabaseObserverPattern {
 	protected ArrayList<DatabaseActionListener> databaseActionObservers = new ArrayList<DatabaseActionListener>();
 	protected ArrayList<DatabaseStatusListener> databaseStatusObservers = new ArrayList<DatabaseStatusListener>();
 
+	/** routing table symbol -> event kind -> listeners */
+	protected HashMap<String, EnumMap<DatabaseStockEvent, ArrayList<DatabaseStockListener>>> databaseStockRoutes = new HashMap<String, EnumMap<DatabaseStockEvent, ArrayList<DatabaseStockListener>>>();
+
+	private static final DatabaseStockListener[] NO_LISTENERS = new DatabaseStockListener[0];
+
 	/**
 	 * Adds a listener
 	 * 
@@ -30,12 +43,76 @@ public class DatabaseObserverPattern {
 	}
 
 	/**
-	 * Removes a listener
+	 * Adds a listener that is only notified about events of a symbol.
+	 * 
+	 * @param symbol the symbol
+	 * @param obs    the listener
+	 * @param events the event kinds to notify about, all kinds if none given
+	 */
+	public void addDatabaseStockObserver(String symbol, DatabaseStockListener obs, DatabaseStockEvent... events) {
+		if (events.length == 0) {
+			events = DatabaseStockEvent.values();
+		}
+		EnumMap<DatabaseStockEvent, ArrayList<DatabaseStockListener>> route = databaseStockRoutes.get(symbol);
+		if (route == null) {
+			route = new EnumMap<DatabaseStockEvent, ArrayList<DatabaseStockListener>>(DatabaseStockEvent.class);
+			databaseStockRoutes.put(symbol, route);
+		}
+		for (DatabaseStockEvent event : events) {
+			ArrayList<DatabaseStockListener> listeners = route.get(event);
+			if (listeners == null) {
+				listeners = new ArrayList<DatabaseStockListener>();
+				route.put(event, listeners);
+			}
+			if (!listeners.contains(obs)) {
+				listeners.add(obs);
+			}
+		}
+	}
+
+	/**
+	 * Removes a listener, for all stocks and all symbols it is subscribed to
 	 * 
 	 * @param obs the listener
 	 */
 	public void removeDatabaseStockObserver(DatabaseStockListener obs) {
 		databaseStockObservers.remove(obs);
+		Iterator<EnumMap<DatabaseStockEvent, ArrayList<DatabaseStockListener>>> routes = databaseStockRoutes.values()
+				.iterator();
+		while (routes.hasNext()) {
+			EnumMap<DatabaseStockEvent, ArrayList<DatabaseStockListener>> route = routes.next();
+			Iterator<ArrayList<DatabaseStockListener>> it = route.values().iterator();
+			while (it.hasNext()) {
+				ArrayList<DatabaseStockListener> listeners = it.next();
+				listeners.remove(obs);
+				if (listeners.isEmpty()) {
+					it.remove();
+				}
+			}
+			if (route.isEmpty()) {
+				routes.remove();
+			}
+		}
+	}
+
+	/**
+	 * Gets the listeners subscribed to an event of a symbol. Returns a copy, so
+	 * that listeners can unsubscribe while being notified.
+	 * 
+	 * @param symbol the symbol
+	 * @param event  the event kind
+	 * @return the listeners
+	 */
+	private DatabaseStockListener[] getRoutedStockObservers(String symbol, DatabaseStockEvent event) {
+		EnumMap<DatabaseStockEvent, ArrayList<DatabaseStockListener>> route = databaseStockRoutes.get(symbol);
+		if (route == null) {
+			return NO_LISTENERS;
+		}
+		ArrayList<DatabaseStockListener> listeners = route.get(event);
+		if (listeners == null) {
+			return NO_LISTENERS;
+		}
+		return listeners.toArray(NO_LISTENERS);
 	}
 
 	/**
@@ -80,9 +157,13 @@ public class DatabaseObserverPattern {
 	 * @param stock considered {@code StockData} object
 	 */
 	protected void onStockAdded(StockData stock) {
+		stock.publishSnapshot();
 		for (DatabaseStockListener obs : databaseStockObservers) {
 			obs.onStockAdded(stock);
 		}
+		for (DatabaseStockListener obs : getRoutedStockObservers(stock.getSymbol(), DatabaseStockEvent.Added)) {
+			obs.onStockAdded(stock);
+		}
 	}
 
 	/**
@@ -95,6 +176,9 @@ public class DatabaseObserverPattern {
 			DatabaseStockListener obs = databaseStockObservers.get(i);
 			obs.onStockRemoved(stock);
 		}
+		for (DatabaseStockListener obs : getRoutedStockObservers(stock.getSymbol(), DatabaseStockEvent.Removed)) {
+			obs.onStockRemoved(stock);
+		}
 	}
 
 	/**
@@ -103,9 +187,13 @@ public class DatabaseObserverPattern {
 	 * @param stock considered {@code StockData} object
 	 */
 	protected void onStockUpdate(StockData stock) {
+		stock.publishSnapshot();
 		for (DatabaseStockListener obs : databaseStockObservers) {
 			obs.onStockUpdate(stock);
 		}
+		for (DatabaseStockListener obs : getRoutedStockObservers(stock.getSymbol(), DatabaseStockEvent.Update)) {
+			obs.onStockUpdate(stock);
+		}
 	}
 
 	/**
@@ -115,9 +203,13 @@ public class DatabaseObserverPattern {
 	 * @param stock considered {@code StockData} object
 	 */
 	protected void onStockDisplayTypeChange(StockData stock) {
+		stock.publishSnapshot();
 		for (DatabaseStockListener obs : databaseStockObservers) {
 			obs.onStockDisplayTypeChange(stock);
 		}
+		for (DatabaseStockListener obs : getRoutedStockObservers(stock.getSymbol(), DatabaseStockEvent.DisplayTypeChange)) {
+			obs.onStockDisplayTypeChange(stock);
+		}
 	}
 
 	/**
@@ -126,9 +218,13 @@ public class DatabaseObserverPattern {
 	 * @param stock considered {@code StockData} object
 	 */
 	protected void onStockCalculated(StockData stock) {
+		stock.publishSnapshot();
 		for (DatabaseStockListener obs : databaseStockObservers) {
 			obs.onStockCalculated(stock);
 		}
+		for (DatabaseStockListener obs : getRoutedStockObservers(stock.getSymbol(), DatabaseStockEvent.Calculated)) {
+			obs.onStockCalculated(stock);
+		}
 	}
 
 	/**
@@ -141,6 +237,9 @@ public class DatabaseObserverPattern {
 		for (DatabaseStockListener obs : databaseStockObservers) {
 			obs.onAlarmAdded(alarm, value);
 		}
+		for (DatabaseStockListener obs : getRoutedStockObservers(alarm.getSymbol(), DatabaseStockEvent.AlarmAdded)) {
+			obs.onAlarmAdded(alarm, value);
+		}
 	}
 
 	/**
@@ -153,6 +252,9 @@ public class DatabaseObserverPattern {
 		for (DatabaseStockListener obs : databaseStockObservers) {
 			obs.onAlarmRemove(alarm, value);
 		}
+		for (DatabaseStockListener obs : getRoutedStockObservers(alarm.getSymbol(), DatabaseStockEvent.AlarmRemove)) {
+			obs.onAlarmRemove(alarm, value);
+		}
 	}
 
 	/**
@@ -184,10 +286,11 @@ public class DatabaseObserverPattern {
 	 * 
 	 * @param symbol   to be searched for
 	 * @param interval associated {@code TimeInterval}
+	 * @param priority the {@code RequestPriority} of the request
 	 */
-	protected void onAskHistoricDataForSymbol(String symbol, TimeInterval interval) {
+	protected void onAskHistoricDataForSymbol(String symbol, TimeInterval interval, RequestPriority priority) {
 		for (DatabaseActionListener obs : databaseActionObservers) {
-			obs.onAskHistoricDataForSymbol(symbol, interval);
+			obs.onAskHistoricDataForSymbol(symbol, interval, priority);
 		}
 	}
 
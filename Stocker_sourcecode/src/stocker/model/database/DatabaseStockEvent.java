@@ -0,0 +1,12 @@
+package stocker.model.database;
+
+/**
+ * The kinds of events a {@code DatabaseStockListener} is notified about. Used
+ * to subscribe a listener to specific events of a specific symbol.
+ * 
+ * @author Christoph Kaplan
+ *
+ */
+public enum DatabaseStockEvent {
+	Added, Removed, Update, DisplayTypeChange, Calculated, AlarmAdded, AlarmRemove
+}
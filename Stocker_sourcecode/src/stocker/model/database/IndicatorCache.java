@@ -0,0 +1,114 @@
+package stocker.model.database;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import stocker.model.general.IndicatorBase;
+import stocker.model.general.TimeInterval;
+import stocker.model.stockdata.CandleSeries;
+
+/**
+ * The indicator cache holds the indicator results of the stocks. An entry is
+ * identified by symbol, {@code TimeInterval} and the indicator type and
+ * parameters, it is an indicator object of its own whose stream results are
+ * based on the {@code CandleSeries} of the corresponding
+ * {@code StockDataCalculator}. As long as the series version does not change,
+ * the results are returned without any calculation, a new version only
+ * processes the changed candles. The amount of entries is bounded, the least
+ * recently used entry is removed first.
+ *
+ * Used on the event dispatch thread only, like the model it belongs to.
+ *
+ * @author Christoph Kaplan
+ *
+ */
+public class IndicatorCache {
+
+	/** standard maximum amount of entries */
+	public static final int DEFAULT_MAX_ENTRIES = 128;
+
+	private LinkedHashMap<String, IndicatorBase> entries;
+
+	/**
+	 * {@code IndicatorCache} constructor, uses the standard maximum amount of
+	 * entries.
+	 */
+	public IndicatorCache() {
+		this(DEFAULT_MAX_ENTRIES);
+	}
+
+	/**
+	 * {@code IndicatorCache} constructor
+	 *
+	 * @param maxEntries the maximum amount of entries
+	 */
+	public IndicatorCache(int maxEntries) {
+		// access ordered map, the eldest entry is the least recently used one
+		this.entries = new LinkedHashMap<String, IndicatorBase>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, IndicatorBase> eldest) {
+				return size() > maxEntries;
+			}
+		};
+	}
+
+	/**
+	 * Gets the indicator results for a symbol and {@code TimeInterval}. Creates a
+	 * new entry if none exists and brings the entry up to date with the series.
+	 *
+	 * @param symbol    the symbol
+	 * @param interval  the {@code TimeInterval}
+	 * @param indicator the indicator, defines type and parameters
+	 * @param series    the {@code CandleSeries} the results are based on
+	 * @return the indicator object that holds the results
+	 */
+	public IndicatorBase get(String symbol, TimeInterval interval, IndicatorBase indicator,
+			CandleSeries series) {
+		String key = createKey(symbol, interval, indicator);
+		IndicatorBase entry = this.entries.get(key);
+		if (entry == null) {
+			entry = indicator.copy();
+			this.entries.put(key, entry);
+		}
+		entry.updateStream(series);
+		return entry;
+	}
+
+	/**
+	 * Removes all entries of a symbol.
+	 *
+	 * @param symbol the symbol
+	 */
+	public void invalidate(String symbol) {
+		String prefix = symbol + "|";
+		Iterator<String> it = this.entries.keySet().iterator();
+		while (it.hasNext()) {
+			if (it.next().startsWith(prefix)) {
+				it.remove();
+			}
+		}
+	}
+
+	/**
+	 * Removes all entries.
+	 */
+	public void clear() {
+		this.entries.clear();
+	}
+
+	/**
+	 * Gets the amount of entries.
+	 *
+	 * @return the amount of entries
+	 */
+	public int size() {
+		return this.entries.size();
+	}
+
+	private String createKey(String symbol, TimeInterval interval, IndicatorBase indicator) {
+		return symbol + "|" + interval.name() + "|" + indicator.getParameterKey();
+	}
+}
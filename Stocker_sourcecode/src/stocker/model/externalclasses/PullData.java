@@ -38,6 +38,41 @@ public class PullData {
 	@SerializedName("v")
 	private double[] v;
 
+	/** true if the timestamps are converted to milliseconds already */
+	private transient boolean timestampInMillis;
+
+	/** amount of candles if the columns may be longer, -1 if given by the columns */
+	private transient int length = -1;
+
+	/**
+	 * {@code PullData} constructor, used when deserialized by Gson.
+	 */
+	public PullData() {
+	}
+
+	/**
+	 * {@code PullData} constructor, wraps the given columns without copying.
+	 * @param s status
+	 * @param c close price
+	 * @param h high price
+	 * @param l low price
+	 * @param o open price
+	 * @param t Unix timestamp in milliseconds
+	 * @param v volume
+	 * @param length amount of candles, the columns may be longer
+	 */
+	public PullData(String s, double[] c, double[] h, double[] l, double[] o, long[] t, double[] v, int length) {
+		this.s = s;
+		this.length = length;
+		this.c = c;
+		this.h = h;
+		this.l = l;
+		this.o = o;
+		this.t = t;
+		this.v = v;
+		this.timestampInMillis = true;
+	}
+
 	/**
 	 * Gets status
 	 * @return the status
@@ -46,6 +81,17 @@ public class PullData {
 		return s;
 	}
 
+	/**
+	 * Gets the amount of candles, the columns may be longer.
+	 * @return the amount of candles
+	 */
+	public int getLength() {
+		if (this.length >= 0) {
+			return this.length;
+		}
+		return this.c == null ? 0 : this.c.length;
+	}
+
 	/**
 	 * Gets close price
 	 * @return the close price
@@ -92,11 +138,14 @@ public class PullData {
 
 	/**
 	 * Gets timestamp in milliseconds
-	 * @return the timestamp in milliseconds
+	 * @return the timestamp in milliseconds, a copy if the timestamps are in seconds
 	 */
 	public long[] getTimestampInMillies() {
-		long[] millis = new long[t.length];
-		for(int i = 0; i< t.length;i++) {
+		if (this.timestampInMillis) {
+			return this.t;
+		}
+		long[] millis = new long[getLength()];
+		for(int i = 0; i< millis.length;i++) {
 			millis[i] = t[i]*1000L;
 		}
 		return millis;
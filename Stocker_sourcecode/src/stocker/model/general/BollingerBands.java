@@ -2,18 +2,20 @@ package stocker.model.general;
 
 import java.awt.Color;
 
+import stocker.model.stockdata.CandleSeries;
+
 /**
  * The class class BollingerBands defines the indicator “Bollinger Bands”. It is
  * based on the simple moving average indicator and is therefore derived from
  * the {@code SimpleMovingAverage} class. It declares the variables f for the
  * “bandwidth” and m for the number of sums.
- * {@link #calcUpperBollingerBand(double, int, int, int, double[])} calculates
- * the “Upper Bollinger Band” at index i.
  * {@link #getUpperBollingerBand(int, double[])} calculates the “Upper Bollinger
  * Band” for multiple closing prices, over an entire range. From the total
  * number of data given - amountPrices to the most recent closing price. Very
  * similar methods are implemented for the “Lower Bollinger Band”.
- * 
+ * {@link #calcBollingerBandsRange(int, int, double[])} calculates the middle,
+ * upper and lower band for a whole range in a single pass, based on running
+ * sums of the prices and the squared prices.
  * 
  * @author Christoph Kaplan
  */
@@ -21,6 +23,61 @@ public class BollingerBands extends SimpleMovingAverage {
 	private double f;
 	private int m;
 
+	/** indicator lines of the stream */
+	public static final int STREAM_MIDDLE = 0;
+	public static final int STREAM_UPPER = 1;
+	public static final int STREAM_LOWER = 2;
+
+	/** running sums of the stream, prices are shifted by streamShift */
+	private transient double streamShift;
+	private transient double streamSumN;
+	private transient double streamSumM;
+	private transient double streamSumSqM;
+	/** stream updates since the running sums were last summed up exactly */
+	private transient int streamUpdates;
+
+	/**
+	 * Holds the middle, upper and lower band of a range.
+	 */
+	public static class Bands {
+		private double[] middle;
+		private double[] upper;
+		private double[] lower;
+
+		private Bands(double[] middle, double[] upper, double[] lower) {
+			this.middle = middle;
+			this.upper = upper;
+			this.lower = lower;
+		}
+
+		/**
+		 * Gets the middle band, the simple moving average
+		 * 
+		 * @return the middle band
+		 */
+		public double[] getMiddle() {
+			return this.middle;
+		}
+
+		/**
+		 * Gets the upper band
+		 * 
+		 * @return the upper band
+		 */
+		public double[] getUpper() {
+			return this.upper;
+		}
+
+		/**
+		 * Gets the lower band
+		 * 
+		 * @return the lower band
+		 */
+		public double[] getLower() {
+			return this.lower;
+		}
+	}
+
 	/**
 	 * {@code BollingerBands} constructor
 	 * 
@@ -55,49 +112,92 @@ public class BollingerBands extends SimpleMovingAverage {
 	}
 
 	/**
-	 * o method, is needed to calculate the "Bollinger Bands"
+	 * Calculates the middle, upper and lower "Bollinger Bands" over an amount of
+	 * data
 	 * 
-	 * @param i    current index, the considered "spot"
-	 * @param n    amount of prices for the simple moving average
-	 * @param m    amount of sums (?), usually n=m
-	 * @param data data array of {@code double} close price data
-	 * @return {@code double} value, needed for "Bollinger Bands"
+	 * @param amount the amount of prices
+	 * @param data   data array of {@code double} close price data
+	 * @return the middle, upper and lower band
+	 * @throws Exception thrown if not enough data is available
 	 */
-	private double o(int i, int n, int m, double[] data) {
-		double sum = 0f;
-		for (int j = 0; j < m; j++) {
-			sum += Math.pow(predecessor(i, j, data) - calcSimpleMovingAverage(i, n, data), 2);
+	protected Bands getBollingerBands(int amount, double[] data) throws Exception {
+		if (!isEnoughDataAvailable(amount, data)) {
+			throw new Exception("available data :" + data.length + "/"
+					+ (Math.max(this.getNValue(), this.getMValue()) - 1 + amount));
 		}
-		double result = Math.sqrt(sum / m);
-		return result;
+		int startIndex = data.length - amount;
+		return calcBollingerBandsRange(startIndex, amount, data);
 	}
 
 	/**
-	 * Calculates the "Upper Bollinger Band"
+	 * Calculates the middle, upper and lower "Bollinger Bands" for a range of
+	 * indices in a single pass. The sum of the n prices and the sum and sum of
+	 * squares of the m prices are updated while moving along the range. The sum
+	 * of squared deviations from the moving average mu follows from
+	 * {@code sumSq - 2 * mu * sum + m * mu * mu}. All prices are shifted by a
+	 * recent price to keep the sums small and the subtraction numerically
+	 * stable. Every max(n, m) indices the windows are summed up exactly and
+	 * shifted by the current price, like the stream does, so the rounding errors
+	 * do not accumulate over the range.
 	 * 
-	 * @param f    f value
-	 * @param i    i index
-	 * @param n    n amount
-	 * @param m    m amount
-	 * @param data data array of {@code double} close price data
-	 * @return {@code double} result, the "Upper Bollinger Bands"
+	 * @param startIndex first index of the range
+	 * @param amount     amount of indices
+	 * @param data       array of {@code double} close price data
+	 * @return the middle, upper and lower band
 	 */
-	protected double calcUpperBollingerBand(double f, int i, int n, int m, double[] data) {
-		return calcSimpleMovingAverage(i, n, data) + (f * o(i, m, n, data));
-	}
+	protected Bands calcBollingerBandsRange(int startIndex, int amount, double[] data) {
+		int n = this.getNValue();
+		int m = this.getMValue();
+		double[] middle = new double[amount];
+		double[] upper = new double[amount];
+		double[] lower = new double[amount];
+		if (n == 0 || m == 0) {
+			System.err.println("n or m is 0");
+			return new Bands(middle, upper, lower);
+		}
+		if (amount == 0) {
+			return new Bands(middle, upper, lower);
+		}
 
-	/**
-	 * Calculates the "Lower Bollinger Band"
-	 * 
-	 * @param f    f value
-	 * @param i    i index
-	 * @param n    n amount
-	 * @param m    m amount
-	 * @param data data array of {@code double} close price data
-	 * @return {@code double} result, the "Lower Bollinger Bands"
-	 */
-	protected double calcLowerBollingerBand(double f, int i, int n, int m, double[] data) {
-		return calcSimpleMovingAverage(i, n, data) - (f * o(i, n, m, data));
+		int resumInterval = Math.max(n, m);
+		double shift = 0f;
+		double sumN = 0f;
+		double sumM = 0f;
+		double sumSqM = 0f;
+
+		for (int j = 0; j < amount; j++) {
+			int i = startIndex + j;
+			if (j % resumInterval == 0) {
+				// O(n + m) every max(n, m) indices, O(1) amortized
+				shift = data[i];
+				sumN = 0f;
+				for (int k = 0; k < n; k++) {
+					sumN += predecessor(i, k, data) - shift;
+				}
+				sumM = 0f;
+				sumSqM = 0f;
+				for (int k = 0; k < m; k++) {
+					double v = predecessor(i, k, data) - shift;
+					sumM += v;
+					sumSqM += v * v;
+				}
+			} else {
+				double in = data[i] - shift;
+				double outN = data[i - n] - shift;
+				double outM = data[i - m] - shift;
+				sumN += in - outN;
+				sumM += in - outM;
+				sumSqM += in * in - outM * outM;
+			}
+			double mu = sumN / n;
+			double deviation = sumSqM - 2 * mu * sumM + m * mu * mu;
+			double o = Math.sqrt(Math.max(0, deviation) / m);
+
+			middle[j] = mu + shift;
+			upper[j] = middle[j] + this.getFValue() * o;
+			lower[j] = middle[j] - this.getFValue() * o;
+		}
+		return new Bands(middle, upper, lower);
 	}
 
 	/**
@@ -109,20 +209,7 @@ public class BollingerBands extends SimpleMovingAverage {
 	 * @throws Exception thrown if not enough data is available
 	 */
 	public double[] getUpperBollingerBand(int amount, double[] data) throws Exception {
-		if (!isEnoughDataAvailable(amount, data)) {
-			throw new Exception("available data :" + data.length + "/" + (this.getNValue() - 1 + amount));
-		}
-
-		double[] calculatedUpperBB = new double[amount];
-		int startIndex = data.length - amount;
-
-		int j = 0;// arrayIndex
-		for (int i = startIndex; i < data.length; i++) {
-			double upper = calcUpperBollingerBand(this.getFValue(), i, this.getNValue(), this.getMValue(), data);
-			calculatedUpperBB[j] = upper;
-			j++;
-		}
-		return calculatedUpperBB;
+		return getBollingerBands(amount, data).getUpper();
 	}
 
 	/**
@@ -134,20 +221,123 @@ public class BollingerBands extends SimpleMovingAverage {
 	 * @throws Exception thrown if not enough data is available
 	 */
 	public double[] getLowerBollingerBand(int amount, double[] data) throws Exception {
-		if (!isEnoughDataAvailable(amount, data)) {
-			throw new Exception("available data :" + data.length + "/" + (this.getNValue() - 1 + amount));
+		return getBollingerBands(amount, data).getLower();
+	}
+
+	@Override
+	public int getMaxAmout(int dataLength) {
+		int v = dataLength - Math.max(this.getNValue(), this.getMValue()) + 1;
+		return v;
+	}
+
+	@Override
+	public String getParameterKey() {
+		return this.getType() + "(" + this.f + "," + this.getNValue() + "," + this.m + ")";
+	}
+
+	@Override
+	public IndicatorBase copy() {
+		return new BollingerBands(this.getType(), this.f, this.getNValue(), this.m, this.getColor());
+	}
+
+	@Override
+	protected int getStreamLineCount() {
+		return 3;
+	}
+
+	@Override
+	protected void streamReset() {
+		this.streamShift = Double.NaN;
+		this.streamSumN = 0f;
+		this.streamSumM = 0f;
+		this.streamSumSqM = 0f;
+		this.streamUpdates = 0;
+	}
+
+	@Override
+	protected void streamAdd(CandleSeries series, int i) {
+		if (Double.isNaN(this.streamShift)) {
+			this.streamShift = series.getClose(i);
+		}
+		double in = series.getClose(i) - this.streamShift;
+		this.streamSumN += in;
+		this.streamSumM += in;
+		this.streamSumSqM += in * in;
+		if (i >= this.getNValue()) {
+			this.streamSumN -= series.getClose(i - this.getNValue()) - this.streamShift;
+		}
+		if (i >= this.m) {
+			double out = series.getClose(i - this.m) - this.streamShift;
+			this.streamSumM -= out;
+			this.streamSumSqM -= out * out;
 		}
+		streamResumIfDue(series, i);
+		setStreamBands(i);
+	}
 
-		double[] calculatedLowerBB = new double[amount];
-		int startIndex = data.length - amount;
+	@Override
+	protected void streamReplace(CandleSeries series, int i, double oldClose) {
+		double in = series.getClose(i) - this.streamShift;
+		double out = oldClose - this.streamShift;
+		this.streamSumN += in - out;
+		this.streamSumM += in - out;
+		this.streamSumSqM += in * in - out * out;
+		streamResumIfDue(series, i);
+		setStreamBands(i);
+	}
+
+	/**
+	 * Sums up the windows ending at index i exactly, every max(n, m) stream
+	 * updates. The incremental updates accumulate rounding errors, and the sum of
+	 * squared deviations loses precision when the prices drift away from
+	 * streamShift, so streamShift is moved to the latest price as well. Costs
+	 * O(n + m) every max(n, m) updates, which keeps the updates O(1) amortized.
+	 * 
+	 * @param series the {@code CandleSeries}
+	 * @param i      the index of the latest processed candle
+	 */
+	private void streamResumIfDue(CandleSeries series, int i) {
+		int n = this.getNValue();
+		this.streamUpdates++;
+		if (this.streamUpdates < Math.max(n, this.m)) {
+			return;
+		}
+		this.streamUpdates = 0;
 
-		int j = 0;// arrayIndex
-		for (int i = startIndex; i < data.length; i++) {
-			double upper = calcLowerBollingerBand(this.getFValue(), i, this.getNValue(), this.getMValue(), data);
-			calculatedLowerBB[j] = upper;
-			j++;
+		this.streamShift = series.getClose(i);
+		this.streamSumN = 0f;
+		for (int j = Math.max(0, i - n + 1); j <= i; j++) {
+			this.streamSumN += series.getClose(j) - this.streamShift;
 		}
-		return calculatedLowerBB;
+		this.streamSumM = 0f;
+		this.streamSumSqM = 0f;
+		for (int j = Math.max(0, i - this.m + 1); j <= i; j++) {
+			double v = series.getClose(j) - this.streamShift;
+			this.streamSumM += v;
+			this.streamSumSqM += v * v;
+		}
+	}
+
+	/**
+	 * Sets the middle, upper and lower stream results at index i
+	 * 
+	 * @param i the candle index
+	 */
+	private void setStreamBands(int i) {
+		int n = this.getNValue();
+		if (n == 0 || this.m == 0 || i < Math.max(n, this.m) - 1) {
+			setStreamValue(STREAM_MIDDLE, i, Double.NaN);
+			setStreamValue(STREAM_UPPER, i, Double.NaN);
+			setStreamValue(STREAM_LOWER, i, Double.NaN);
+			return;
+		}
+		double mu = this.streamSumN / n;
+		double deviation = this.streamSumSqM - 2 * mu * this.streamSumM + this.m * mu * mu;
+		double o = Math.sqrt(Math.max(0, deviation) / this.m);
+
+		setStreamValue(STREAM_MIDDLE, i, mu + this.streamShift);
+		setStreamValue(STREAM_UPPER, i, mu + this.streamShift + this.f * o);
+		setStreamValue(STREAM_LOWER, i, mu + this.streamShift - this.f * o);
 	}
 
 }
@@ -11,19 +11,57 @@ public class DataProviderProfile implements Comparable<DataProviderProfile>{
 	private String apiKey;
 	private String basePullURL;
 	private String basePushURL;
+	private int requestsPerMinute;
+	private int pushConnections;
+
+	/** standard amount of pull requests per minute (Finnhub free plan) */
+	public static final int DEFAULT_REQUESTS_PER_MINUTE = 60;
+	/** standard amount of parallel push connections */
+	public static final int DEFAULT_PUSH_CONNECTIONS = 1;
 
 	/**
-	 * {@code DataProviderProfile} constructor
+	 * {@code DataProviderProfile} constructor, uses the standard amount of pull
+	 * requests per minute and of push connections.
 	 * @param name the name of this profile
 	 * @param apiKey the api key
 	 * @param basePullURL the pull url
 	 * @param basePushURL the push url
 	 */
 	public DataProviderProfile(String name, String apiKey, String basePullURL, String basePushURL) {
+		this(name, apiKey, basePullURL, basePushURL, DEFAULT_REQUESTS_PER_MINUTE);
+	}
+
+	/**
+	 * {@code DataProviderProfile} constructor, uses the standard amount of push
+	 * connections.
+	 * @param name the name of this profile
+	 * @param apiKey the api key
+	 * @param basePullURL the pull url
+	 * @param basePushURL the push url
+	 * @param requestsPerMinute the amount of pull requests per minute the provider permits
+	 */
+	public DataProviderProfile(String name, String apiKey, String basePullURL, String basePushURL,
+			int requestsPerMinute) {
+		this(name, apiKey, basePullURL, basePushURL, requestsPerMinute, DEFAULT_PUSH_CONNECTIONS);
+	}
+
+	/**
+	 * {@code DataProviderProfile} constructor
+	 * @param name the name of this profile
+	 * @param apiKey the api key
+	 * @param basePullURL the pull url
+	 * @param basePushURL the push url
+	 * @param requestsPerMinute the amount of pull requests per minute the provider permits
+	 * @param pushConnections the amount of parallel push connections the symbols are spread over
+	 */
+	public DataProviderProfile(String name, String apiKey, String basePullURL, String basePushURL,
+			int requestsPerMinute, int pushConnections) {
 		this.name = name;
 		this.apiKey = apiKey;
 		this.basePullURL = basePullURL;
 		this.basePushURL = basePushURL;
+		this.requestsPerMinute = requestsPerMinute;
+		this.pushConnections = pushConnections;
 	}
 
 	/**
@@ -58,7 +96,31 @@ public class DataProviderProfile implements Comparable<DataProviderProfile>{
 		return this.basePushURL;
 	}
 
+	/**
+	 * Gets the amount of pull requests per minute the provider permits. Profiles
+	 * saved without this value use the standard amount.
+	 * @return the amount of pull requests per minute
+	 */
+	public int getRequestsPerMinute() {
+		if (this.requestsPerMinute <= 0) {
+			return DEFAULT_REQUESTS_PER_MINUTE;
+		}
+		return this.requestsPerMinute;
+	}
+
 	
+	/**
+	 * Gets the amount of parallel push connections. Profiles saved without this
+	 * value use the standard amount.
+	 * @return the amount of push connections
+	 */
+	public int getPushConnections() {
+		if (this.pushConnections <= 0) {
+			return DEFAULT_PUSH_CONNECTIONS;
+		}
+		return this.pushConnections;
+	}
+
 	/**
 	 * Constructs a data query url, to ask for historic data.
 	 * @param symbol the considered symbol
@@ -1,6 +1,9 @@
 package stocker.model.general;
 
 import java.awt.Color;
+import java.util.Arrays;
+
+import stocker.model.stockdata.CandleSeries;
 
 /**
  * This abstract class is a basis of the indicators. An enum
@@ -9,6 +12,14 @@ import java.awt.Color;
  * dialog window. An override of the toString () method returns the indicator
  * name / type and the given parameterization as a string. This is used for
  * visual representation.
+ * <p>
+ * Besides the batch calculation over a whole array, an indicator can be used
+ * in a streaming form. {@link #updateStream(CandleSeries)} initialises the
+ * indicator once from a {@code CandleSeries} and afterwards only processes
+ * the candles that were appended or changed since the last call, in O(1) per
+ * candle. The results are kept in primitive buffers, one per indicator line,
+ * with the same indices as the candles of the series. The stream is not
+ * synchronized, it is used on the event dispatch thread only.
  * 
  * @author Christoph Kaplan
  *
@@ -25,6 +36,17 @@ public abstract class IndicatorBase {
 	 */
 	private Color color;
 
+	/** the series the stream is based on, not persisted */
+	private transient CandleSeries streamSeries;
+	/** series version at the last stream update */
+	private transient long streamVersion;
+	/** amount of candles processed by the stream */
+	private transient int streamLength;
+	/** close price of the latest processed candle */
+	private transient double streamLastClose;
+	/** stream results, one buffer per indicator line */
+	private transient double[][] streamBuffer;
+
 	/**
 	 * {@code IndicatorBase} constructor
 	 * 
@@ -43,20 +65,65 @@ public abstract class IndicatorBase {
 	 * @param data        data array of {@code double} close price data
 	 */
 	protected boolean isEnoughDataAvailable(int askedAmount, double[] data) {
-		if (askedAmount > this.getMaxAmout(data)) {
+		return isEnoughDataAvailable(askedAmount, data.length);
+	}
+
+	/**
+	 * Checks if enough data is available
+	 * 
+	 * @param askedAmount asked data amount
+	 * @param dataLength  amount of available close price data
+	 */
+	protected boolean isEnoughDataAvailable(int askedAmount, int dataLength) {
+		if (askedAmount > this.getMaxAmout(dataLength)) {
 			return false;
 		}
 		return true;
 	}
 
 	/**
-	 * 
-	 * /** Gets the maximum amount of indicator data
+	 * Gets the maximum amount of indicator data
 	 * 
 	 * @param data stock data
 	 * @return maximum amount of indicator data
 	 */
-	public abstract int getMaxAmout(double[] data);
+	public int getMaxAmout(double[] data) {
+		return getMaxAmout(data.length);
+	}
+
+	/**
+	 * Gets the maximum amount of indicator data
+	 * 
+	 * @param series stock data
+	 * @return maximum amount of indicator data
+	 */
+	public int getMaxAmout(CandleSeries series) {
+		return getMaxAmout(series.size());
+	}
+
+	/**
+	 * Gets the maximum amount of indicator data
+	 * 
+	 * @param dataLength amount of available close price data
+	 * @return maximum amount of indicator data
+	 */
+	public abstract int getMaxAmout(int dataLength);
+
+	/**
+	 * Gets a key that identifies the indicator type and all parameters that
+	 * influence the results
+	 * 
+	 * @return the parameter key
+	 */
+	public abstract String getParameterKey();
+
+	/**
+	 * Creates a new indicator object with the same type, parameters and color,
+	 * without any calculated results
+	 * 
+	 * @return the new indicator object
+	 */
+	public abstract IndicatorBase copy();
 
 	/**
 	 * {@code IndicatorBase} constructor
@@ -67,6 +134,139 @@ public abstract class IndicatorBase {
 		this.type = type;
 	}
 
+	////////////////////////////////////////////////////////
+	//
+	// STREAMING
+	//
+	////////////////////////////////////////////////////////
+
+	/**
+	 * Updates the stream results to the current state of the series. A new
+	 * series, or a series that became shorter, initialises the stream.
+	 * Otherwise the latest processed candle is updated and the appended
+	 * candles are added.
+	 * 
+	 * @param series the {@code CandleSeries}
+	 */
+	public void updateStream(CandleSeries series) {
+		if (series != this.streamSeries || series.size() < this.streamLength) {
+			this.streamSeries = series;
+			this.streamLength = 0;
+			this.streamBuffer = new double[getStreamLineCount()][Math.max(16, series.size())];
+			streamReset();
+		} else if (series.getVersion() == this.streamVersion) {
+			return; // no change
+		}
+
+		if (this.streamLength > 0 && series.getClose(this.streamLength - 1) != this.streamLastClose) {
+			streamReplace(series, this.streamLength - 1, this.streamLastClose);
+		}
+		for (int i = this.streamLength; i < series.size(); i++) {
+			ensureStreamCapacity(i + 1);
+			streamAdd(series, i);
+			this.streamLength++;
+		}
+		if (this.streamLength > 0) {
+			this.streamLastClose = series.getClose(this.streamLength - 1);
+		}
+		this.streamVersion = series.getVersion();
+	}
+
+	/**
+	 * Grows the stream buffers if needed
+	 * 
+	 * @param capacity the needed capacity
+	 */
+	private void ensureStreamCapacity(int capacity) {
+		if (capacity <= this.streamBuffer[0].length) {
+			return;
+		}
+		int newCapacity = Math.max(capacity, this.streamBuffer[0].length + (this.streamBuffer[0].length >> 1));
+		for (int line = 0; line < this.streamBuffer.length; line++) {
+			this.streamBuffer[line] = Arrays.copyOf(this.streamBuffer[line], newCapacity);
+		}
+	}
+
+	/**
+	 * Sets a stream result, is used by the derived indicators.
+	 * 
+	 * @param line  the indicator line
+	 * @param i     the candle index
+	 * @param value the result
+	 */
+	protected void setStreamValue(int line, int i, double value) {
+		this.streamBuffer[line][i] = value;
+	}
+
+	/**
+	 * Gets the amount of candles processed by the stream
+	 * 
+	 * @return the amount of processed candles
+	 */
+	public int getStreamLength() {
+		return this.streamLength;
+	}
+
+	/**
+	 * Gets a stream result, NaN where not enough data was available.
+	 * 
+	 * @param line the indicator line
+	 * @param i    the candle index
+	 * @return the result
+	 */
+	public double getStreamValue(int line, int i) {
+		return this.streamBuffer[line][i];
+	}
+
+	/**
+	 * Gets the raw result buffer of an indicator line. Only the first
+	 * {@link #getStreamLength()} values are valid, the buffer is replaced when it
+	 * grows.
+	 * 
+	 * @param line the indicator line
+	 * @return the result buffer
+	 */
+	public double[] getStreamBuffer(int line) {
+		return this.streamBuffer[line];
+	}
+
+	/**
+	 * Gets the amount of indicator lines the stream calculates
+	 * 
+	 * @return amount of indicator lines
+	 */
+	protected abstract int getStreamLineCount();
+
+	/**
+	 * Resets the running state of the stream
+	 */
+	protected abstract void streamReset();
+
+	/**
+	 * Adds the candle at index i to the running state and sets its results. The
+	 * candle is the one after the latest processed candle.
+	 * 
+	 * @param series the {@code CandleSeries}
+	 * @param i      the candle index
+	 */
+	protected abstract void streamAdd(CandleSeries series, int i);
+
+	/**
+	 * Updates the running state after the close price of the latest processed
+	 * candle has changed and sets its results again.
+	 * 
+	 * @param series   the {@code CandleSeries}
+	 * @param i        the candle index
+	 * @param oldClose the close price that was processed before
+	 */
+	protected abstract void streamReplace(CandleSeries series, int i, double oldClose);
+
+	////////////////////////////////////////////////////////
+	//
+	// GETTERs
+	//
+	////////////////////////////////////////////////////////
+
 	/**
 	 * Gets the type.
 	 * 
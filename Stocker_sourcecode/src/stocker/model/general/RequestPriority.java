@@ -0,0 +1,10 @@
+package stocker.model.general;
+
+/**
+ * The request priority determines the order in which pull requests are sent to
+ * the data provider, requests for visible charts (and user searches) first,
+ * then quotes for the watchlist and last the background prefetch.
+ * @author Christoph Kaplan
+ *
+ */
+public enum RequestPriority {Chart,Quote,Background}
@@ -2,6 +2,8 @@ package stocker.model.general;
 
 import java.awt.Color;
 
+import stocker.model.stockdata.CandleSeries;
+
 /**
  * The SimpleMovingAverage class defines the “Simple Moving Average” indicator.
  * It is derived from {@code IndicatorBase} and declares an additional variable
@@ -13,13 +15,16 @@ import java.awt.Color;
  * calculates the moving average at index i and {@link #getSMA(int, double[])}
  * calculates the moving average for multiple closing prices, across an entire
  * range. From the total number of data given - amountPrices to the most recent
- * closing price.
+ * closing price. The range is calculated in a single pass with a running sum.
  * 
  * @author Christoph Kaplan
  */
 public class SimpleMovingAverage extends IndicatorBase {
 	private int n;
 
+	/** running sum of the stream */
+	private transient double streamSum;
+
 	/**
 	 * {@code SimpleMovingAverage} constructor
 	 * 
@@ -92,23 +97,98 @@ public class SimpleMovingAverage extends IndicatorBase {
 			throw new Exception("available data :" + data.length + "/" + (this.getNValue() - 1 + amount));
 		}
 
-		double[] calculatedSMA = new double[amount];
 		int startIndex = data.length - amount;
+		return calcSimpleMovingAverageRange(startIndex, amount, this.getNValue(), data);
+	}
 
-		int j = 0; // arrayIndex
-		for (int i = startIndex; i < data.length; i++) {
-			double sma = calcSimpleMovingAverage(i, this.getNValue(), data);
-			calculatedSMA[j] = sma;
-			j++;
+	/**
+	 * Calculates the "Simple Moving Average" for a range of indices in a single
+	 * pass, the sum of the n prices is updated while moving along the range
+	 * instead of being recalculated at each index.
+	 * 
+	 * @param startIndex first index of the range
+	 * @param amount     amount of indices
+	 * @param n          amount of all prices
+	 * @param data       array of {@code double} close price data
+	 * @return {@code double} values, simple moving average at each index
+	 */
+	protected double[] calcSimpleMovingAverageRange(int startIndex, int amount, int n, double[] data) {
+		double[] calculatedSMA = new double[amount];
+		if (n == 0) {
+			System.err.println("n is 0");
+			return calculatedSMA;
+		}
+		if (amount == 0) {
+			return calculatedSMA;
+		}
+
+		double sum = 0f;
+		for (int j = 0; j < n; j++) {
+			sum += predecessor(startIndex, j, data);
+		}
+		calculatedSMA[0] = sum / n;
+
+		for (int j = 1; j < amount; j++) {
+			int i = startIndex + j;
+			sum += data[i] - data[i - n];
+			calculatedSMA[j] = sum / n;
 		}
 
 		return calculatedSMA;
 	}
 
 	@Override
-	public int getMaxAmout(double[] data) {
-		int v = data.length - this.getNValue() + 1;
+	public int getMaxAmout(int dataLength) {
+		int v = dataLength - this.getNValue() + 1;
 		return v;
 	}
 
+	@Override
+	public String getParameterKey() {
+		return this.getType() + "(" + this.n + ")";
+	}
+
+	@Override
+	public IndicatorBase copy() {
+		return new SimpleMovingAverage(this.getType(), this.n, this.getColor());
+	}
+
+	@Override
+	protected int getStreamLineCount() {
+		return 1;
+	}
+
+	@Override
+	protected void streamReset() {
+		this.streamSum = 0f;
+	}
+
+	@Override
+	protected void streamAdd(CandleSeries series, int i) {
+		this.streamSum += series.getClose(i);
+		if (i >= this.n) {
+			this.streamSum -= series.getClose(i - this.n);
+		}
+		setStreamValue(0, i, streamSMA(i));
+	}
+
+	@Override
+	protected void streamReplace(CandleSeries series, int i, double oldClose) {
+		this.streamSum += series.getClose(i) - oldClose;
+		setStreamValue(0, i, streamSMA(i));
+	}
+
+	/**
+	 * Gets the moving average of the stream at index i
+	 * 
+	 * @param i the candle index
+	 * @return the moving average, NaN if not enough data is available
+	 */
+	private double streamSMA(int i) {
+		if (this.n == 0 || i < this.n - 1) {
+			return Double.NaN;
+		}
+		return this.streamSum / this.n;
+	}
+
 }
@@ -0,0 +1,319 @@
+package stocker.model.stockdata;
+
+import java.util.Arrays;
+
+/**
+ * {@code CandleSeries} class, stores a series of candles as parallel primitive
+ * columns (open, high, low, close, time and volume) instead of one
+ * {@code Candle} object per candle. A series can be a view on a range of
+ * another series' columns, {@link #slice(int, int)} and {@link #latest(int)}
+ * create such views without copying any data. Only a series that starts at
+ * column index 0 can be appended to. When appending exceeds the column
+ * capacity, new columns are allocated, views that were created before keep
+ * the old columns. Wrapped columns are never appended to in place, even if
+ * they are longer than the series, as they may be shared. Every modification increases the version of the series,
+ * which allows calculations on the series to be cached.
+ *
+ * @author Christoph Kaplan
+ *
+ */
+public class CandleSeries {
+
+	private double[] open;
+	private double[] high;
+	private double[] low;
+	private double[] close;
+	private long[] time;
+	private double[] volume;
+
+	/** column index of the first candle */
+	private int offset;
+	/** amount of candles */
+	private int length;
+	/** amount of candles the columns can take before they have to be copied */
+	private int capacity;
+	/** modification counter */
+	private long version;
+
+	/**
+	 * {@code CandleSeries} constructor, creates an empty series.
+	 *
+	 * @param capacity the initial column capacity
+	 */
+	public CandleSeries(int capacity) {
+		this(new double[capacity], new double[capacity], new double[capacity], new double[capacity],
+				new long[capacity], new double[capacity], 0, 0);
+		this.capacity = capacity;
+	}
+
+	/**
+	 * {@code CandleSeries} constructor, wraps the given columns without copying.
+	 *
+	 * @param close  close price column
+	 * @param high   high price column
+	 * @param low    low price column
+	 * @param open   open price column
+	 * @param time   time column
+	 * @param volume volume column
+	 */
+	public CandleSeries(double[] close, double[] high, double[] low, double[] open, long[] time, double[] volume) {
+		this(close, high, low, open, time, volume, close.length);
+	}
+
+	/**
+	 * {@code CandleSeries} constructor, wraps the first candles of the given
+	 * columns without copying.
+	 *
+	 * @param close  close price column
+	 * @param high   high price column
+	 * @param low    low price column
+	 * @param open   open price column
+	 * @param time   time column
+	 * @param volume volume column
+	 * @param length amount of candles, the columns may be longer
+	 */
+	public CandleSeries(double[] close, double[] high, double[] low, double[] open, long[] time, double[] volume,
+			int length) {
+		this(open, high, low, close, time, volume, 0, length);
+	}
+
+	private CandleSeries(double[] open, double[] high, double[] low, double[] close, long[] time,
+			double[] volume, int offset, int length) {
+		this.open = open;
+		this.high = high;
+		this.low = low;
+		this.close = close;
+		this.time = time;
+		this.volume = volume;
+		this.offset = offset;
+		this.length = length;
+		this.capacity = length;
+	}
+
+	/**
+	 * Gets the amount of candles.
+	 *
+	 * @return the amount of candles
+	 */
+	public int size() {
+		return this.length;
+	}
+
+	/**
+	 * Gets the open price at an index.
+	 *
+	 * @param i the index
+	 * @return the open price
+	 */
+	public double getOpen(int i) {
+		return this.open[this.offset + i];
+	}
+
+	/**
+	 * Gets the high price at an index.
+	 *
+	 * @param i the index
+	 * @return the high price
+	 */
+	public double getHigh(int i) {
+		return this.high[this.offset + i];
+	}
+
+	/**
+	 * Gets the low price at an index.
+	 *
+	 * @param i the index
+	 * @return the low price
+	 */
+	public double getLow(int i) {
+		return this.low[this.offset + i];
+	}
+
+	/**
+	 * Gets the close price at an index.
+	 *
+	 * @param i the index
+	 * @return the close price
+	 */
+	public double getClose(int i) {
+		return this.close[this.offset + i];
+	}
+
+	/**
+	 * Gets the time at an index.
+	 *
+	 * @param i the index
+	 * @return the time
+	 */
+	public long getTime(int i) {
+		return this.time[this.offset + i];
+	}
+
+	/**
+	 * Gets the volume at an index.
+	 *
+	 * @param i the index
+	 * @return the volume
+	 */
+	public double getVolume(int i) {
+		return this.volume[this.offset + i];
+	}
+
+	/**
+	 * Checks if the candle at an index has an upward or downward trend.
+	 *
+	 * @param i the index
+	 * @return true if upward trends, false if downward
+	 */
+	public boolean upwardTrend(int i) {
+		if (getOpen(i) >= getClose(i)) {
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Gets the raw close price column. Together with {@link #getOffset()} and
+	 * {@link #size()} it allows calculations on the close prices without
+	 * copying.
+	 *
+	 * @return the close price column
+	 */
+	public double[] getCloseColumn() {
+		return this.close;
+	}
+
+	/**
+	 * Gets the column index of the first candle.
+	 *
+	 * @return the column index of the first candle
+	 */
+	public int getOffset() {
+		return this.offset;
+	}
+
+	/**
+	 * Gets the version, it changes with every modification of the series.
+	 *
+	 * @return the version
+	 */
+	public long getVersion() {
+		return this.version;
+	}
+
+	/**
+	 * Creates a view on a range of this series, no data is copied.
+	 *
+	 * @param from   the index of the first candle
+	 * @param amount the amount of candles
+	 * @return the view
+	 */
+	public CandleSeries slice(int from, int amount) {
+		if (from < 0 || amount < 0 || from + amount > this.length) {
+			throw new IndexOutOfBoundsException("slice(" + from + "," + amount + ") size:" + this.length);
+		}
+		return new CandleSeries(open, high, low, close, time, volume, this.offset + from, amount);
+	}
+
+	/**
+	 * Creates a view on the latest candles of this series, no data is copied.
+	 *
+	 * @param amount the amount of candles
+	 * @return the view
+	 */
+	public CandleSeries latest(int amount) {
+		return slice(this.length - amount, amount);
+	}
+
+	/**
+	 * Appends a candle. Grows the columns if needed.
+	 *
+	 * @param c close price
+	 * @param h high price
+	 * @param l low price
+	 * @param o open price
+	 * @param t time
+	 * @param v volume
+	 */
+	public void append(double c, double h, double l, double o, long t, double v) {
+		if (this.offset != 0) {
+			throw new IllegalStateException("append() not supported by views");
+		}
+		if (this.length == this.capacity) {
+			grow();
+		}
+		set(this.length, c, h, l, o, t, v);
+		this.length++;
+		this.version++;
+	}
+
+	/**
+	 * Overwrites the latest candle.
+	 *
+	 * @param c close price
+	 * @param h high price
+	 * @param l low price
+	 * @param o open price
+	 * @param t time
+	 * @param v volume
+	 */
+	public void updateLast(double c, double h, double l, double o, long t, double v) {
+		set(this.length - 1, c, h, l, o, t, v);
+		this.version++;
+	}
+
+	private void set(int i, double c, double h, double l, double o, long t, double v) {
+		int index = this.offset + i;
+		this.close[index] = c;
+		this.high[index] = h;
+		this.low[index] = l;
+		this.open[index] = o;
+		this.time[index] = t;
+		this.volume[index] = v;
+	}
+
+	/**
+	 * Grows the columns by half of its capacity
+	 */
+	private void grow() {
+		this.capacity = Math.max(16, this.capacity + (this.capacity >> 1));
+		this.open = Arrays.copyOf(this.open, this.capacity);
+		this.high = Arrays.copyOf(this.high, this.capacity);
+		this.low = Arrays.copyOf(this.low, this.capacity);
+		this.close = Arrays.copyOf(this.close, this.capacity);
+		this.time = Arrays.copyOf(this.time, this.capacity);
+		this.volume = Arrays.copyOf(this.volume, this.capacity);
+	}
+
+	/**
+	 * Creates a new {@code Candle} object at an index.
+	 *
+	 * @param i the index
+	 * @return the new {@code Candle} object
+	 */
+	public Candle getCandle(int i) {
+		return new Candle(getClose(i), getHigh(i), getLow(i), getOpen(i), getTime(i), getVolume(i));
+	}
+
+	/**
+	 * Creates an array of new {@code Candle} objects.
+	 *
+	 * @return the array of {@code Candle} objects
+	 */
+	public Candle[] toCandles() {
+		Candle[] candles = new Candle[this.length];
+		for (int i = 0; i < this.length; i++) {
+			candles[i] = getCandle(i);
+		}
+		return candles;
+	}
+
+	/**
+	 * Copies the close prices into a new array.
+	 *
+	 * @return the array of close prices
+	 */
+	public double[] toCloseArray() {
+		return Arrays.copyOfRange(this.close, this.offset, this.offset + this.length);
+	}
+}
@@ -1,6 +1,5 @@
 package stocker.model.stockdata;
 
-import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -17,11 +16,17 @@ import stocker.model.stockdata.StockDataState.StockDataStateType;
  * data from the quote query {@code StockDataQuote}, real-time data, historical data and the data
  * calculated from it. The "calculated data" as well as the historical data {@code StockDataHistoric} are
  * always related to a certain time interval (TimeInterval), so an allocation
- * table for data management is ideal. Real-time data {@code StockDataRealtime} is kept as a list. Various
+ * table for data management is ideal. Real-time data is kept in a {@code StockDataRealtimeStore}. Various
  * getter methods for querying the pull data create a new "dummy" object with
  * the data access status {@code StockDataStateType.unclear}.
  * {@link #getStockDataHistoric(TimeInterval)}, {@link #getStockDataQuote()} and {@link #getStockDataSearch()}
  * 
+ * A {@code StockData} object is only modified by the thread that owns the
+ * database model (the event dispatch thread). Every modification increases a
+ * counter, {@link #publishSnapshot()} then publishes an immutable
+ * {@code StockDataSnapshot} that readers access through
+ * {@link #getSnapshot()} without locking.
+ * 
  *
  * 
  * @author Christoph Kaplan
@@ -43,8 +48,8 @@ public class StockData {
 	 */
 	private Map<TimeInterval, StockDataHistoric> stockDataHistoricMap;
 
-	/** List that stores the retrieved {@code StockDataRealtime} objects. */
-	private ArrayList<StockDataRealtime> stockDataRealtime;
+	/** Ring buffer that stores the retrieved real-time data as primitive columns. */
+	private StockDataRealtimeStore stockDataRealtime;
 
 	/**
 	 * Hash-map that stores and maps a {@code TimeInterval} with the
@@ -52,15 +57,21 @@ public class StockData {
 	 */
 	private Map<TimeInterval, StockDataCalculator> stockDataCalculatorMap;
 
+	/** modification counter, written by the owner thread only */
+	private long modCount;
+	/** latest published snapshot */
+	private volatile StockDataSnapshot snapshot;
+
 	// Constructor
 	public StockData(String symbol, DisplayType displayType) {
 		this.symbol = symbol;
 		this.displayType = displayType;
 		this.stockDataCalculatorMap = new HashMap<TimeInterval, StockDataCalculator>();
 		this.stockDataHistoricMap = new HashMap<TimeInterval, StockDataHistoric>();
-		this.stockDataRealtime = new ArrayList<StockDataRealtime>();
+		this.stockDataRealtime = new StockDataRealtimeStore();
 		this.stockDataQuote = new StockDataQuote();
 		this.stockDataSearch = new StockDataSearch();
+		this.snapshot = new StockDataSnapshot(this, this.modCount);
 	}
 
 	////////////////////////////////////////////////////////
@@ -169,8 +180,7 @@ public class StockData {
 	 */
 	public double getCurrentPrice() {
 		if (realtimeDataAvailable()) {
-			int ind = stockDataRealtime.size() - 1;
-			return stockDataRealtime.get(ind).getPrice();
+			return stockDataRealtime.getLatestPrice();
 		}
 		if (quoteDataAvailable()) {
 			return this.stockDataQuote.getCurrentPriceOfTheDay();
@@ -188,8 +198,7 @@ public class StockData {
 	 */
 	public double getPreviousPrice() {
 		if (realtimeDataAvailable()) {
-			int ind = stockDataRealtime.size() - 2;
-			return stockDataRealtime.get(ind).getPrice();
+			return stockDataRealtime.getPreviousPrice();
 		}
 		if (quoteDataAvailable()) {
 			return this.getPreviousClosePrice();
@@ -274,21 +283,21 @@ public class StockData {
 	}
 
 	/**
-	 * Gets the list of {@code StockDataRealtime} objects.
+	 * Gets the {@code StockDataRealtimeStore} with the real-time data.
 	 * 
-	 * @return the list of {@code StockDataRealtime} objects
+	 * @return the {@code StockDataRealtimeStore} with the real-time data
 	 */
-	public ArrayList<StockDataRealtime> getRealtimeStockData() {
+	public StockDataRealtimeStore getRealtimeStockData() {
 		return this.stockDataRealtime;
 	}
 
 	/**
-	 * Gets the {@code StockDataRealtime} list as array
+	 * Gets the real-time data as array of new {@code StockDataRealtime} objects
 	 * 
-	 * @return the {@code StockDataRealtime} list as array
+	 * @return the real-time data as array
 	 */
 	public StockDataRealtime[] getRealtimeStockDataArray() {
-		return this.stockDataRealtime.toArray(new StockDataRealtime[this.stockDataRealtime.size()]);
+		return this.stockDataRealtime.toArray(this.symbol);
 	}
 
 	/**
@@ -333,6 +342,45 @@ public class StockData {
 		return this.stockDataQuote;
 	}
 
+	/**
+	 * Gets the latest published {@code StockDataSnapshot}, can be called from
+	 * any thread.
+	 * 
+	 * @return the latest published {@code StockDataSnapshot}
+	 */
+	public StockDataSnapshot getSnapshot() {
+		return this.snapshot;
+	}
+
+	////////////////////////////////////////////////////////
+	//
+	// SNAPSHOT
+	//
+	////////////////////////////////////////////////////////
+
+	/**
+	 * Publishes a new {@code StockDataSnapshot}, if this object was modified
+	 * since the latest one. May only be called by the owner thread.
+	 * 
+	 * @return the latest published {@code StockDataSnapshot}
+	 */
+	public StockDataSnapshot publishSnapshot() {
+		StockDataSnapshot current = this.snapshot;
+		if (current.getVersion() != this.modCount) {
+			current = new StockDataSnapshot(this, this.modCount);
+			this.snapshot = current;
+		}
+		return current;
+	}
+
+	/**
+	 * Marks this object as modified, the next {@link #publishSnapshot()} creates
+	 * a new snapshot.
+	 */
+	private void modified() {
+		this.modCount++;
+	}
+
 	////////////////////////////////////////////////////////
 	//
 	// SETTERs
@@ -346,6 +394,7 @@ public class StockData {
 	 */
 	public void setDisplayType(DisplayType displayType) {
 		this.displayType = displayType;
+		modified();
 	}
 
 	/**
@@ -419,6 +468,7 @@ public class StockData {
 	public void addPullSearchDataEntry(PullSearchData.Entry entry) {
 		this.stockDataSearch = new StockDataSearch(entry.getDescription(), entry.getDisplaySymbol(), entry.getSymbol(),
 				entry.getType());
+		modified();
 	}
 
 	/**
@@ -431,7 +481,7 @@ public class StockData {
 	public void addPullData(PullData pullData, TimeInterval interval) {
 				
 		StockDataHistoric hist = new StockDataHistoric(pullData.getClose(), pullData.getHigh(), pullData.getLow(),
-				pullData.getOpen(), pullData.getTimestampInMillies(), pullData.getVolume());
+				pullData.getOpen(), pullData.getTimestampInMillies(), pullData.getVolume(), pullData.getLength());
 		this.stockDataHistoricMap.put(interval, hist);
 	}
 
@@ -444,6 +494,7 @@ public class StockData {
 		this.stockDataQuote = new StockDataQuote(pullQuoteData.getClose(), pullQuoteData.getHigh(),
 				pullQuoteData.getLow(), pullQuoteData.getOpen(), pullQuoteData.getPreviousClose(),
 				pullQuoteData.getTime());
+		modified();
 	}
 
 	/**
@@ -454,6 +505,20 @@ public class StockData {
 	 */
 	public void addPushData(StockDataRealtime realtimePushData) {
 		stockDataRealtime.add(realtimePushData);
+		modified();
+	}
+
+	/**
+	 * Adds a single real-time trade, without creating a
+	 * {@code StockDataRealtime} object.
+	 * 
+	 * @param time   the Unix timestamp in milliseconds
+	 * @param price  the price
+	 * @param volume the volume
+	 */
+	public void addPushData(long time, double price, double volume) {
+		stockDataRealtime.add(time, price, volume);
+		modified();
 	}
 	
 	
@@ -468,6 +533,7 @@ public class StockData {
 	 */
 	public void clearRealtimeData() {
 		this.stockDataRealtime.clear();
+		modified();
 	}
 
 	/**
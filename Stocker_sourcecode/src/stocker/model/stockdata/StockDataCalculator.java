@@ -15,11 +15,19 @@ import stocker.model.general.TimeInterval;
 public class StockDataCalculator extends StockDataState {
 
 	private StockDataHistoric historicStockData;
-	private StockDataRealtime[] realtimeStockDataArray;
 
 	private TimeInterval interval;
-	private Candle[] allCandleArray;
-	private double[] closePriceDataArray;
+	/** historic and real-time candles combined */
+	private CandleSeries candleSeries;
+
+	/** timestamp of the newest historic candle, real-time data up to this time is ignored */
+	private long newestHistoricTime = Long.MIN_VALUE;
+	/** true if the last candle was opened by real-time data and may still be updated */
+	private boolean hasOpenCandle = false;
+	/** timestamp at which the open candle is closed and the next one begins */
+	private long nextCandleTime;
+	/** counts the real-time changes of the candle data */
+	private long version = 0;
 
 	/**
 	 * {@code StockDataCalculator} empty constructor for testing
@@ -38,10 +46,12 @@ public class StockDataCalculator extends StockDataState {
 		super(StockDataStateType.access);
 		this.historicStockData = historicData;
 		this.interval = interval;
-		
-		
-		this.allCandleArray = this.historicStockData.getCandles();
-		resetClosePriceDataArray();
+
+		// shares the historic columns until the first real-time candle is appended
+		this.candleSeries = this.historicStockData.getCandleSeries();
+		if (this.candleSeries.size() > 0) {
+			this.newestHistoricTime = this.candleSeries.getTime(this.candleSeries.size() - 1);
+		}
 	}
 
 	/**
@@ -51,36 +61,74 @@ public class StockDataCalculator extends StockDataState {
 	 * @param realtimeData the real-time data
 	 * @param interval     the associated time interval
 	 */
-	public StockDataCalculator(StockDataHistoric historicData, ArrayList<StockDataRealtime> realtimeData,TimeInterval interval) {
-		super(StockDataStateType.access);
-		this.interval = interval;
-		this.historicStockData = historicData;
-		
-		
-		
-		//trim realtime data to get rid of "too old" values
-		long newestTime = this.historicStockData.getTimestamp()[historicStockData.getTimestamp().length-1];
-		
-		ArrayList<StockDataRealtime> realtimeDataCopy = new ArrayList<StockDataRealtime>(realtimeData);
-		for(int i = 0;i<realtimeDataCopy.size();i++) {
-			if(realtimeDataCopy.get(i).getTime() <= newestTime) {
-				realtimeDataCopy.remove(i);
-			}
+	public StockDataCalculator(StockDataHistoric historicData, StockDataRealtimeStore realtimeData,TimeInterval interval) {
+		this(historicData, interval);
+
+		// "too old" values are skipped by addRealtimeData()
+		for (int i = 0; i < realtimeData.size(); i++) {
+			addRealtimeData(realtimeData.getTime(i), realtimeData.getPrice(i), realtimeData.getVolume(i));
+		}
+	}
+
+	/**
+	 * Folds a single {@code StockDataRealtime} object into the candle data. The
+	 * real-time price either updates the open candle, or opens a new candle if
+	 * it lies outside of the open candle's time interval. Real-time data older
+	 * than the newest historic candle is ignored. Runs in constant time, so
+	 * that not the whole candle data has to be recalculated for every trade.
+	 * 
+	 * @param realtimeData the new real-time data
+	 * @return true if the candle data changed, false if the data was ignored
+	 */
+	public boolean addRealtimeData(StockDataRealtime realtimeData) {
+		return addRealtimeData(realtimeData.getTime(), realtimeData.getPrice(), realtimeData.getVolume());
+	}
+
+	/**
+	 * Folds a single trade into the candle data, see
+	 * {@link #addRealtimeData(StockDataRealtime)}.
+	 * 
+	 * @param time   the timestamp of the trade
+	 * @param price  the price of the trade
+	 * @param volume the volume of the trade
+	 * @return true if the candle data changed, false if the data was ignored
+	 */
+	public boolean addRealtimeData(long time, double price, double volume) {
+		if (this.getStockDataState() != StockDataStateType.access || this.candleSeries == null) {
+			return false;
+		}
+
+		if (time <= this.newestHistoricTime) {
+			return false;
+		}
+
+		if (!this.hasOpenCandle || time >= this.nextCandleTime) {
+			this.candleSeries.append(price, price, price, price, time, volume);
+			this.hasOpenCandle = true;
+			this.nextCandleTime = this.interval.addResToTimestamp(time, 1);
+			this.version++;
+			return true;
 		}
-				
-		this.realtimeStockDataArray = realtimeDataCopy.toArray(new StockDataRealtime[realtimeDataCopy.size()]);
-		
-		Candle[] c1 = this.historicStockData.getCandles();		
-		Candle[] c2 = convertTSToCandles(this.realtimeStockDataArray, interval);
-		this.allCandleArray = joinCandles(c1, c2);
-		resetClosePriceDataArray();
+
+		int last = this.candleSeries.size() - 1;
+		this.candleSeries.updateLast(price, Math.max(this.candleSeries.getHigh(last), price),
+				Math.min(this.candleSeries.getLow(last), price), this.candleSeries.getOpen(last),
+				this.candleSeries.getTime(last), this.candleSeries.getVolume(last) + volume);
+		this.version++;
+		return true;
 	}
 
-	public void trimRealtimeData() {
-		
+	/**
+	 * Gets the version, it changes whenever real-time data changed the candle
+	 * data. Views can compare it to the version they rendered last, to find out
+	 * if the candle data has to be drawn again.
+	 * 
+	 * @return the version
+	 */
+	public long getVersion() {
+		return this.version;
 	}
-	
-	
+
 	/**
 	 * Checks if the wanted amount of {@code Candle} objects is available, and how
 	 * much is available otherwise.
@@ -89,10 +137,10 @@ public class StockDataCalculator extends StockDataState {
 	 * @return if the wanted amount is to high return the max amount available.
 	 */
 	public int getAvailableAmount(int wantedAmount) {
-		if (this.allCandleArray.length >= wantedAmount) {
+		if (getCandleCount() >= wantedAmount) {
 			return wantedAmount;
 		}
-		return this.allCandleArray.length;
+		return getCandleCount();
 	}
 
 	/**
@@ -105,19 +153,25 @@ public class StockDataCalculator extends StockDataState {
 	 *                   available.
 	 */
 	public Candle[] getLatestCandles(int amount) throws Exception {
-		if (this.allCandleArray == null) {
-			throw new Exception("error: this.allCandles == null");
-		}
-		if (this.allCandleArray.length < amount) {
-			throw new Exception("not enough candles - have:" + this.allCandleArray.length + " needed:" + amount);
-		}
+		return getLatestCandleSeries(amount).toCandles();
+	}
 
-		int start = this.allCandleArray.length - amount;
-		Candle[] latestCandles = new Candle[amount];
-		for (int i = 0; i < amount; i++) {
-			latestCandles[i] = this.allCandleArray[start + i];
+	/**
+	 * Gets a view on a specific amount, from the latest on backwards, of candles.
+	 * No data is copied.
+	 * 
+	 * @param amount amount of candles wanted
+	 * @return the {@code CandleSeries} view
+	 * @throws Exception thrown when no or not enough candles are available.
+	 */
+	public CandleSeries getLatestCandleSeries(int amount) throws Exception {
+		if (this.candleSeries == null) {
+			throw new Exception("error: this.candleSeries == null");
+		}
+		if (this.candleSeries.size() < amount) {
+			throw new Exception("not enough candles - have:" + this.candleSeries.size() + " needed:" + amount);
 		}
-		return latestCandles;
+		return this.candleSeries.latest(amount);
 	}
 
 	/**
@@ -126,47 +180,40 @@ public class StockDataCalculator extends StockDataState {
 	 * @return the list of {@code Candle} objects
 	 */
 	public Candle[] getCandles() {
-		return this.allCandleArray;
+		if (this.candleSeries == null) {
+			return null;
+		}
+		return this.candleSeries.toCandles();
 	}
 
 	/**
-	 * Gets the {@code TimeInterval} value.
+	 * Gets the {@code CandleSeries} with all candles.
 	 * 
-	 * @return the {@code TimeInterval} value
+	 * @return the {@code CandleSeries}
 	 */
-	public TimeInterval getTimeinterval() {
-		return this.interval;
+	public CandleSeries getCandleSeries() {
+		return this.candleSeries;
 	}
 
 	/**
-	 * Joins two {@code Candle} arrays.
+	 * Gets the amount of {@code Candle} objects.
 	 * 
-	 * @param a {@code Candle} array a
-	 * @param b {@code Candle} array b
-	 * @return joined {@code Candle} array (a&b)
+	 * @return the amount of {@code Candle} objects
 	 */
-	Candle[] joinCandles(Candle[] a, Candle[] b) {
-		Candle[] newArray = new Candle[a.length + b.length];
-		for (int i = 0; i < a.length; i++) {
-			newArray[i] = a[i];
-		}
-		for (int i = 0; i < b.length; i++) {
-			newArray[i + a.length] = b[i];
+	public int getCandleCount() {
+		if (this.candleSeries == null) {
+			return 0;
 		}
-		return newArray;
+		return this.candleSeries.size();
 	}
 
 	/**
-	 * Sets all close prices, taken from the candle array, as an array of
-	 * {@code double}
+	 * Gets the {@code TimeInterval} value.
 	 * 
-	 * @return the array of {@code double}
+	 * @return the {@code TimeInterval} value
 	 */
-	private void resetClosePriceDataArray() {
-		this.closePriceDataArray = new double[this.allCandleArray.length];
-		for (int i = 0; i < this.allCandleArray.length; i++) {
-			this.closePriceDataArray[i] = this.allCandleArray[i].getClose();
-		}
+	public TimeInterval getTimeinterval() {
+		return this.interval;
 	}
 
 	/**
@@ -176,55 +223,10 @@ public class StockDataCalculator extends StockDataState {
 	 * @return the close prices array
 	 */
 	public double[] getClosePriceDataArray() {
-		return this.closePriceDataArray;
-	}
-
-	/**
-	 * Converts an array of {@code StockDataRealtime} to an array of {@code Candle}
-	 * 
-	 * @param timesales the array of {@code StockDataRealtime}
-	 * @param interval  the considered {@code TimeInterval}
-	 * @return the array of {@code Candle}
-	 */
-	public Candle[] convertTSToCandles(StockDataRealtime[] timesales, TimeInterval interval) {
-		if (timesales.length == 0) {
-			return new Candle[0];
-		}
-
-		ArrayList<Candle> candels = new ArrayList<Candle>();
-
-		long time = timesales[0].getTime();
-		double low = timesales[0].getPrice();
-		double high = low;
-		double open = low;
-		double close = low;
-
-		double volume = timesales[0].getVolume();
-
-		for (int i = 0; i < timesales.length; i++) {
-
-			if (timesales[i].getTime() >= interval.addResToTimestamp(time, 1)) {
-
-				candels.add(new Candle(close, high,low, open, time, volume));
-				
-				time = timesales[i].getTime();
-				low = timesales[i].getPrice();
-				high = low;
-				open = low;
-				volume = timesales[i].getVolume();
-			}
-
-			low = Math.min(low, timesales[i].getPrice());
-			high = Math.max(high, timesales[i].getPrice());
-			close = timesales[i].getPrice();
-
-			volume += timesales[i].getVolume();
+		if (this.candleSeries == null) {
+			return null;
 		}
-
-		Candle lastCandle = new Candle(close, high,low, open, time, volume);
-		candels.add(lastCandle);
-
-		return candels.toArray(new Candle[candels.size()]);
+		return this.candleSeries.toCloseArray();
 	}
 
 	/**
@@ -16,6 +16,8 @@ public class StockDataHistoric extends StockDataState{
 	private double[] open;
 	private long[] timestamp;
 	private double[] volume;
+	/** amount of candles, the arrays may be longer */
+	private int length;
 
 	/**
 	 * {@code StockDataHistoric} constructor
@@ -27,6 +29,20 @@ public class StockDataHistoric extends StockDataState{
 	 * @param volume Volume
 	 */
 	public StockDataHistoric( double[] close, double[] high, double[] low, double[] open, long[] timestamp,	double[] volume) {
+		this(close, high, low, open, timestamp, volume, close.length);
+	}
+
+	/**
+	 * {@code StockDataHistoric} constructor, only the first candles of the arrays are used
+	 * @param close Close price
+	 * @param high High price
+	 * @param low Low price
+	 * @param open Open price
+	 * @param timestamp Time
+	 * @param volume Volume
+	 * @param length amount of candles
+	 */
+	public StockDataHistoric( double[] close, double[] high, double[] low, double[] open, long[] timestamp,	double[] volume, int length) {
 		super(StockDataStateType.access);
 		this.close = close;
 		this.high = high;
@@ -34,6 +50,7 @@ public class StockDataHistoric extends StockDataState{
 		this.open = open;
 		this.timestamp = timestamp;
 		this.volume = volume;
+		this.length = length;
 	}
 
 	public StockDataHistoric() {
@@ -55,7 +72,7 @@ public class StockDataHistoric extends StockDataState{
 	 * @return true if in range, false if out of range
 	 */
 	private boolean indexInRange(int i) {
-		if(i >= 0 && i<close.length) return true;
+		if(i >= 0 && i<length) return true;
 		System.err.println("indexInRange("+i+") index out of range!");
 		return false;
 	}
@@ -65,7 +82,7 @@ public class StockDataHistoric extends StockDataState{
 	 * @return the new {@code Candle} objects
 	 */
 	public Candle[] getCandles() {
-		int count = close.length;
+		int count = length;
 		Candle[] newCandles = new Candle[count];
 		for (int i = 0; i < count; i++) {
 			newCandles[i] = getCandleAt(i);
@@ -73,6 +90,22 @@ public class StockDataHistoric extends StockDataState{
 		return newCandles;
 	}
 
+	/**
+	 * Gets a {@code CandleSeries} view on the historic data, no data is copied.
+	 * @return the {@code CandleSeries} view
+	 */
+	public CandleSeries getCandleSeries() {
+		return new CandleSeries(close, high, low, open, timestamp, volume, length);
+	}
+
+	/**
+	 * Gets the amount of candles, the arrays may be longer.
+	 * @return the amount of candles
+	 */
+	public int getLength() {
+		return this.length;
+	}
+
 	/**
 	 * Gets close price.
 	 * @return the close price
@@ -0,0 +1,244 @@
+package stocker.model.stockdata;
+
+/**
+ * {@code StockDataRealtimeStore} class, stores the real-time data of a single
+ * stock. Instead of one {@code StockDataRealtime} object per trade, the time,
+ * price and volume values are kept in parallel primitive arrays, which are used
+ * as a ring buffer. The buffer grows on demand up to a maximum capacity, once
+ * it is reached the oldest entries are overwritten. In addition, entries that
+ * are older than the retention window (relative to the newest entry) are
+ * dropped. The retention window is fixed when the store is created, the stores
+ * of the {@code StockData} objects keep {@link #DEFAULT_RETENTION}, one day of
+ * trades. Entries are accessed by index, 0 is the oldest and
+ * {@code size() - 1} the newest entry.
+ *
+ * @author Christoph Kaplan
+ *
+ */
+public class StockDataRealtimeStore {
+
+	/** standard maximum amount of entries */
+	public static final int DEFAULT_MAX_CAPACITY = 1 << 16;
+	/** standard retention window in milliseconds (one day) */
+	public static final long DEFAULT_RETENTION = 24L * 60L * 60L * 1000L;
+
+	private static final int INITIAL_CAPACITY = 64;
+
+	private long[] time;
+	private double[] price;
+	private double[] volume;
+
+	/** array index of the oldest entry */
+	private int head;
+	/** amount of entries */
+	private int size;
+
+	private int maxCapacity;
+	private long retention;
+
+	/**
+	 * {@code StockDataRealtimeStore} constructor, uses the standard maximum
+	 * capacity and retention window.
+	 */
+	public StockDataRealtimeStore() {
+		this(DEFAULT_MAX_CAPACITY, DEFAULT_RETENTION);
+	}
+
+	/**
+	 * {@code StockDataRealtimeStore} constructor
+	 *
+	 * @param maxCapacity the maximum amount of entries
+	 * @param retention   the retention window in milliseconds, entries older than
+	 *                    the newest entry minus this window are dropped
+	 */
+	public StockDataRealtimeStore(int maxCapacity, long retention) {
+		this.maxCapacity = Math.max(2, maxCapacity);
+		this.retention = retention;
+		int capacity = Math.min(INITIAL_CAPACITY, this.maxCapacity);
+		this.time = new long[capacity];
+		this.price = new double[capacity];
+		this.volume = new double[capacity];
+	}
+
+	/**
+	 * Adds the data of a {@code StockDataRealtime} object.
+	 *
+	 * @param realtimeData the {@code StockDataRealtime} object
+	 */
+	public void add(StockDataRealtime realtimeData) {
+		add(realtimeData.getTime(), realtimeData.getPrice(), realtimeData.getVolume());
+	}
+
+	/**
+	 * Adds a new entry as the newest entry.
+	 *
+	 * @param t the timestamp
+	 * @param p the price
+	 * @param v the volume
+	 */
+	public void add(long t, double p, double v) {
+		if (this.size == this.time.length) {
+			if (this.time.length < this.maxCapacity) {
+				grow();
+			} else {
+				// overwrite the oldest entry
+				this.head = (this.head + 1) % this.time.length;
+				this.size--;
+			}
+		}
+		int index = (this.head + this.size) % this.time.length;
+		this.time[index] = t;
+		this.price[index] = p;
+		this.volume[index] = v;
+		this.size++;
+
+		trimOld(t);
+	}
+
+	/**
+	 * Drops all entries that lie outside of the retention window.
+	 *
+	 * @param newestTime the timestamp of the newest entry
+	 */
+	private void trimOld(long newestTime) {
+		long oldestAllowed = newestTime - this.retention;
+		while (this.size > 1 && this.time[this.head] < oldestAllowed) {
+			this.head = (this.head + 1) % this.time.length;
+			this.size--;
+		}
+	}
+
+	/**
+	 * Grows the arrays, and moves the oldest entry to index 0.
+	 */
+	private void grow() {
+		int capacity = (int) Math.min((long) this.maxCapacity, (long) this.time.length * 2);
+		this.time = linearize(this.time, capacity);
+		this.price = linearize(this.price, capacity);
+		this.volume = linearize(this.volume, capacity);
+		this.head = 0;
+	}
+
+	private long[] linearize(long[] src, int capacity) {
+		long[] dst = new long[capacity];
+		int firstPart = Math.min(this.size, src.length - this.head);
+		System.arraycopy(src, this.head, dst, 0, firstPart);
+		System.arraycopy(src, 0, dst, firstPart, this.size - firstPart);
+		return dst;
+	}
+
+	private double[] linearize(double[] src, int capacity) {
+		double[] dst = new double[capacity];
+		int firstPart = Math.min(this.size, src.length - this.head);
+		System.arraycopy(src, this.head, dst, 0, firstPart);
+		System.arraycopy(src, 0, dst, firstPart, this.size - firstPart);
+		return dst;
+	}
+
+	/**
+	 * Converts an index (0 = oldest) to the array index.
+	 *
+	 * @param i the index
+	 * @return the array index
+	 */
+	private int arrayIndex(int i) {
+		if (i < 0 || i >= this.size) {
+			throw new IndexOutOfBoundsException("index:" + i + " size:" + this.size);
+		}
+		return (this.head + i) % this.time.length;
+	}
+
+	/**
+	 * Gets the amount of entries.
+	 *
+	 * @return the amount of entries
+	 */
+	public int size() {
+		return this.size;
+	}
+
+	/**
+	 * Gets the timestamp at an index.
+	 *
+	 * @param i the index, 0 is the oldest entry
+	 * @return the timestamp
+	 */
+	public long getTime(int i) {
+		return this.time[arrayIndex(i)];
+	}
+
+	/**
+	 * Gets the price at an index.
+	 *
+	 * @param i the index, 0 is the oldest entry
+	 * @return the price
+	 */
+	public double getPrice(int i) {
+		return this.price[arrayIndex(i)];
+	}
+
+	/**
+	 * Gets the volume at an index.
+	 *
+	 * @param i the index, 0 is the oldest entry
+	 * @return the volume
+	 */
+	public double getVolume(int i) {
+		return this.volume[arrayIndex(i)];
+	}
+
+	/**
+	 * Gets the price of the newest entry.
+	 *
+	 * @return the newest price, 0 if empty
+	 */
+	public double getLatestPrice() {
+		if (this.size == 0) {
+			return 0f;
+		}
+		return getPrice(this.size - 1);
+	}
+
+	/**
+	 * Gets the price of the entry before the newest entry.
+	 *
+	 * @return the previous price, 0 if not available
+	 */
+	public double getPreviousPrice() {
+		if (this.size < 2) {
+			return 0f;
+		}
+		return getPrice(this.size - 2);
+	}
+
+	/**
+	 * Gets the retention window.
+	 *
+	 * @return the retention window in milliseconds
+	 */
+	public long getRetention() {
+		return this.retention;
+	}
+
+	/**
+	 * Creates new {@code StockDataRealtime} objects from the stored entries.
+	 *
+	 * @param symbol the symbol of the stock
+	 * @return the array of {@code StockDataRealtime} objects
+	 */
+	public StockDataRealtime[] toArray(String symbol) {
+		StockDataRealtime[] array = new StockDataRealtime[this.size];
+		for (int i = 0; i < this.size; i++) {
+			array[i] = new StockDataRealtime(symbol, getPrice(i), getTime(i), getVolume(i));
+		}
+		return array;
+	}
+
+	/**
+	 * Removes all entries, keeps the allocated arrays.
+	 */
+	public void clear() {
+		this.head = 0;
+		this.size = 0;
+	}
+}
@@ -0,0 +1,142 @@
+package stocker.model.stockdata;
+
+import stocker.model.general.DisplayType;
+
+/**
+ * {@code StockDataSnapshot} class, an immutable copy of the values of a
+ * {@code StockData} object that are shown in the views. The database model
+ * publishes a new snapshot before it notifies its listeners, so readers get a
+ * consistent state of price, previous price and change percentage without
+ * locking, even while the next updates are being stored.
+ *
+ * @author Christoph Kaplan
+ *
+ */
+public final class StockDataSnapshot {
+
+	private final String symbol;
+	private final DisplayType displayType;
+	private final String description;
+	private final String displaySymbol;
+	private final double currentPrice;
+	private final double previousPrice;
+	private final double currentPriceOfTheDay;
+	private final double changePercentage;
+	private final long version;
+
+	/**
+	 * {@code StockDataSnapshot} constructor, copies the values of a
+	 * {@code StockData} object.
+	 *
+	 * @param stock   the {@code StockData} object
+	 * @param version the modification counter of the {@code StockData} object
+	 */
+	StockDataSnapshot(StockData stock, long version) {
+		this.symbol = stock.getSymbol();
+		this.displayType = stock.getDisplayType();
+		this.description = stock.getStockDataSearch().getDescription();
+		this.displaySymbol = stock.getStockDataSearch().getDisplaySymbol();
+		this.currentPrice = stock.getCurrentPrice();
+		this.previousPrice = stock.getPreviousPrice();
+		this.currentPriceOfTheDay = stock.getCurrentPriceOfTheDay();
+		this.changePercentage = stock.getChangePercentage();
+		this.version = version;
+	}
+
+	////////////////////////////////////////////////////////
+	//
+	// GETTERs
+	//
+	////////////////////////////////////////////////////////
+
+	/**
+	 * Gets the symbol.
+	 *
+	 * @return the symbol
+	 */
+	public String getSymbol() {
+		return this.symbol;
+	}
+
+	/**
+	 * Gets the {@code DisplayType} value.
+	 *
+	 * @return the {@code DisplayType} value
+	 */
+	public DisplayType getDisplayType() {
+		return this.displayType;
+	}
+
+	/**
+	 * Gets the description from search data.
+	 *
+	 * @return the description
+	 */
+	public String getDescription() {
+		return this.description;
+	}
+
+	/**
+	 * Gets the display symbol from search data.
+	 *
+	 * @return the display symbol
+	 */
+	public String getDisplaySymbol() {
+		return this.displaySymbol;
+	}
+
+	/**
+	 * Gets the current price.
+	 *
+	 * @return the current price
+	 */
+	public double getCurrentPrice() {
+		return this.currentPrice;
+	}
+
+	/**
+	 * Gets the previous price.
+	 *
+	 * @return the previous price
+	 */
+	public double getPreviousPrice() {
+		return this.previousPrice;
+	}
+
+	/**
+	 * Gets the price difference between the current and the previous price.
+	 *
+	 * @return the price difference
+	 */
+	public double getPriceDiff() {
+		return this.currentPrice - this.previousPrice;
+	}
+
+	/**
+	 * Gets the "current price of the day" from quote data.
+	 *
+	 * @return the "current price of the day"
+	 */
+	public double getCurrentPriceOfTheDay() {
+		return this.currentPriceOfTheDay;
+	}
+
+	/**
+	 * Gets the change percentage.
+	 *
+	 * @return the change percentage
+	 */
+	public double getChangePercentage() {
+		return this.changePercentage;
+	}
+
+	/**
+	 * Gets the modification counter of the {@code StockData} object at the time
+	 * the snapshot was taken.
+	 *
+	 * @return the version
+	 */
+	public long getVersion() {
+		return this.version;
+	}
+}
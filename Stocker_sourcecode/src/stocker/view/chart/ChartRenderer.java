@@ -10,7 +10,7 @@ import stocker.model.general.IndicatorBase;
 import stocker.model.general.IndicatorType;
 import stocker.model.general.BollingerBands;
 import stocker.model.general.SimpleMovingAverage;
-import stocker.model.stockdata.Candle;
+import stocker.model.stockdata.CandleSeries;
 import stocker.model.stockdata.StockDataState.StockDataStateType;
 
 /**
@@ -68,10 +68,10 @@ public class ChartRenderer extends ChartRendererBase {
 	}
 
 	/**
-	 * renders all render passes
+	 * renders all render passes of the static layer
 	 */
 	@Override
-	public void render() {
+	void renderStaticLayer() {
 		clearInformation();
 
 		if (this.state == StockDataStateType.no_access || this.state == StockDataStateType.unclear) {
@@ -87,10 +87,22 @@ public class ChartRenderer extends ChartRendererBase {
 		passIndicatorLines();
 		passAlarm();
 		passAxes();
-		passCrosshair();
 		passGeneralInformation();
 	}
 
+	/**
+	 * renders all render passes of the overlay
+	 */
+	@Override
+	void renderOverlay() {
+		if (this.state == StockDataStateType.no_access || this.state == StockDataStateType.unclear) {
+			return;
+		}
+
+		//render passes
+		passCrosshair();
+	}
+
 	/**
 	 * Draws information
 	 */
@@ -129,18 +141,18 @@ public class ChartRenderer extends ChartRendererBase {
 		g2d.drawLine(0, mousePosY, panelSizeX, mousePosY);
 
 		//set stock info in statusbar
-		chartView.setStockInfo("symbol:" + chartView.getStock().getSymbol() + ", quote:"+ doubleFormatter(chartView.getStock().getCurrentPrice()) + ", available data:" + stockDataCalculator.getCandles().length);
+		chartView.setStockInfo("symbol:" + chartView.getStock().getSymbol() + ", quote:"+ doubleFormatter(chartView.getStock().getSnapshot().getCurrentPrice()) + ", available data:" + stockDataCalculator.getCandleCount());
 				
-		//get current candle at mouse pos
-		Candle candle = getCandleByMousePos();		
-		if(candle == null) {
+		//get current candle index at mouse pos
+		int dataIndex = getDataIndexByMousePos();
+		if(dataIndex == -1) {
 			return;
 		}
 		//set mouse info in statusbar
-		chartView.setMouseInfo("mouse at: " + chartView.getInterval().timestampToString(candle.getTime()) + " / "+ doubleFormatter(panelYToCandleValue(this.mousePosY)));
+		chartView.setMouseInfo("mouse at: " + chartView.getInterval().timestampToString(latestCandles.getTime(dataIndex)) + " / "+ doubleFormatter(panelYToCandleValue(this.mousePosY)));
 		
 		// draw mouse hover indication
-		passHoverIndicator(candle);
+		passHoverIndicator(dataIndex);
 	}
 
 
@@ -150,22 +162,18 @@ public class ChartRenderer extends ChartRendererBase {
 	 * 
 	 * @param dataIndex calculated array index of the data (i.e. candle)
 	 */
-	private void passHoverIndicator(Candle candle) {
-		int dataIndex = this.getDataIndexByMousePos();
-		if(dataIndex == -1) {
-			return;
-		}
+	private void passHoverIndicator(int dataIndex) {
 		if (chartView.getChartType() == ChartType.CandleChart) {
 			//when candle chart mode, draw a thick outline arround canlde as indicator
 			
 			int distance = 1;
 			int candleX = gridXToPanelX(dataIndex) - (this.candleBodyWidth / 2);
 
-			int candleY = candleValueToPanelY(candle.getClose());
-			if (!candle.upwardTrend()) 
-				candleY = candleValueToPanelY(candle.getOpen());
+			int candleY = candleValueToPanelY(latestCandles.getClose(dataIndex));
+			if (!latestCandles.upwardTrend(dataIndex)) 
+				candleY = candleValueToPanelY(latestCandles.getOpen(dataIndex));
 
-			int candleHeight = Math.abs(candleValueToPanelY(candle.getClose()) - candleValueToPanelY(candle.getOpen()));
+			int candleHeight = Math.abs(candleValueToPanelY(latestCandles.getClose(dataIndex)) - candleValueToPanelY(latestCandles.getOpen(dataIndex)));
 			
 			
 			g2d.setColor(colorProfile.getHoverColor());
@@ -173,34 +181,34 @@ public class ChartRenderer extends ChartRendererBase {
 			g2d.drawRect(candleX - distance, candleY - distance, this.candleBodyWidth + (distance * 2),	candleHeight + (distance * 2));
 
 			//draw tooltip if selected
-			drawCandleTooltipAt(this.mousePosX+10, this.mousePosY+10, candle);
+			drawCandleTooltipAt(this.mousePosX+10, this.mousePosY+10, dataIndex);
 	
 		} else {
 			//when line chart mode, draw a circle as indicator
 			g2d.setColor(colorProfile.getHoverColor());
-			g2d.fillOval(gridXToPanelX(dataIndex) - 5, candleValueToPanelY(candle.getClose()) - 5, 10, 10);
+			g2d.fillOval(gridXToPanelX(dataIndex) - 5, candleValueToPanelY(latestCandles.getClose(dataIndex)) - 5, 10, 10);
 		}
 	}
 
 	/**
 	 * Checks weather the mouse cursor is within a distance to a candle
 	 * @param dist the distance
-	 * @param candle the candle
+	 * @param dataIndex the index of the candle
 	 * @return true if cursor is within the distance
 	 */
-	private boolean isMouseInDistanceToCandle(float dist, Candle candle) {
-		if((Math.abs(this.mousePosY-candleValueToPanelY(candle.getClose())) < dist) || (Math.abs(this.mousePosY-candleValueToPanelY(candle.getOpen())) < dist)){
+	private boolean isMouseInDistanceToCandle(float dist, int dataIndex) {
+		if((Math.abs(this.mousePosY-candleValueToPanelY(latestCandles.getClose(dataIndex))) < dist) || (Math.abs(this.mousePosY-candleValueToPanelY(latestCandles.getOpen(dataIndex))) < dist)){
 			return true;
 		}
 		return false;
 	}
 
 	/** draws tooltip label */
-	private void drawCandleTooltipAt(int x, int y, Candle candle) {
+	private void drawCandleTooltipAt(int x, int y, int dataIndex) {
 		if (!chartView.getTooltipCheckBox().isSelected()) {
 			return;
 		}
-		if(!isMouseInDistanceToCandle(75,candle)) {
+		if(!isMouseInDistanceToCandle(75,dataIndex)) {
 			return;
 		}	
 				
@@ -208,11 +216,11 @@ public class ChartRenderer extends ChartRendererBase {
 		Color hoverLableTextColor = colorProfile.getHoverLableTextColor();
 		BasicStroke hoverLableStroke = colorProfile.getHoverLableStroke();
 		
-		drawLableAt("h :" + doubleFormatter(candle.getHigh()), x + 10, y + 20, 70, hoverColor, hoverLableTextColor, hoverLableStroke);
-		drawLableAt("c :" + doubleFormatter(candle.getClose()), x + 10, y + 40, 70, hoverColor, hoverLableTextColor, hoverLableStroke);
-		drawLableAt("o :" + doubleFormatter(candle.getOpen()), x + 10, y + 60, 70, hoverColor, hoverLableTextColor, hoverLableStroke);
-		drawLableAt("l :" + doubleFormatter(candle.getLow()), x + 10, y + 80, 70, hoverColor, hoverLableTextColor, hoverLableStroke);
-		drawLableAt("t :" + chartView.getInterval().timestampToString(candle.getTime()), x + 10, y + 100, 70, hoverColor, hoverLableTextColor, hoverLableStroke);
+		drawLableAt("h :" + doubleFormatter(latestCandles.getHigh(dataIndex)), x + 10, y + 20, 70, hoverColor, hoverLableTextColor, hoverLableStroke);
+		drawLableAt("c :" + doubleFormatter(latestCandles.getClose(dataIndex)), x + 10, y + 40, 70, hoverColor, hoverLableTextColor, hoverLableStroke);
+		drawLableAt("o :" + doubleFormatter(latestCandles.getOpen(dataIndex)), x + 10, y + 60, 70, hoverColor, hoverLableTextColor, hoverLableStroke);
+		drawLableAt("l :" + doubleFormatter(latestCandles.getLow(dataIndex)), x + 10, y + 80, 70, hoverColor, hoverLableTextColor, hoverLableStroke);
+		drawLableAt("t :" + chartView.getInterval().timestampToString(latestCandles.getTime(dataIndex)), x + 10, y + 100, 70, hoverColor, hoverLableTextColor, hoverLableStroke);
 		
 		
 	}
@@ -294,8 +302,7 @@ public class ChartRenderer extends ChartRendererBase {
 			}
 			if ((x % 5 == 0)) {
 				//every fifth step
-				Candle c = latestCandles[x];
-				String time = chartView.getInterval().timestampToString(c.getTime());
+				String time = chartView.getInterval().timestampToString(latestCandles.getTime(x));
 				//int width = g2d.getFontMetrics().stringWidth(time);
 				g2d.drawString(time, panelX - (candleBodyWidth / 2), borderLinePosY + 14);
 			
@@ -341,7 +348,7 @@ public class ChartRenderer extends ChartRendererBase {
 		g2d.setColor(colorProfile.getLineChartColor());
 
 		for (int i = 0; i < dataAmount; i++) {
-			y[i] = candleValueToPanelY(latestCandles[i].getClose());
+			y[i] = candleValueToPanelY(latestCandles.getClose(i));
 			x[i] = gridXToPanelX(i);
 		}
 
@@ -359,16 +366,16 @@ public class ChartRenderer extends ChartRendererBase {
 		
 		for (int i = 0; i < dataAmount; i++) {
 			int panelPosX = gridXToPanelX(i);
-			drawCandleAt(latestCandles[i], panelPosX);
+			drawCandleAt(i, panelPosX);
 		}
 	}
 
-	private void drawCandleAt(Candle candle, int pos) {
+	private void drawCandleAt(int dataIndex, int pos) {
 
-		int open = candleValueToPanelY(candle.getOpen());
-		int close = candleValueToPanelY(candle.getClose());
-		int high = candleValueToPanelY(candle.getHigh());
-		int low = candleValueToPanelY(candle.getLow());
+		int open = candleValueToPanelY(latestCandles.getOpen(dataIndex));
+		int close = candleValueToPanelY(latestCandles.getClose(dataIndex));
+		int high = candleValueToPanelY(latestCandles.getHigh(dataIndex));
+		int low = candleValueToPanelY(latestCandles.getLow(dataIndex));
 
 		int height = Math.abs(close - open);
 
@@ -380,7 +387,7 @@ public class ChartRenderer extends ChartRendererBase {
 		GradientPaint gp = new GradientPaint(0, low, fill, 0, high, this.colorProfile.getShade(fill));
 
 		// flip
-		if (candle.upwardTrend()) {
+		if (latestCandles.upwardTrend(dataIndex)) {
 			fill = colorProfile.getUpCandleColor();
 			startBodyPosY = close;
 			gp = new GradientPaint(0, low, this.colorProfile.getShade(fill), 0, high, fill);
@@ -432,15 +439,34 @@ public class ChartRenderer extends ChartRendererBase {
 
 	}
 
+	/**
+	 * Gets the results of an indicator from the database model's indicator
+	 * cache, only candles that changed since the last paint are processed.
+	 * 
+	 * @param indicator the indicator
+	 * @return the indicator object that holds the results
+	 * @throws Exception thrown if not enough data is available
+	 */
+	private IndicatorBase getIndicatorResult(IndicatorBase indicator) throws Exception {
+		CandleSeries series = stockDataCalculator.getCandleSeries();
+		int maxAmount = indicator.getMaxAmout(series);
+		if (dataAmount > maxAmount) {
+			throw new Exception("available data :" + maxAmount + "/" + dataAmount);
+		}
+		return chartView.getDatabaseModel().getIndicatorResult(chartView.getStock().getSymbol(),
+				chartView.getInterval(), indicator, series);
+	}
+
 	private void drawSimpleMoveingAverage(SimpleMovingAverage simpleMovingAverage) {
 		try {
-			double sma[] = simpleMovingAverage.getSMA(dataAmount, stockDataCalculator.getClosePriceDataArray());
+			IndicatorBase result = getIndicatorResult(simpleMovingAverage);
+			int start = result.getStreamLength() - dataAmount;
 		
 			int[] x = new int[dataAmount];
 			int[] y = new int[dataAmount];
 
 			for (int i = 0; i < dataAmount; i++) {
-				y[i] = candleValueToPanelY(sma[i]);
+				y[i] = candleValueToPanelY(result.getStreamValue(0, start + i));
 				x[i] = gridXToPanelX(i);
 			}
 
@@ -462,14 +488,12 @@ public class ChartRenderer extends ChartRendererBase {
 			int[] yupper = new int[dataAmount];
 			int[] ylower = new int[dataAmount];
 
-			double upper[] = bollingerbands.getUpperBollingerBand(dataAmount,
-					stockDataCalculator.getClosePriceDataArray());
-			double lower[] = bollingerbands.getLowerBollingerBand(dataAmount,
-					stockDataCalculator.getClosePriceDataArray());
+			IndicatorBase result = getIndicatorResult(bollingerbands);
+			int start = result.getStreamLength() - dataAmount;
 
 			for (int i = 0; i < dataAmount; i++) {
-				yupper[i] = candleValueToPanelY(upper[i]);
-				ylower[i] = candleValueToPanelY(lower[i]);
+				yupper[i] = candleValueToPanelY(result.getStreamValue(BollingerBands.STREAM_UPPER, start + i));
+				ylower[i] = candleValueToPanelY(result.getStreamValue(BollingerBands.STREAM_LOWER, start + i));
 				// x[i] = timestampToPanelX(latestCandles[i].time());
 				x[i] = gridXToPanelX(i);
 			}
@@ -496,14 +520,12 @@ public class ChartRenderer extends ChartRendererBase {
 			int[] yupper = new int[dataAmount];
 			int[] ylower = new int[dataAmount];
 
-			double upper[] = bollingerbands.getUpperBollingerBand(dataAmount,
-					stockDataCalculator.getClosePriceDataArray());
-			double lower[] = bollingerbands.getLowerBollingerBand(dataAmount,
-					stockDataCalculator.getClosePriceDataArray());
+			IndicatorBase result = getIndicatorResult(bollingerbands);
+			int start = result.getStreamLength() - dataAmount;
 
 			for (int i = 0; i < dataAmount; i++) {
-				yupper[i] = candleValueToPanelY(upper[i]);
-				ylower[i] = candleValueToPanelY(lower[i]);
+				yupper[i] = candleValueToPanelY(result.getStreamValue(BollingerBands.STREAM_UPPER, start + i));
+				ylower[i] = candleValueToPanelY(result.getStreamValue(BollingerBands.STREAM_LOWER, start + i));
 				x[i] = gridXToPanelX(i);
 			}
 
@@ -2,6 +2,8 @@ package stocker.view.chart;
 
 import java.awt.Graphics;
 import java.awt.Graphics2D;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseMotionListener;
@@ -11,7 +13,7 @@ import javax.swing.JPanel;
 
 import stocker.controller.chart.ChartController;
 import stocker.model.general.IndicatorBase;
-import stocker.model.stockdata.Candle;
+import stocker.model.stockdata.CandleSeries;
 import stocker.model.stockdata.StockDataCalculator;
 import stocker.model.stockdata.StockDataState.StockDataStateType;
 
@@ -33,6 +35,13 @@ import stocker.model.stockdata.StockDataState.StockDataStateType;
  * declarations about the visual profile of the renderer, for example. the
  * colors and line thickness.
  * 
+ * The render passes are split into two layers. The static layer (grid, candles,
+ * indicators, alarms, axes) is rendered into a cached {@code BufferedImage}
+ * and only redrawn when the data, the panel size, the chart type or the
+ * indicators change. The overlay (crosshair, hover indicator, tooltip) is drawn
+ * on top of it with every repaint, so following the mouse only costs copying
+ * the image.
+ * 
  * 
  * @author Christoph Kaplan
  *
@@ -45,7 +54,7 @@ public abstract class ChartRendererBase extends JPanel implements MouseMotionLis
 	protected Graphics2D g2d;
 
 	protected StockDataCalculator stockDataCalculator;
-	protected Candle[] latestCandles;
+	protected CandleSeries latestCandles;
 	protected ArrayList<IndicatorBase> indicatorList;
 
 	protected String information;
@@ -80,6 +89,12 @@ public abstract class ChartRendererBase extends JPanel implements MouseMotionLis
 
 	protected ChartRendererVisualProfile colorProfile = new ChartRendererVisualProfile();
 
+	/** cached image of the static layer */
+	private BufferedImage staticLayer;
+	private boolean staticLayerValid = false;
+	/** indicators the static layer was rendered with */
+	private ArrayList<IndicatorBase> staticLayerIndicators = new ArrayList<IndicatorBase>();
+
 	/**
 	 * constructor
 	 * 
@@ -175,6 +190,7 @@ public abstract class ChartRendererBase extends JPanel implements MouseMotionLis
 	public void setUpRenderer(int wantedAmount, StockDataCalculator stockDataCalculator, ArrayList<IndicatorBase> indicatorList) {
 		// System.out.println("setUprenderer(" + wantedAmount + ") " + chartView.getStock().getSymbol());
 
+		invalidateStaticLayer();
 		this.state = stockDataCalculator.getStockDataState();
 
 		if (stockDataCalculator.getStockDataState() == StockDataStateType.no_access	|| stockDataCalculator.getStockDataState() == StockDataStateType.unclear) {
@@ -190,7 +206,7 @@ public abstract class ChartRendererBase extends JPanel implements MouseMotionLis
 		this.gridStepsY =Math.floorDiv(dataAmount, 3);
 		
 		try {
-			latestCandles = this.stockDataCalculator.getLatestCandles(dataAmount);
+			latestCandles = this.stockDataCalculator.getLatestCandleSeries(dataAmount);
 		} catch (Exception e) {
 			// no acception here ?
 			e.printStackTrace();
@@ -203,64 +219,51 @@ public abstract class ChartRendererBase extends JPanel implements MouseMotionLis
 	}
 
 	/**
-	 * Gets the latest timestamp available within an array of {@code Candle}.
+	 * Gets the latest timestamp available within a {@code CandleSeries}.
 	 * 
-	 * @param candles the array of {@code Candle}
+	 * @param candles the {@code CandleSeries}
 	 * @return the latest timestamp
 	 */
-	private long getMaxCandleTime(Candle[] candles) {
-		return candles[candles.length - 1].getTime();
+	private long getMaxCandleTime(CandleSeries candles) {
+		return candles.getTime(candles.size() - 1);
 	}
 
 	/**
-	 * Gets the latest timestamp available within an array of {@code Candle}.
+	 * Gets the earliest timestamp available within a {@code CandleSeries}.
 	 * 
-	 * @param candles the array of {@code Candle}
-	 * @return the latest timestamp
+	 * @param candles the {@code CandleSeries}
+	 * @return the earliest timestamp
 	 */
-	private long getMinCandleTime(Candle[] candles) {
-		return candles[0].getTime();
+	private long getMinCandleTime(CandleSeries candles) {
+		return candles.getTime(0);
 	}
 
 	/**
-	 * Gets the maximum of high prices available within an array of {@code Candle}.
+	 * Gets the maximum of high prices available within a {@code CandleSeries}.
 	 * 
-	 * @param candles the array of {@code Candle}
+	 * @param candles the {@code CandleSeries}
 	 * @return the maximum high price
 	 */
-	private double getMaxCandleValue(Candle[] candles) {
-		Candle maxCandle = null;
+	private double getMaxCandleValue(CandleSeries candles) {
 		double max = Double.NEGATIVE_INFINITY;
-
-		for (int i = 0; i < candles.length; i++) {
-			Candle c = candles[i];
-			if (c.getHigh() > max) {
-				maxCandle = c;
-				max = maxCandle.getHigh();
-			}
+		for (int i = 0; i < candles.size(); i++) {
+			max = Math.max(max, candles.getHigh(i));
 		}
-
-		return maxCandle.getHigh();
+		return max;
 	}
 
 	/**
-	 * Gets the minimum of low prices available within an array of {@code Candle}.
+	 * Gets the minimum of low prices available within a {@code CandleSeries}.
 	 * 
-	 * @param candles the array of {@code Candle}
+	 * @param candles the {@code CandleSeries}
 	 * @return the minimum low price
 	 */
-	private double getMinCandleValue(Candle[] candles) {
-		Candle minCandle = null;
+	private double getMinCandleValue(CandleSeries candles) {
 		double min = Double.POSITIVE_INFINITY;
-
-		for (int i = 0; i < candles.length; i++) {
-			Candle c = candles[i];
-			if (c.getLow() < min) {
-				minCandle = c;
-				min = minCandle.getLow();
-			}
+		for (int i = 0; i < candles.size(); i++) {
+			min = Math.min(min, candles.getLow(i));
 		}
-		return minCandle.getLow();
+		return min;
 	}
 
 	/**
@@ -277,16 +280,51 @@ public abstract class ChartRendererBase extends JPanel implements MouseMotionLis
 	}
 
 	/**
-	 * Gets the Candle by mouse position
+	 * Marks the static layer as outdated, it is rendered again with the next
+	 * repaint.
+	 */
+	public void invalidateStaticLayer() {
+		this.staticLayerValid = false;
+	}
+
+	/**
+	 * Renders the static layer into the cached image, if the image is outdated or
+	 * the panel size has changed.
 	 * 
-	 * @return the candle
+	 * @param g the graphics object of the panel
 	 */
-	protected Candle getCandleByMousePos() {
-		int dataIndex = getDataIndexByMousePos();
-		if (dataIndex == -1) {
-			return null;
+	private void updateStaticLayer(Graphics2D g) {
+		// render in device resolution, e.g. for scaled displays
+		AffineTransform transform = g.getTransform();
+		int width = (int) Math.ceil(panelSizeX * transform.getScaleX());
+		int height = (int) Math.ceil(panelSizeY * transform.getScaleY());
+
+		if (staticLayer == null || staticLayer.getWidth() != width || staticLayer.getHeight() != height) {
+			staticLayer = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+			staticLayerValid = false;
+		}
+		if (indicatorList != null && !indicatorList.equals(staticLayerIndicators)) {
+			staticLayerValid = false;
 		}
-		return latestCandles[dataIndex];
+		if (staticLayerValid) {
+			return;
+		}
+
+		Graphics2D imageGraphics = staticLayer.createGraphics();
+		imageGraphics.setRenderingHints(g.getRenderingHints());
+		imageGraphics.setColor(getBackground());
+		imageGraphics.fillRect(0, 0, width, height);
+		imageGraphics.scale(transform.getScaleX(), transform.getScaleY());
+		imageGraphics.setFont(getFont());
+
+		this.g2d = imageGraphics;
+		renderStaticLayer();
+		imageGraphics.dispose();
+
+		if (indicatorList != null) {
+			staticLayerIndicators = new ArrayList<IndicatorBase>(indicatorList);
+		}
+		staticLayerValid = true;
 	}
 
 	/**
@@ -295,10 +333,17 @@ public abstract class ChartRendererBase extends JPanel implements MouseMotionLis
 	@Override
 	public void paintComponent(Graphics g) {
 		super.paintComponent(g);
-		this.g2d = (Graphics2D) g;
 
 		recalculateScaling();
-		render();
+		if (panelSizeX <= 0 || panelSizeY <= 0) {
+			return;
+		}
+
+		updateStaticLayer((Graphics2D) g);
+		g.drawImage(staticLayer, 0, 0, panelSizeX, panelSizeY, null);
+
+		this.g2d = (Graphics2D) g;
+		renderOverlay();
 	}
 
 	/**
@@ -423,9 +468,16 @@ public abstract class ChartRendererBase extends JPanel implements MouseMotionLis
 	}
 
 	/**
-	 * Updates the rendering
+	 * Renders the static layer, everything that does not depend on the mouse
+	 * position
+	 */
+	abstract void renderStaticLayer();
+
+	/**
+	 * Renders the overlay on top of the static layer, everything that depends on
+	 * the mouse position
 	 */
-	abstract void render();
+	abstract void renderOverlay();
 
 	/**
 	 * Draws information when error occurred
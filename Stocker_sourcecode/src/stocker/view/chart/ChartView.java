@@ -6,6 +6,7 @@ import javax.swing.*;
 import stocker.controller.chart.ChartController;
 import stocker.model.database.AlarmWrapper;
 import stocker.model.database.DatabaseModel;
+import stocker.model.database.DatabaseStockEvent;
 import stocker.model.general.ChartType;
 import stocker.model.general.FrameProfileChart;
 import stocker.model.general.TimeInterval;
@@ -44,6 +45,11 @@ public class ChartView extends InternalViewBase {
 	public ChartView(FrameProfileChart frameProfileChart, AlarmWrapper alarmWrapper, DatabaseModel databaseModel) {
 		super(frameProfileChart, databaseModel);
 		this.alarm = alarmWrapper;
+		// only events of the shown stock are of interest, the stock handlers
+		// rely on this routing
+		routeObserverToSymbol(frameProfileChart.getSymbol(), DatabaseStockEvent.Added, DatabaseStockEvent.Removed,
+				DatabaseStockEvent.Update, DatabaseStockEvent.Calculated, DatabaseStockEvent.AlarmAdded,
+				DatabaseStockEvent.AlarmRemove);
 
 		try {
 			this.stock = databaseModel.getStockBySymbol(frameProfileChart.getSymbol());
@@ -182,6 +188,7 @@ public class ChartView extends InternalViewBase {
 	public void setChartType(ChartType chartType) {
 		this.getFrameProfile().setChartType(chartType);
 		this.setTitle(this.getFrameProfile().getTitle());
+		chartRenderer.invalidateStaticLayer();
 		chartRenderer.repaint();
 	}
 
@@ -229,8 +236,6 @@ public class ChartView extends InternalViewBase {
 	 */
 	@Override
 	public void onStockUpdate(StockData stock) {
-		if (!this.stock.getSymbol().equals(stock.getSymbol()))
-			return;
 		this.stock = stock;
 		updateChartRenderer();
 	}
@@ -240,8 +245,6 @@ public class ChartView extends InternalViewBase {
 	 */
 	@Override
 	public void onStockCalculated(StockData stock) {
-		if (!this.stock.getSymbol().equals(stock.getSymbol()))
-			return;
 		this.stock = stock;
 		updateChartRenderer();
 	}
@@ -251,8 +254,6 @@ public class ChartView extends InternalViewBase {
 	 */
 	@Override
 	public void onStockAdded(StockData stock) {
-		if (!this.stock.getSymbol().equals(stock.getSymbol()))
-			return;
 		this.stock = stock;
 	}
 
@@ -261,9 +262,6 @@ public class ChartView extends InternalViewBase {
 	 */
 	@Override
 	public void onStockRemoved(StockData stock) {
-		if (!this.stock.getSymbol().equals(stock.getSymbol()))
-			return;
-		
 		//System.out.println("onStockRemoved(): "+ stock);
 		this.doDefaultCloseAction();
 		
@@ -284,9 +282,6 @@ public class ChartView extends InternalViewBase {
 	 */
 	@Override
 	public void onAlarmAdded(AlarmWrapper alarm, double value) {
-		if (!alarm.getSymbol().equals(this.stock.getSymbol())) {
-			return;
-		}
 		this.alarm = alarm;
 		updateChartRenderer();
 	}
@@ -296,9 +291,6 @@ public class ChartView extends InternalViewBase {
 	 */
 	@Override
 	public void onAlarmRemove(AlarmWrapper alarm, double value) {
-		if (!alarm.getSymbol().equals(this.stock.getSymbol())) {
-			return;
-		}
 		this.alarm = alarm;
 		updateChartRenderer();
 	}
@@ -13,6 +13,7 @@ import javax.swing.event.InternalFrameEvent;
 
 import stocker.controller.general.ControllerBase;
 import stocker.model.database.DatabaseModel;
+import stocker.model.database.DatabaseStockEvent;
 import stocker.model.database.DatabaseStockListener;
 import stocker.model.general.FrameProfile;
 
@@ -49,6 +50,18 @@ public abstract class InternalViewBase extends JInternalFrame implements ViewBas
 
 		this.databaseModel.addDatabaseStockObserver(this);
 	}
+	/**
+	 * Subscribes this listener to events of a single symbol, instead of being
+	 * notified about all stocks.
+	 * 
+	 * @param symbol the symbol
+	 * @param events the event kinds to notify about, all kinds if none given
+	 */
+	protected void routeObserverToSymbol(String symbol, DatabaseStockEvent... events) {
+		this.databaseModel.removeDatabaseStockObserver(this);
+		this.databaseModel.addDatabaseStockObserver(symbol, this, events);
+	}
+
 	/**
 	 * Removes this listener from the database
 	 */
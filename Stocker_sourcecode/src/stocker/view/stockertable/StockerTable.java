@@ -12,7 +12,8 @@ import stocker.model.stockdata.StockData;
  * derived from JTable. In addition to the swing table function, its main
  * function is to pass on the stock data arriving via listener in its associated
  * view to the table model {@code StockerTableModel}, which is derived from
- * {@code AbstractTableModel}.
+ * {@code AbstractTableModel}. Sorting is done by a {@code StockerTableRowSorter},
+ * which only sorts again when a cell of a sorted column changes.
  * 
  * 
  * @author Christoph Kaplan
@@ -37,7 +38,7 @@ public class StockerTable extends JTable {
 		setDefaultRenderer(Object.class, new StockerDefaultRenderer());
 		setDefaultRenderer(Boolean.class, new StockerCheckBoxRenderer());
 
-		setAutoCreateRowSorter(true);
+		setRowSorter(new StockerTableRowSorter(tableModel));
 		setCellSelectionEnabled(false);
 		setFocusable(false);
 	}
@@ -3,12 +3,15 @@ package stocker.view.stockertable;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.Objects;
 import javax.swing.Timer;
 import javax.swing.table.AbstractTableModel;
 
 import stocker.model.general.DisplayType;
 import stocker.model.stockdata.StockData;
+import stocker.model.stockdata.StockDataSnapshot;
 
 /**
  * The table model implements a list of the {@code StockData} type and overrides the
@@ -21,7 +24,9 @@ import stocker.model.stockdata.StockData;
  * this, whereby the timer is decisive for the duration of the “colored
  * background”. As soon as a stock is added / removed, a timer is also created /
  * removed. As soon as a stock receives an update, the associated timer may be
- * started.
+ * started. A {@code HashMap <String, Integer>} assigns the row index to the
+ * “symbol” and the last shown values of each row are kept, so that an update
+ * only notifies the table about the cells that actually changed.
  * 
  * @author Christoph Kaplan
  *
@@ -29,12 +34,17 @@ import stocker.model.stockdata.StockData;
 public class StockerTableModel extends AbstractTableModel {
 	private static final long serialVersionUID = -4624547766854779852L;
 
+	/** watchlist column of the price */
+	private static final int PRICE_COLUMN = 2;
+
 	private String[] watchlistCols = { "Description", "Display Symbol", "Price", "% Change", "Select" };
 	private String[] searchCols = { "Description", "Display Symbol", "Select" };
 
 	private HashMap<String, Boolean> checkboxMap = new HashMap<String, Boolean>();
 	private ArrayList<StockData> stockList = new ArrayList<StockData>();
 	private HashMap<String, Timer> timerMap = new HashMap<String, Timer>();
+	private HashMap<String, Integer> rowIndexMap = new HashMap<String, Integer>();
+	private HashMap<String, Object[]> shownValuesMap = new HashMap<String, Object[]>();
 
 	private DisplayType displayType;
 
@@ -54,7 +64,11 @@ public class StockerTableModel extends AbstractTableModel {
 	 * @return the row index
 	 */
 	public int getRowIndexByStock(StockData stock) {
-		return stockList.indexOf(stock);
+		Integer rowIndex = rowIndexMap.get(stock.getSymbol());
+		if (rowIndex == null) {
+			return -1;
+		}
+		return rowIndex;
 	}
 
 	/**
@@ -104,6 +118,7 @@ public class StockerTableModel extends AbstractTableModel {
 		if (columnIndex == (getColumnCount() - 1)) {
 			StockData stock = stockList.get(rowIndex);
 			checkboxMap.put(stock.getSymbol(), !checkboxMap.get(stock.getSymbol()));
+			this.fireTableCellUpdated(rowIndex, columnIndex);
 		}
 	}
 
@@ -114,20 +129,21 @@ public class StockerTableModel extends AbstractTableModel {
 	@Override
 	public Object getValueAt(int rowIndex, int columnIndex) {
 		StockData stock = stockList.get(rowIndex);
+		StockDataSnapshot snapshot = stock.getSnapshot();
 		Boolean check = checkboxMap.get(stock.getSymbol());
 		Timer timer = timerMap.get(stock.getSymbol());
 
 		if (displayType == DisplayType.Watchlist) {
 			switch (columnIndex) {
 			case 0:
-				return stock.getStockDataSearch().getDescription();
+				return snapshot.getDescription();
 			case 1:
-				return stock.getStockDataSearch().getDisplaySymbol();
+				return snapshot.getDisplaySymbol();
 			case 2:
 				//price wrapper to get the needed information to the renderer.
-				return new PriceWrapper(stock.getCurrentPrice(), stock.getPriceDiff(), timer.isRunning());
+				return new PriceWrapper(snapshot.getCurrentPrice(), snapshot.getPriceDiff(), timer.isRunning());
 			case 3:
-				return stock.getChangePercentage();
+				return snapshot.getChangePercentage();
 			case 4:
 				return check;
 			default:
@@ -137,9 +153,9 @@ public class StockerTableModel extends AbstractTableModel {
 		if (displayType == DisplayType.Search) {
 			switch (columnIndex) {
 			case 0:
-				return stock.getStockDataSearch().getDescription();
+				return snapshot.getDescription();
 			case 1:
-				return stock.getStockDataSearch().getDisplaySymbol();
+				return snapshot.getDisplaySymbol();
 			case 2:
 				return check;
 			default:
@@ -206,16 +222,19 @@ public class StockerTableModel extends AbstractTableModel {
 		if (hasSymbol(stock)) {
 			return;
 		}
+		int rowIndex = this.stockList.size();
 		this.stockList.add(stock);
+		this.rowIndexMap.put(stock.getSymbol(), rowIndex);
+		this.shownValuesMap.put(stock.getSymbol(), getShownValues(stock));
 		this.checkboxMap.put(stock.getSymbol(), false);
 
 		timerMap.put(stock.getSymbol(), createTimer(stock));
+		this.fireTableRowsInserted(rowIndex, rowIndex);
+
 		if (displayType == DisplayType.Watchlist) {
 			onTimerStart(stock);
 		}
 
-		this.fireTableDataChanged();
-
 	}
 
 	/**
@@ -228,11 +247,22 @@ public class StockerTableModel extends AbstractTableModel {
 			return;
 		}
 
-		this.stockList.remove(stock);
+		int rowIndex = getRowIndexByStock(stock);
+		this.stockList.remove(rowIndex);
+		this.rowIndexMap.remove(stock.getSymbol());
+		this.shownValuesMap.remove(stock.getSymbol());
 		this.checkboxMap.remove(stock.getSymbol());
-		timerMap.remove(stock.getSymbol());
+		Timer timer = timerMap.remove(stock.getSymbol());
+		if (timer != null) {
+			timer.stop();
+		}
 
-		this.fireTableDataChanged();
+		// the following rows move up by one
+		for (int i = rowIndex; i < this.stockList.size(); i++) {
+			this.rowIndexMap.put(this.stockList.get(i).getSymbol(), i);
+		}
+
+		this.fireTableRowsDeleted(rowIndex, rowIndex);
 	}
 
 	/**
@@ -245,11 +275,38 @@ public class StockerTableModel extends AbstractTableModel {
 			return;
 		}
 
+		// notify only the cells whose values changed
+		int rowIndex = getRowIndexByStock(stock);
+		Object[] shownValues = this.shownValuesMap.get(stock.getSymbol());
+		Object[] newValues = getShownValues(stock);
+		for (int columnIndex = 0; columnIndex < newValues.length; columnIndex++) {
+			if (!Objects.equals(shownValues[columnIndex], newValues[columnIndex])) {
+				this.fireTableCellUpdated(rowIndex, columnIndex);
+			}
+		}
+		this.shownValuesMap.put(stock.getSymbol(), newValues);
+
 		if (displayType == DisplayType.Watchlist) {
 			onTimerStart(stock);
 		}
+	}
 
-		this.fireTableDataChanged();
+	/**
+	 * Gets the values of a stock data that are shown in the table, without the
+	 * selection column. The price cell shows the difference to the previous price
+	 * as well, which changes when a trade repeats the current price.
+	 * 
+	 * @param stock the stock data
+	 * @return the values, ordered by column
+	 */
+	private Object[] getShownValues(StockData stock) {
+		StockDataSnapshot snapshot = stock.getSnapshot();
+		if (displayType == DisplayType.Watchlist) {
+			return new Object[] { snapshot.getDescription(), snapshot.getDisplaySymbol(),
+					Arrays.asList(snapshot.getCurrentPrice(), snapshot.getPriceDiff()),
+					snapshot.getChangePercentage() };
+		}
+		return new Object[] { snapshot.getDescription(), snapshot.getDisplaySymbol() };
 	}
 
 	/**
@@ -259,9 +316,7 @@ public class StockerTableModel extends AbstractTableModel {
 	 * @return true if present, false otherwise
 	 */
 	boolean hasSymbol(StockData stock) {
-		if (!this.stockList.contains(stock))
-			return false;
-		return true;
+		return this.rowIndexMap.containsKey(stock.getSymbol());
 	}
 
 	/**
@@ -279,10 +334,14 @@ public class StockerTableModel extends AbstractTableModel {
 		return lst;
 	}
 
+	/**
+	 * Deselects all stock data.
+	 */
 	public void deselectAll() {
 		for (String symbol : checkboxMap.keySet()) {
 			if (checkboxMap.get(symbol)) {
 				checkboxMap.put(symbol, false);
+				this.fireTableCellUpdated(rowIndexMap.get(symbol), getColumnCount() - 1);
 			}
 		}
 	}
@@ -300,9 +359,15 @@ public class StockerTableModel extends AbstractTableModel {
 	 * Clears a lists and maps of this table model
 	 */
 	public void clearAll() {
+		for (Timer timer : this.timerMap.values()) {
+			timer.stop();
+		}
 		this.stockList.clear();
+		this.rowIndexMap.clear();
+		this.shownValuesMap.clear();
 		this.checkboxMap.clear();
 		this.timerMap.clear();
+		this.fireTableDataChanged();
 	}
 
 	/**
@@ -311,10 +376,15 @@ public class StockerTableModel extends AbstractTableModel {
 	 * @param stock the stock data
 	 */
 	private void onTimerStart(StockData stock) {
-		if (timerMap.containsKey(stock.getSymbol()))
-			timerMap.get(stock.getSymbol()).start();
-		this.fireTableDataChanged();
-
+		if (!timerMap.containsKey(stock.getSymbol()))
+			return;
+		Timer timer = timerMap.get(stock.getSymbol());
+		boolean wasRunning = timer.isRunning();
+		timer.start();
+		// the price cell shows whether the timer is running
+		if (!wasRunning) {
+			this.fireTableCellUpdated(getRowIndexByStock(stock), PRICE_COLUMN);
+		}
 	}
 
 	/**
@@ -323,8 +393,10 @@ public class StockerTableModel extends AbstractTableModel {
 	 * @param stock the stock data
 	 */
 	private void onTimerEnd(StockData stock) {
+		if (!timerMap.containsKey(stock.getSymbol()))
+			return;
 		timerMap.get(stock.getSymbol()).stop();
-		this.fireTableDataChanged();
+		this.fireTableCellUpdated(getRowIndexByStock(stock), PRICE_COLUMN);
 	}
 
 	/**
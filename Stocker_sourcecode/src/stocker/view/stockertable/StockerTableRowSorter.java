@@ -0,0 +1,51 @@
+package stocker.view.stockertable;
+
+import javax.swing.RowSorter.SortKey;
+import javax.swing.table.TableRowSorter;
+
+/**
+ * The row sorter of the {@code StockerTable}. The table model notifies single
+ * cells when stock data is updated. The sorter moves updated rows to their new
+ * position only if the updated column is one of the sorted columns, updates
+ * of other columns keep the current order without sorting again.
+ * 
+ * @author Christoph Kaplan
+ *
+ */
+public class StockerTableRowSorter extends TableRowSorter<StockerTableModel> {
+
+	/**
+	 * constructor
+	 * 
+	 * @param tableModel the table model to sort
+	 */
+	public StockerTableRowSorter(StockerTableModel tableModel) {
+		super(tableModel);
+		setSortsOnUpdates(true);
+	}
+
+	/**
+	 * Invoked when cells of a column were updated
+	 */
+	@Override
+	public void rowsUpdated(int firstRow, int endRow, int column) {
+		if (isSortedColumn(column)) {
+			super.rowsUpdated(firstRow, endRow, column);
+		}
+	}
+
+	/**
+	 * Checks if a column is one of the sorted columns
+	 * 
+	 * @param column the column index
+	 * @return true if sorted, false otherwise
+	 */
+	private boolean isSortedColumn(int column) {
+		for (SortKey key : getSortKeys()) {
+			if (key.getColumn() == column) {
+				return true;
+			}
+		}
+		return false;
+	}
+}
@@ -0,0 +1,215 @@
+package stocker.controller.inputoutput;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Single threaded {@code ScheduledExecutorService} with a manual clock for
+ * tests. Tasks only run in {@link #runPending()} and {@link #advance(long)},
+ * on the thread of the test, in the order they are due.
+ *
+ * @author Christoph Kaplan
+ *
+ */
+class ManualScheduledExecutor extends AbstractExecutorService implements ScheduledExecutorService {
+
+	/**
+	 * A scheduled task.
+	 */
+	private class Entry implements ScheduledFuture<Object> {
+		private final long due;
+		private final long sequence;
+		private final Runnable runnable;
+		private boolean cancelled;
+		private boolean done;
+
+		private Entry(long due, long sequence, Runnable runnable) {
+			this.due = due;
+			this.sequence = sequence;
+			this.runnable = runnable;
+		}
+
+		@Override
+		public long getDelay(TimeUnit unit) {
+			return unit.convert(this.due - now, TimeUnit.MILLISECONDS);
+		}
+
+		@Override
+		public int compareTo(Delayed o) {
+			if (o instanceof Entry && this.due == ((Entry) o).due) {
+				return Long.compare(this.sequence, ((Entry) o).sequence);
+			}
+			return Long.compare(getDelay(TimeUnit.MILLISECONDS), o.getDelay(TimeUnit.MILLISECONDS));
+		}
+
+		@Override
+		public boolean cancel(boolean mayInterruptIfRunning) {
+			if (this.done) {
+				return false;
+			}
+			this.cancelled = true;
+			return tasks.remove(this);
+		}
+
+		@Override
+		public boolean isCancelled() {
+			return this.cancelled;
+		}
+
+		@Override
+		public boolean isDone() {
+			return this.done || this.cancelled;
+		}
+
+		@Override
+		public Object get() {
+			return null;
+		}
+
+		@Override
+		public Object get(long timeout, TimeUnit unit) {
+			return null;
+		}
+	}
+
+	/** ordered by due time, then by order of scheduling */
+	private final PriorityQueue<Entry> tasks = new PriorityQueue<Entry>();
+	private long now;
+	private long sequence;
+	private boolean shutdown;
+
+	/**
+	 * {@code ManualScheduledExecutor} constructor
+	 *
+	 * @param start the start time in milliseconds
+	 */
+	ManualScheduledExecutor(long start) {
+		this.now = start;
+	}
+
+	/**
+	 * Gets the clock of this executor.
+	 *
+	 * @return the current time in milliseconds
+	 */
+	LongSupplier clock() {
+		return new LongSupplier() {
+			@Override
+			public long getAsLong() {
+				return now;
+			}
+		};
+	}
+
+	/**
+	 * Gets the current time.
+	 *
+	 * @return the current time in milliseconds
+	 */
+	long now() {
+		return this.now;
+	}
+
+	/**
+	 * Runs the tasks that are due, including those they schedule without delay.
+	 */
+	void runPending() {
+		while (!this.tasks.isEmpty() && this.tasks.peek().due <= this.now) {
+			Entry entry = this.tasks.poll();
+			entry.done = true;
+			entry.runnable.run();
+		}
+	}
+
+	/**
+	 * Moves the clock forward and runs the tasks that become due on the way, each
+	 * at its due time.
+	 *
+	 * @param millis the time span in milliseconds
+	 */
+	void advance(long millis) {
+		long end = this.now + millis;
+		runPending();
+		while (!this.tasks.isEmpty() && this.tasks.peek().due <= end) {
+			this.now = Math.max(this.now, this.tasks.peek().due);
+			runPending();
+		}
+		this.now = end;
+	}
+
+	/**
+	 * Gets the amount of scheduled tasks.
+	 *
+	 * @return the amount of tasks
+	 */
+	int getTaskCount() {
+		return this.tasks.size();
+	}
+
+	@Override
+	public ScheduledFuture<?> schedule(Runnable command, long delay, TimeUnit unit) {
+		Entry entry = new Entry(this.now + Math.max(0, unit.toMillis(delay)), this.sequence++, command);
+		this.tasks.add(entry);
+		return entry;
+	}
+
+	@Override
+	public void execute(Runnable command) {
+		schedule(command, 0, TimeUnit.MILLISECONDS);
+	}
+
+	@Override
+	public <V> ScheduledFuture<V> schedule(Callable<V> callable, long delay, TimeUnit unit) {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public ScheduledFuture<?> scheduleAtFixedRate(Runnable command, long initialDelay, long period, TimeUnit unit) {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public ScheduledFuture<?> scheduleWithFixedDelay(Runnable command, long initialDelay, long delay,
+			TimeUnit unit) {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public void shutdown() {
+		this.shutdown = true;
+	}
+
+	@Override
+	public List<Runnable> shutdownNow() {
+		this.shutdown = true;
+		List<Runnable> pending = new ArrayList<Runnable>();
+		for (Entry entry : this.tasks) {
+			pending.add(entry.runnable);
+		}
+		this.tasks.clear();
+		return pending;
+	}
+
+	@Override
+	public boolean isShutdown() {
+		return this.shutdown;
+	}
+
+	@Override
+	public boolean isTerminated() {
+		return this.shutdown && this.tasks.isEmpty();
+	}
+
+	@Override
+	public boolean awaitTermination(long timeout, TimeUnit unit) {
+		return isTerminated();
+	}
+}
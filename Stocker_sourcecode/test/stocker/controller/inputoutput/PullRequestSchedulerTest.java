@@ -0,0 +1,321 @@
+package stocker.controller.inputoutput;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import stocker.model.general.RequestPriority;
+
+/**
+ * Tests the {@code PullRequestScheduler} with a manual clock, so the token
+ * bucket, the order of the requests and the backoff of the retries can be
+ * checked without waiting.
+ *
+ * @author Christoph Kaplan
+ *
+ */
+public class PullRequestSchedulerTest {
+
+	private ManualScheduledExecutor executor;
+	/** names of the sent requests, in order of sending */
+	private List<String> sent;
+	/** send time of each entry of sent */
+	private List<Long> sendTimes;
+
+	@BeforeEach
+	public void setUp() {
+		this.executor = new ManualScheduledExecutor(1000000L);
+		this.sent = new ArrayList<String>();
+		this.sendTimes = new ArrayList<Long>();
+	}
+
+	private PullRequestScheduler createScheduler(int requestsPerMinute) {
+		return new PullRequestScheduler(requestsPerMinute, this.executor, this.executor.clock());
+	}
+
+	/**
+	 * Creates a request that is answered right away with its name.
+	 */
+	private Supplier<CompletableFuture<String>> answered(String name) {
+		return new Supplier<CompletableFuture<String>>() {
+			@Override
+			public CompletableFuture<String> get() {
+				sent.add(name);
+				sendTimes.add(executor.now());
+				return CompletableFuture.completedFuture(name);
+			}
+		};
+	}
+
+	/**
+	 * Creates a request whose answer is completed by the test.
+	 */
+	private Supplier<CompletableFuture<String>> pending(String name, List<CompletableFuture<String>> answers) {
+		return new Supplier<CompletableFuture<String>>() {
+			@Override
+			public CompletableFuture<String> get() {
+				sent.add(name);
+				sendTimes.add(executor.now());
+				CompletableFuture<String> answer = new CompletableFuture<String>();
+				answers.add(answer);
+				return answer;
+			}
+		};
+	}
+
+	/**
+	 * Creates a request that fails with an HTTP status code for the given amount
+	 * of attempts and is answered afterwards.
+	 */
+	private Supplier<CompletableFuture<String>> failing(String name, int statusCode, int failures) {
+		return new Supplier<CompletableFuture<String>>() {
+			private int attempts;
+
+			@Override
+			public CompletableFuture<String> get() {
+				sent.add(name);
+				sendTimes.add(executor.now());
+				if (this.attempts++ < failures) {
+					return CompletableFuture.failedFuture(new PullRequestException(name + " failed", statusCode));
+				}
+				return CompletableFuture.completedFuture(name);
+			}
+		};
+	}
+
+	@Test
+	public void tokenBucketAllowsBurstAndRefillsAtQuota() {
+		// 60 per minute: a burst of 10, then one per second
+		PullRequestScheduler scheduler = createScheduler(60);
+		scheduler.setMaxInFlight(100);
+		for (int i = 0; i < 15; i++) {
+			scheduler.submit(RequestPriority.Background, answered("r" + i));
+		}
+
+		this.executor.runPending();
+		assertEquals(10, this.sent.size());
+		assertEquals(5, scheduler.getQueueDepth());
+
+		this.executor.advance(999);
+		assertEquals(10, this.sent.size());
+		this.executor.advance(1);
+		assertEquals(11, this.sent.size());
+
+		this.executor.advance(4000);
+		assertEquals(15, this.sent.size());
+		assertEquals(0, scheduler.getQueueDepth());
+		assertEquals(0, scheduler.getInFlight());
+	}
+
+	@Test
+	public void bucketDoesNotExceedItsCapacityWhileIdle() {
+		PullRequestScheduler scheduler = createScheduler(60);
+		scheduler.setMaxInFlight(100);
+		this.executor.advance(3600000L);
+		for (int i = 0; i < 12; i++) {
+			scheduler.submit(RequestPriority.Background, answered("r" + i));
+		}
+		this.executor.runPending();
+		assertEquals(10, this.sent.size());
+	}
+
+	@Test
+	public void requestsAreSentByPriorityThenInOrderOfSubmission() {
+		PullRequestScheduler scheduler = createScheduler(600);
+		scheduler.setMaxInFlight(1);
+		List<CompletableFuture<String>> answers = new ArrayList<CompletableFuture<String>>();
+
+		scheduler.submit(RequestPriority.Background, pending("blocker", answers));
+		scheduler.submit(RequestPriority.Background, pending("b1", answers));
+		scheduler.submit(RequestPriority.Quote, pending("q1", answers));
+		scheduler.submit(RequestPriority.Chart, pending("c1", answers));
+		scheduler.submit(RequestPriority.Background, pending("b2", answers));
+		scheduler.submit(RequestPriority.Chart, pending("c2", answers));
+		this.executor.runPending();
+
+		assertEquals(1, scheduler.getInFlight());
+		assertEquals(2, scheduler.getQueueDepth(RequestPriority.Chart));
+		assertEquals(1, scheduler.getQueueDepth(RequestPriority.Quote));
+		assertEquals(2, scheduler.getQueueDepth(RequestPriority.Background));
+
+		for (int i = 0; i < 6; i++) {
+			assertEquals(i + 1, this.sent.size());
+			answers.get(i).complete("ok");
+			this.executor.runPending();
+		}
+		assertEquals(List.of("blocker", "c1", "c2", "q1", "b1", "b2"), this.sent);
+		assertEquals(0, scheduler.getInFlight());
+	}
+
+	@Test
+	public void promotedRequestsMoveToTheQueueOfTheirNewPriority() {
+		PullRequestScheduler scheduler = createScheduler(600);
+		scheduler.setMaxInFlight(1);
+		List<CompletableFuture<String>> answers = new ArrayList<CompletableFuture<String>>();
+
+		scheduler.submit(RequestPriority.Background, pending("blocker", answers));
+		scheduler.submit(RequestPriority.Background, "b1", pending("b1", answers));
+		scheduler.submit(RequestPriority.Chart, pending("c1", answers));
+		scheduler.submit(RequestPriority.Background, "b2", pending("b2", answers));
+		this.executor.runPending();
+
+		assertTrue(scheduler.promote("b2", RequestPriority.Chart));
+		assertFalse(scheduler.promote("b2", RequestPriority.Quote));
+		assertFalse(scheduler.promote("unknown", RequestPriority.Chart));
+		assertEquals(2, scheduler.getQueueDepth(RequestPriority.Chart));
+		assertEquals(1, scheduler.getQueueDepth(RequestPriority.Background));
+
+		for (int i = 0; i < 4; i++) {
+			answers.get(i).complete("ok");
+			this.executor.runPending();
+		}
+		// behind the chart request submitted before it
+		assertEquals(List.of("blocker", "c1", "b2", "b1"), this.sent);
+		// answered requests can not be promoted any more
+		assertFalse(scheduler.promote("b1", RequestPriority.Chart));
+	}
+
+	@Test
+	public void requestsInFlightAreBounded() {
+		PullRequestScheduler scheduler = createScheduler(600);
+		scheduler.setMaxInFlight(3);
+		List<CompletableFuture<String>> answers = new ArrayList<CompletableFuture<String>>();
+		for (int i = 0; i < 5; i++) {
+			scheduler.submit(RequestPriority.Quote, pending("r" + i, answers));
+		}
+		this.executor.runPending();
+		assertEquals(3, this.sent.size());
+		assertEquals(3, scheduler.getInFlight());
+		assertEquals(2, scheduler.getQueueDepth());
+
+		answers.get(1).complete("ok");
+		this.executor.runPending();
+		assertEquals(4, this.sent.size());
+		assertEquals(3, scheduler.getInFlight());
+	}
+
+	@Test
+	public void tooManyRequestsEmptiesTheBucket() throws Exception {
+		// 60 per minute: one token per second
+		PullRequestScheduler scheduler = createScheduler(60);
+		scheduler.setMaxInFlight(100);
+		CompletableFuture<String> limited = scheduler.submit(RequestPriority.Quote, failing("limited", 429, 1));
+		this.executor.runPending();
+		assertEquals(1, this.sent.size());
+		assertEquals(1, scheduler.getRetryCount());
+
+		// tokens were left in the bucket, but none may be used after the 429
+		CompletableFuture<String> other = scheduler.submit(RequestPriority.Quote, answered("other"));
+		this.executor.runPending();
+		this.executor.advance(999);
+		assertEquals(1, this.sent.size());
+		assertFalse(other.isDone());
+
+		// the first token is available after a second, the second one after two
+		this.executor.advance(1);
+		assertEquals(2, this.sent.size());
+		this.executor.advance(1000);
+		assertEquals(3, this.sent.size());
+		assertEquals("limited", limited.get());
+		assertEquals("other", other.get());
+		assertEquals(0, scheduler.getInFlight());
+	}
+
+	@Test
+	public void cancelAllCompletesUnfinishedRequestsWithoutSendingThem() {
+		PullRequestScheduler scheduler = createScheduler(600);
+		scheduler.setMaxInFlight(2);
+		List<CompletableFuture<String>> answers = new ArrayList<CompletableFuture<String>>();
+
+		// the failed request waits for its retry and frees its slot
+		CompletableFuture<String> retry = scheduler.submit(RequestPriority.Chart, failing("retry", 503, 1));
+		CompletableFuture<String> flight = scheduler.submit(RequestPriority.Chart, pending("flight", answers));
+		scheduler.submit(RequestPriority.Chart, pending("other", answers));
+		CompletableFuture<String> queued = scheduler.submit(RequestPriority.Background, "queued",
+				answered("queued"));
+		this.executor.runPending();
+		assertEquals(List.of("retry", "flight", "other"), this.sent);
+		assertEquals(1, scheduler.getQueueDepth());
+
+		scheduler.cancelAll(new Exception("cancelled"));
+		assertTrue(retry.isCompletedExceptionally());
+		assertTrue(flight.isCompletedExceptionally());
+		assertTrue(queued.isCompletedExceptionally());
+		assertEquals(0, scheduler.getQueueDepth());
+		assertFalse(scheduler.promote("queued", RequestPriority.Chart));
+
+		// a late answer is ignored, a late failure is not retried
+		answers.get(0).completeExceptionally(new PullRequestException("flight failed", 503));
+		answers.get(1).complete("ok");
+		this.executor.advance(60000);
+		assertEquals(List.of("retry", "flight", "other"), this.sent);
+		assertEquals(0, scheduler.getInFlight());
+		assertEquals(0, this.executor.getTaskCount());
+	}
+
+	@Test
+	public void serverErrorsAreRetriedWithExponentialBackoff() throws Exception {
+		PullRequestScheduler scheduler = createScheduler(6000);
+		CompletableFuture<String> result = scheduler.submit(RequestPriority.Chart, failing("flaky", 503, 3));
+		this.executor.advance(60000);
+
+		assertEquals(4, this.sent.size());
+		assertEquals(3, scheduler.getRetryCount());
+		assertEquals("flaky", result.get());
+		for (int retry = 1; retry < this.sendTimes.size(); retry++) {
+			long backoff = Math.min(PullRequestScheduler.MAX_BACKOFF,
+					PullRequestScheduler.BASE_BACKOFF << (retry - 1));
+			long delay = this.sendTimes.get(retry) - this.sendTimes.get(retry - 1);
+			assertTrue(delay >= backoff / 2 && delay <= backoff, "retry " + retry + " after " + delay + "ms");
+		}
+	}
+
+	@Test
+	public void retriesAreLimited() throws Exception {
+		PullRequestScheduler scheduler = createScheduler(6000);
+		CompletableFuture<String> result = scheduler.submit(RequestPriority.Chart, failing("down", 500, 100));
+		this.executor.advance(600000);
+
+		assertEquals(PullRequestScheduler.MAX_RETRIES + 1, this.sent.size());
+		assertEquals(PullRequestScheduler.MAX_RETRIES, scheduler.getRetryCount());
+		try {
+			result.get();
+			fail("request did not fail");
+		} catch (ExecutionException ex) {
+			assertTrue(ex.getCause() instanceof PullRequestException);
+			assertEquals(500, ((PullRequestException) ex.getCause()).getStatusCode());
+		}
+		assertEquals(0, this.executor.getTaskCount());
+	}
+
+	@Test
+	public void otherErrorsAreNotRetried() {
+		PullRequestScheduler scheduler = createScheduler(6000);
+		CompletableFuture<String> notFound = scheduler.submit(RequestPriority.Chart, failing("missing", 404, 1));
+		CompletableFuture<String> broken = scheduler.submit(RequestPriority.Chart,
+				new Supplier<CompletableFuture<String>>() {
+					@Override
+					public CompletableFuture<String> get() {
+						sent.add("broken");
+						throw new IllegalStateException("broken");
+					}
+				});
+		this.executor.advance(60000);
+
+		assertEquals(List.of("missing", "broken"), this.sent);
+		assertEquals(0, scheduler.getRetryCount());
+		assertTrue(notFound.isCompletedExceptionally());
+		assertTrue(broken.isCompletedExceptionally());
+		assertEquals(0, scheduler.getInFlight());
+	}
+}
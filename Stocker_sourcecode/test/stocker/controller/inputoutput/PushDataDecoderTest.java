@@ -0,0 +1,230 @@
+package stocker.controller.inputoutput;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import stocker.controller.inputoutput.PushDataDecoder.MessageType;
+
+/**
+ * Tests the {@code PushDataDecoder} with messages of the shape the data
+ * provider sends and with the corner cases of its hand written parser.
+ *
+ * @author Christoph Kaplan
+ *
+ */
+public class PushDataDecoderTest {
+
+	private PushDataDecoder decoder;
+
+	@BeforeEach
+	public void setUp() {
+		this.decoder = new PushDataDecoder();
+	}
+
+	private static String trade(String symbol, String price) {
+		return "{\"type\":\"trade\",\"data\":[{\"s\":\"" + symbol + "\",\"p\":" + price
+				+ ",\"t\":1600000000000,\"v\":1}]}";
+	}
+
+	private void assertMalformed(String message) {
+		try {
+			this.decoder.decode(message);
+			fail("decoded malformed message " + message);
+		} catch (Exception ex) {
+			// expected
+		}
+	}
+
+	@Test
+	public void decodesTrades() throws Exception {
+		String message = "{\"data\":[{\"c\":[\"1\"],\"p\":7296.89,\"s\":\"BINANCE:BTCUSDT\",\"t\":1575526691134,"
+				+ "\"v\":0.011467},{\"p\":151.5,\"s\":\"AAPL\",\"t\":1575526691135,\"v\":100}],\"type\":\"trade\"}";
+		assertEquals(MessageType.Trade, this.decoder.decode(message));
+		assertEquals(2, this.decoder.getCount());
+		assertEquals("BINANCE:BTCUSDT", this.decoder.getSymbol(0));
+		assertEquals(7296.89, this.decoder.getPrice(0));
+		assertEquals(1575526691134L, this.decoder.getTime(0));
+		assertEquals(0.011467, this.decoder.getVolume(0));
+		assertEquals("AAPL", this.decoder.getSymbol(1));
+		assertEquals(151.5, this.decoder.getPrice(1));
+		assertEquals(100, this.decoder.getVolume(1));
+	}
+
+	@Test
+	public void decodesDataBeforeType() throws Exception {
+		assertEquals(MessageType.Trade,
+				this.decoder.decode("{\"data\":[{\"s\":\"AAPL\",\"p\":1.25,\"t\":5,\"v\":2}],\"type\":\"trade\"}"));
+		assertEquals(1, this.decoder.getCount());
+		assertEquals("AAPL", this.decoder.getSymbol(0));
+		assertEquals(1.25, this.decoder.getPrice(0));
+
+		// data of a message that turns out not to be a trade message is discarded
+		assertEquals(MessageType.Unknown,
+				this.decoder.decode("{\"data\":[{\"s\":\"AAPL\",\"p\":1.25}],\"type\":\"news\"}"));
+		assertEquals(0, this.decoder.getCount());
+	}
+
+	@Test
+	public void skipsUnknownFieldsAndWhitespace() throws Exception {
+		String message = " {\n\t\"meta\" : {\"a\":[1,{\"b\":\"}]\"}],\"ok\":true},\"type\" : \"trade\" , \"data\" : [ "
+				+ "{ \"x\" : null , \"s\" : \"IBM\" , \"p\" : 120 , \"extra\" : [ \"]\" ] } ] } ";
+		assertEquals(MessageType.Trade, this.decoder.decode(message));
+		assertEquals(1, this.decoder.getCount());
+		assertEquals("IBM", this.decoder.getSymbol(0));
+		assertEquals(120, this.decoder.getPrice(0));
+	}
+
+	@Test
+	public void skipsTradesWithoutSymbol() throws Exception {
+		this.decoder.decode("{\"type\":\"trade\",\"data\":[{\"p\":1},{\"s\":\"AAPL\",\"p\":2},{}]}");
+		assertEquals(1, this.decoder.getCount());
+		assertEquals(2, this.decoder.getPrice(0));
+	}
+
+	@Test
+	public void decodesConditions() throws Exception {
+		this.decoder.decode("{\"type\":\"trade\",\"data\":["
+				+ "{\"s\":\"A\",\"c\":[\"1\",\"12\",\"63\"]},"
+				+ "{\"s\":\"B\",\"c\":[1,12,63]},"
+				+ "{\"s\":\"C\",\"c\":null},"
+				+ "{\"s\":\"D\",\"c\":[]},"
+				+ "{\"s\":\"E\",\"c\":[\"64\",\"-1\",\"x\",\"\",64,1.5,\"2\"]},"
+				+ "{\"s\":\"F\"}]}");
+		long expected = (1L << 1) | (1L << 12) | (1L << 63);
+		assertEquals(6, this.decoder.getCount());
+		assertEquals(expected, this.decoder.getConditions(0));
+		assertEquals(expected, this.decoder.getConditions(1));
+		assertEquals(0, this.decoder.getConditions(2));
+		assertEquals(0, this.decoder.getConditions(3));
+		// codes outside of 0..63 and no integers are ignored
+		assertEquals(1L << 2, this.decoder.getConditions(4));
+		assertEquals(0, this.decoder.getConditions(5));
+	}
+
+	@Test
+	public void decodesEscapesInSymbols() throws Exception {
+		this.decoder.decode("{\"type\":\"trade\",\"data\":[{\"s\":\"\\u0041\\u0042C\\u00e9\",\"p\":1},"
+				+ "{\"s\":\"A\\/B\\\\C\\\"D\\tE\",\"p\":2}]}");
+		assertEquals(2, this.decoder.getCount());
+		assertEquals("ABC\u00e9", this.decoder.getSymbol(0));
+		assertEquals("A/B\\C\"D\tE", this.decoder.getSymbol(1));
+
+		// an escaped symbol is the same symbol as the plain one
+		this.decoder.decode(trade("ABC\u00e9", "1"));
+		int id = this.decoder.getSymbolId(0);
+		this.decoder.decode(trade("\\u0041BC\\u00E9", "1"));
+		assertEquals(id, this.decoder.getSymbolId(0));
+	}
+
+	@Test
+	public void decodesNumbersLikeDoubleParseDouble() throws Exception {
+		String[] numbers = { "0", "-0", "1", "-1", "0.1", "0.3", "151.5", "7296.89", "0.011467", "1e3", "1E-3",
+				"1.5e+10", "-2.5E-7", "123456789012345678", "1234567890123456789", "12345678901234567890123",
+				"0.1234567890123456789", "9007199254740993", "9007199254740993.5", "900719925474099.3",
+				"0.0000000000000000000001", "0.00000000000000000000001", "1.7976931348623157e308",
+				"4.9e-324", "000123.4500", "99999999999999999.9", "3.141592653589793238462643383279" };
+		for (String number : numbers) {
+			this.decoder.decode(trade("X", number));
+			assertEquals(Double.doubleToLongBits(Double.parseDouble(number)),
+					Double.doubleToLongBits(this.decoder.getPrice(0)), number);
+		}
+	}
+
+	@Test
+	public void decodesRandomDecimalsLikeDoubleParseDouble() throws Exception {
+		Random random = new Random(42);
+		for (int i = 0; i < 20000; i++) {
+			String number = (random.nextLong() % 100000000000000L) + "." + Math.abs(random.nextInt() % 100000);
+			this.decoder.decode(trade("X", number));
+			assertEquals(Double.parseDouble(number), this.decoder.getPrice(0), number);
+		}
+	}
+
+	@Test
+	public void keepsSymbolIdsAcrossRehash() throws Exception {
+		int amount = 1000;
+		int[] ids = new int[amount];
+		for (int i = 0; i < amount; i++) {
+			this.decoder.decode(trade("SYM" + i, "1"));
+			ids[i] = this.decoder.getSymbolId(0);
+			assertEquals(i, ids[i]);
+		}
+		for (int i = 0; i < amount; i++) {
+			this.decoder.decode(trade("SYM" + i, "1"));
+			assertEquals(ids[i], this.decoder.getSymbolId(0));
+			assertEquals("SYM" + i, this.decoder.getSymbolById(ids[i]));
+		}
+	}
+
+	@Test
+	public void reusesSymbolStrings() throws Exception {
+		this.decoder.decode(trade("AAPL", "1"));
+		String first = this.decoder.getSymbol(0);
+		this.decoder.decode(trade("AAPL", "2"));
+		assertSame(first, this.decoder.getSymbol(0));
+		this.decoder.decode(trade("MSFT", "2"));
+		assertNotEquals(first, this.decoder.getSymbol(0));
+	}
+
+	@Test
+	public void decodesManyTradesInOneMessage() throws Exception {
+		StringBuilder message = new StringBuilder("{\"type\":\"trade\",\"data\":[");
+		for (int i = 0; i < 100; i++) {
+			if (i > 0) {
+				message.append(',');
+			}
+			message.append("{\"s\":\"S").append(i % 7).append("\",\"p\":").append(i).append(".5,\"t\":").append(i)
+					.append(",\"v\":").append(i * 2).append('}');
+		}
+		message.append("]}");
+		this.decoder.decode(message);
+		assertEquals(100, this.decoder.getCount());
+		for (int i = 0; i < 100; i++) {
+			assertEquals("S" + (i % 7), this.decoder.getSymbol(i));
+			assertEquals(i + 0.5, this.decoder.getPrice(i));
+			assertEquals(i, this.decoder.getTime(i));
+			assertEquals(i * 2, this.decoder.getVolume(i));
+		}
+	}
+
+	@Test
+	public void recognizesPingAndErrorMessages() throws Exception {
+		this.decoder.decode(trade("AAPL", "1"));
+		assertEquals(MessageType.Ping, this.decoder.decode("{\"type\":\"ping\"}"));
+		assertEquals(0, this.decoder.getCount());
+		assertEquals(MessageType.Error, this.decoder.decode("{\"msg\":\"Invalid message\",\"type\":\"error\"}"));
+		assertEquals(MessageType.Error, this.decoder.getType());
+		assertEquals(0, this.decoder.getCount());
+		assertEquals(MessageType.Unknown, this.decoder.decode("{}"));
+		assertEquals(MessageType.Trade, this.decoder.decode("{\"type\":\"trade\",\"data\":[]}"));
+		assertEquals(0, this.decoder.getCount());
+	}
+
+	@Test
+	public void rejectsTruncatedMessages() throws Exception {
+		String message = "{\"type\":\"trade\",\"data\":[{\"s\":\"A\\u0042\",\"p\":1.5,\"c\":[\"1\",2],\"t\":3,\"v\":4}]}";
+		for (int length = 0; length < message.length(); length++) {
+			assertMalformed(message.substring(0, length));
+		}
+		// the decoder is still usable afterwards
+		assertEquals(MessageType.Trade, this.decoder.decode(message));
+		assertEquals("AB", this.decoder.getSymbol(0));
+	}
+
+	@Test
+	public void rejectsMalformedMessages() {
+		assertMalformed("[]");
+		assertMalformed("{\"type\" \"trade\"}");
+		assertMalformed("{\"type\":\"trade\";\"data\":[]}");
+		assertMalformed("{\"type\":\"trade\",\"data\":[{\"s\":\"A\",\"p\":}]}");
+		assertMalformed("{\"type\":\"trade\",\"data\":[{\"s\":\"A\",\"p\":-}]}");
+		assertMalformed("{\"type\":\"trade\",\"data\":[{\"s\":\"\\uZZZZ\"}]}");
+	}
+}
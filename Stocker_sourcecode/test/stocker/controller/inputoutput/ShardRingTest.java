@@ -0,0 +1,73 @@
+package stocker.controller.inputoutput;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests the assignment of symbols to shards by the {@code ShardRing}.
+ *
+ * @author Christoph Kaplan
+ *
+ */
+public class ShardRingTest {
+
+	private static final int SYMBOLS = 20000;
+
+	private static String symbol(int i) {
+		return "SYM" + i;
+	}
+
+	@Test
+	public void assignmentIsStableAndInRange() {
+		ShardRing a = new ShardRing(4);
+		ShardRing b = new ShardRing(4);
+		for (int i = 0; i < SYMBOLS; i++) {
+			int shard = a.getShard(symbol(i));
+			assertTrue(shard >= 0 && shard < 4, "shard " + shard);
+			assertEquals(shard, b.getShard(symbol(i)));
+			assertEquals(shard, a.getShard(symbol(i)));
+		}
+	}
+
+	@Test
+	public void lessThanOneShardMeansOneShard() {
+		ShardRing ring = new ShardRing(0);
+		for (int i = 0; i < 100; i++) {
+			assertEquals(0, ring.getShard(symbol(i)));
+		}
+	}
+
+	@Test
+	public void symbolsAreSpreadEvenly() {
+		int shardCount = 4;
+		ShardRing ring = new ShardRing(shardCount);
+		int[] counts = new int[shardCount];
+		for (int i = 0; i < SYMBOLS; i++) {
+			counts[ring.getShard(symbol(i))]++;
+		}
+		int mean = SYMBOLS / shardCount;
+		for (int shard = 0; shard < shardCount; shard++) {
+			assertTrue(Math.abs(counts[shard] - mean) < mean * 0.3,
+					"shard " + shard + " has " + counts[shard] + " of " + SYMBOLS + " symbols");
+		}
+	}
+
+	@Test
+	public void addingAShardOnlyMovesSymbolsToTheNewShard() {
+		ShardRing before = new ShardRing(4);
+		ShardRing after = new ShardRing(5);
+		int moved = 0;
+		for (int i = 0; i < SYMBOLS; i++) {
+			int from = before.getShard(symbol(i));
+			int to = after.getShard(symbol(i));
+			if (from != to) {
+				assertEquals(4, to, symbol(i) + " moved from " + from + " to " + to);
+				moved++;
+			}
+		}
+		// about a fifth of the symbols belong to the new shard
+		assertTrue(moved > SYMBOLS * 0.1 && moved < SYMBOLS * 0.3, moved + " of " + SYMBOLS + " moved");
+	}
+}
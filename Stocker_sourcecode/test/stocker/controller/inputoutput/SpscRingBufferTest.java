@@ -0,0 +1,144 @@
+package stocker.controller.inputoutput;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+/**
+ * Tests the {@code SpscRingBuffer}, single threaded for its bounds and with a
+ * producer and a consumer thread for the hand over of the elements.
+ *
+ * @author Christoph Kaplan
+ *
+ */
+public class SpscRingBufferTest {
+
+	/**
+	 * Collects the drained elements.
+	 */
+	private static class Collector implements SpscRingBuffer.Consumer<Integer> {
+		private final List<Integer> elements = new ArrayList<Integer>();
+
+		@Override
+		public void accept(Integer element) {
+			this.elements.add(element);
+		}
+	}
+
+	@Test
+	public void capacityIsRoundedUpToAPowerOfTwo() {
+		assertEquals(1, new SpscRingBuffer<Integer>(1).capacity());
+		assertEquals(8, new SpscRingBuffer<Integer>(5).capacity());
+		assertEquals(16, new SpscRingBuffer<Integer>(16).capacity());
+	}
+
+	@Test
+	public void offerFailsWhenFull() {
+		SpscRingBuffer<Integer> buffer = new SpscRingBuffer<Integer>(4);
+		for (int i = 0; i < 4; i++) {
+			assertTrue(buffer.offer(i));
+		}
+		assertFalse(buffer.offer(4));
+		assertEquals(4, buffer.size());
+
+		assertEquals(Integer.valueOf(0), buffer.poll());
+		assertTrue(buffer.offer(4));
+		assertFalse(buffer.offer(5));
+	}
+
+	@Test
+	public void drainKeepsOrderAndRespectsLimit() {
+		SpscRingBuffer<Integer> buffer = new SpscRingBuffer<Integer>(8);
+		Collector collector = new Collector();
+		// wraps around the end of the array several times
+		int next = 0;
+		for (int round = 0; round < 10; round++) {
+			for (int i = 0; i < 6; i++) {
+				assertTrue(buffer.offer(next++));
+			}
+			assertEquals(4, buffer.drain(collector, 4));
+			assertEquals(2, buffer.drain(collector, 100));
+			assertTrue(buffer.isEmpty());
+		}
+		assertEquals(0, buffer.drain(collector, 100));
+		assertNull(buffer.poll());
+
+		assertEquals(next, collector.elements.size());
+		for (int i = 0; i < next; i++) {
+			assertEquals(Integer.valueOf(i), collector.elements.get(i));
+		}
+	}
+
+	@Test
+	@Timeout(value = 60, unit = TimeUnit.SECONDS)
+	public void producerAndConsumerThreadsHandOverAllElementsInOrder() throws Exception {
+		final int amount = 2000000;
+		final SpscRingBuffer<Integer> buffer = new SpscRingBuffer<Integer>(64);
+		final AtomicReference<String> failure = new AtomicReference<String>();
+
+		Thread producer = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				for (int i = 0; i < amount; i++) {
+					Integer element = Integer.valueOf(i);
+					while (!buffer.offer(element)) {
+						// yields instead of spinning, the other thread may need the same core
+						Thread.yield();
+					}
+				}
+			}
+		}, "spsc-producer");
+
+		Thread consumer = new Thread(new Runnable() {
+			private int expected = 0;
+
+			@Override
+			public void run() {
+				SpscRingBuffer.Consumer<Integer> check = new SpscRingBuffer.Consumer<Integer>() {
+					@Override
+					public void accept(Integer element) {
+						if (element == null || element.intValue() != expected) {
+							failure.compareAndSet(null, "expected " + expected + " but was " + element);
+						}
+						expected++;
+					}
+				};
+				while (this.expected < amount && failure.get() == null) {
+					// alternates between batches and single elements
+					if ((this.expected & 1) == 0) {
+						if (buffer.drain(check, 7) == 0) {
+							Thread.yield();
+						}
+					} else {
+						Integer element = buffer.poll();
+						if (element == null) {
+							Thread.yield();
+						} else {
+							check.accept(element);
+						}
+					}
+				}
+			}
+		}, "spsc-consumer");
+
+		// a failed consumer must not keep the producer alive
+		producer.setDaemon(true);
+		consumer.setDaemon(true);
+		producer.start();
+		consumer.start();
+		producer.join();
+		consumer.join();
+
+		assertNull(failure.get(), failure.get());
+		assertTrue(buffer.isEmpty());
+	}
+}